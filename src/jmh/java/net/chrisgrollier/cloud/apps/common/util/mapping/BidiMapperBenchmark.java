@@ -0,0 +1,149 @@
+package net.chrisgrollier.cloud.apps.common.util.mapping;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractEntity;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.mapping.ContractModelEntityMapperImpl;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Compares {@link BidiMapper#froms(Collection)} of contract entities depending
+ * on how {@link AbstractBidiMapper} creates instances: reflectively on each
+ * call as it used to, through the factory captured from the classes, or
+ * through constructor references as generated mappers do. Bulk mapping is
+ * sequential so that only instance creation differs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BidiMapperBenchmark {
+
+	private static final BulkMapping SEQUENTIAL = new BulkMapping(Integer.MAX_VALUE, BulkMapping.DEFAULT_CHUNK_SIZE,
+			ForkJoinPool.commonPool());
+
+	@Param({ "1000", "100000" })
+	private int size;
+
+	private List<ContractEntity> entities;
+
+	private AbstractBidiMapper<Contract, ContractEntity> reflective;
+
+	private AbstractBidiMapper<Contract, ContractEntity> classFactories;
+
+	private AbstractBidiMapper<Contract, ContractEntity> constructorReferences;
+
+	@Setup
+	public void setUp() {
+		final ContractModelEntityMapperImpl generated = new ContractModelEntityMapperImpl();
+		entities = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final Contract contract = new Contract();
+			contract.setType(ContractType.values()[i % 3]);
+			contract.setDuration(12 + i % 48);
+			contract.setPrice(100d + i % 900);
+			contract.setUserId(i % 5000);
+			entities.add(generated.to(contract));
+		}
+		reflective = new ReflectiveMapper(generated);
+		classFactories = new DelegatingMapper(generated, Contract.class, ContractEntity.class);
+		constructorReferences = new DelegatingMapper(generated);
+		reflective.setBulkMapping(SEQUENTIAL);
+		classFactories.setBulkMapping(SEQUENTIAL);
+		constructorReferences.setBulkMapping(SEQUENTIAL);
+	}
+
+	@Benchmark
+	public Collection<Contract> reflective() {
+		return reflective.froms(entities);
+	}
+
+	@Benchmark
+	public Collection<Contract> classFactories() {
+		return classFactories.froms(entities);
+	}
+
+	@Benchmark
+	public Collection<Contract> constructorReferences() {
+		return constructorReferences.froms(entities);
+	}
+
+	/**
+	 * Copies as the generated mapper does, instances being created by the
+	 * factories of {@link AbstractBidiMapper}.
+	 */
+	static class DelegatingMapper extends AbstractBidiMapper<Contract, ContractEntity> {
+
+		private final BidiMapper<Contract, ContractEntity> delegate;
+
+		DelegatingMapper(BidiMapper<Contract, ContractEntity> delegate) {
+			super(Contract::new, ContractEntity::new);
+			this.delegate = delegate;
+		}
+
+		DelegatingMapper(BidiMapper<Contract, ContractEntity> delegate, Class<Contract> tClass,
+				Class<ContractEntity> sClass) {
+			super(tClass, sClass);
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Contract copyFrom(Contract t, ContractEntity s) {
+			return delegate.copyFrom(t, s);
+		}
+
+		@Override
+		public ContractEntity copyTo(Contract t, ContractEntity s) {
+			return delegate.copyTo(t, s);
+		}
+	}
+
+	/**
+	 * Creates instances with {@link Class#newInstance()} on each call.
+	 */
+	static class ReflectiveMapper extends DelegatingMapper {
+
+		ReflectiveMapper(BidiMapper<Contract, ContractEntity> delegate) {
+			super(delegate);
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		protected Contract newT() {
+			try {
+				return Contract.class.newInstance();
+			} catch (InstantiationException | IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		protected ContractEntity newS() {
+			try {
+				return ContractEntity.class.newInstance();
+			} catch (InstantiationException | IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
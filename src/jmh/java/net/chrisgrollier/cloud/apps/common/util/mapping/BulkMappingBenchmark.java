@@ -0,0 +1,76 @@
+package net.chrisgrollier.cloud.apps.common.util.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractEntity;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.mapping.ContractModelEntityMapperImpl;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Compares the mapping of contract entities to models by {@link BulkMapping},
+ * sequentially and in parallel, and by the stream collect it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkMappingBenchmark {
+
+	private static final BulkMapping SEQUENTIAL = new BulkMapping(Integer.MAX_VALUE, BulkMapping.DEFAULT_CHUNK_SIZE,
+			ForkJoinPool.commonPool());
+
+	@Param({ "1000", "100000" })
+	private int size;
+
+	private List<ContractEntity> entities;
+
+	private ContractModelEntityMapperImpl mapper;
+
+	@Setup
+	public void setUp() {
+		mapper = new ContractModelEntityMapperImpl();
+		entities = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final Contract contract = new Contract();
+			contract.setType(ContractType.values()[i % 3]);
+			contract.setDuration(12 + i % 48);
+			contract.setPrice(100d + i % 900);
+			contract.setUserId(i % 5000);
+			entities.add(mapper.to(contract));
+		}
+	}
+
+	@Benchmark
+	public List<Contract> streamCollect() {
+		return entities.stream().map(mapper::from).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Contract> sequential() {
+		return SEQUENTIAL.map(entities, mapper::from);
+	}
+
+	@Benchmark
+	public List<Contract> parallel() {
+		return BulkMapping.DEFAULT.map(entities, mapper::from);
+	}
+}
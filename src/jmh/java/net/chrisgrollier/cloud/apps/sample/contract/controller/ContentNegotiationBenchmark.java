@@ -0,0 +1,138 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import net.chrisgrollier.cloud.apps.sample.contract.config.JacksonConfig;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.mapping.ContractProtoMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.mapping.ExceptionResponseProtoMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.model.ContractInfo;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Compares the negotiable response formats on contract lists: serialization
+ * time per list here, payload sizes being printed once per trial. The
+ * converters are set up as in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentNegotiationBenchmark {
+
+	private static final Type CONTRACTS = new ParameterizedTypeReference<List<Contract>>() {
+	}.getType();
+
+	private static final Type CONTRACT_INFOS = new ParameterizedTypeReference<List<ContractInfo>>() {
+	}.getType();
+
+	@Param({ "json", "smile", "cbor", "protobuf" })
+	private String format;
+
+	@Param({ "contracts", "contractInfos" })
+	private String payload;
+
+	@Param({ "1000" })
+	private int size;
+
+	private GenericHttpMessageConverter<Object> converter;
+
+	private MediaType mediaType;
+
+	private List<?> body;
+
+	private Type type;
+
+	@Setup
+	public void setUp() throws IOException {
+		switch (format) {
+		case "json":
+			converter = new MappingJackson2HttpMessageConverter(builder().build());
+			mediaType = MediaType.APPLICATION_JSON_UTF8;
+			break;
+		case "smile":
+			converter = new MappingJackson2SmileHttpMessageConverter(builder().factory(new SmileFactory()).build());
+			mediaType = MediaType.valueOf(ContractMediaTypes.APPLICATION_SMILE_VALUE);
+			break;
+		case "cbor":
+			converter = new MappingJackson2CborHttpMessageConverter(builder().factory(new CBORFactory()).build());
+			mediaType = MediaType.valueOf(ContractMediaTypes.APPLICATION_CBOR_VALUE);
+			break;
+		default:
+			converter = new ContractProtobufHttpMessageConverter(new ContractProtoMapper(),
+					new ExceptionResponseProtoMapper());
+			mediaType = ContractMediaTypes.APPLICATION_PROTOBUF;
+		}
+		final List<Contract> contracts = new ArrayList<>(size);
+		final List<ContractInfo> contractInfos = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final Contract contract = new Contract();
+			contract.setId(i);
+			contract.setType(ContractType.values()[i % 3]);
+			contract.setDuration(12 + i % 48);
+			contract.setPrice(100d + i % 900);
+			contract.setUserId(i % 5000);
+			contracts.add(contract);
+			final UserInfo user = new UserInfo();
+			user.setFirstName("First" + i);
+			user.setLastName("Last" + i);
+			user.setRole("USER");
+			user.setEmail("user" + i + "@example.com");
+			user.setAddress(i + " rue de la Paix, Paris");
+			user.setUsername("user" + i);
+			final ContractInfo contractInfo = new ContractInfo(contract);
+			contractInfo.setUser(user);
+			contractInfos.add(contractInfo);
+		}
+		body = "contracts".equals(payload) ? contracts : contractInfos;
+		type = "contracts".equals(payload) ? CONTRACTS : CONTRACT_INFOS;
+		System.out.println(format + " " + payload + " payload: " + this.write().getBodyAsBytes().length + " bytes");
+	}
+
+	@Benchmark
+	public MockHttpOutputMessage write() throws IOException {
+		final MockHttpOutputMessage output = new MockHttpOutputMessage();
+		converter.write(body, type, mediaType, output);
+		return output;
+	}
+
+	/**
+	 * @return a builder configured as the application one
+	 */
+	static Jackson2ObjectMapperBuilder builder() {
+		final JacksonConfig config = new JacksonConfig();
+		final Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+		config.defaultFiltersCustomizer().customize(builder);
+		return builder.modulesToInstall(config.contractSerializationModule());
+	}
+}
@@ -0,0 +1,112 @@
+package net.chrisgrollier.cloud.apps.sample.contract.model.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import net.chrisgrollier.cloud.apps.sample.contract.config.JacksonConfig;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.model.ContractInfo;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Compares the JSON serialization of contract lists by the hand written
+ * serializers and by the bean serializers of an object mapper configured the
+ * same way but without {@link ContractSerializerModifier}. Both must write the
+ * same bytes, which is checked once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractSerializationBenchmark {
+
+	@Param({ "contracts", "contractInfos" })
+	private String payload;
+
+	@Param({ "1000" })
+	private int size;
+
+	private ObjectWriter beanSerializers;
+
+	private ObjectWriter handWritten;
+
+	private List<?> body;
+
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		final JacksonConfig config = new JacksonConfig();
+		final Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+		config.defaultFiltersCustomizer().customize(builder);
+		final List<Contract> contracts = new ArrayList<>(size);
+		final List<ContractInfo> contractInfos = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final Contract contract = new Contract();
+			contract.setId(i);
+			contract.setType(ContractType.values()[i % 3]);
+			contract.setDuration(12 + i % 48);
+			contract.setPrice(100d + i % 900);
+			contract.setUserId(i % 5000);
+			contracts.add(contract);
+			final UserInfo user = new UserInfo();
+			user.setFirstName("First" + i);
+			user.setLastName("Last" + i);
+			user.setRole("USER");
+			user.setEmail("user" + i + "@example.com");
+			user.setAddress(i + " rue de la Paix, Paris");
+			user.setUsername("user" + i);
+			final ContractInfo contractInfo = new ContractInfo(contract);
+			contractInfo.setUser(user);
+			contractInfos.add(contractInfo);
+		}
+		if ("contracts".equals(payload)) {
+			body = contracts;
+			beanSerializers = builder.build().writerFor(new TypeReference<List<Contract>>() {
+			});
+			handWritten = builder.modulesToInstall(config.contractSerializationModule()).build()
+					.writerFor(new TypeReference<List<Contract>>() {
+					});
+		} else {
+			body = contractInfos;
+			beanSerializers = builder.build().writerFor(new TypeReference<List<ContractInfo>>() {
+			});
+			handWritten = builder.modulesToInstall(config.contractSerializationModule()).build()
+					.writerFor(new TypeReference<List<ContractInfo>>() {
+					});
+		}
+		if (!Arrays.equals(this.beanSerializers(), this.handWritten())) {
+			throw new IllegalStateException("Hand written serializers do not write as the bean serializers");
+		}
+	}
+
+	@Benchmark
+	public byte[] beanSerializers() throws JsonProcessingException {
+		return beanSerializers.writeValueAsBytes(body);
+	}
+
+	@Benchmark
+	public byte[] handWritten() throws JsonProcessingException {
+		return handWritten.writeValueAsBytes(body);
+	}
+}
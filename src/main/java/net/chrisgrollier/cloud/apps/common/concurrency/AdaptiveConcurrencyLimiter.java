@@ -0,0 +1,138 @@
+package net.chrisgrollier.cloud.apps.common.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter whose limit follows the observed latency. The limit
+ * grows while latency stays close to its long term average and shrinks as soon
+ * as it rises, requests queueing somewhere downstream, calls beyond the limit
+ * being rejected rather than queued. Failed calls halve the limit growth into a
+ * multiplicative decrease.
+ * 
+ * The limit update is a gradient one: the ratio of the long term to the short
+ * term average latency, bounded to [0.5, 1], scales the current limit, a
+ * square root of it being added as headroom for bursts.
+ * 
+ * @author Atos
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	private static final double SMOOTHING = 0.2;
+
+	private static final double TOLERANCE = 1.5;
+
+	private static final double BACKOFF_RATIO = 0.9;
+
+	private static final int SHORT_WINDOW = 10;
+
+	private static final int LONG_WINDOW = 600;
+
+	private final String name;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private volatile double limit;
+
+	private double shortRtt;
+
+	private double longRtt;
+
+	/**
+	 * @param name         the limiter name
+	 * @param initialLimit the initial limit
+	 * @param minLimit     the limit lower bound
+	 * @param maxLimit     the limit upper bound
+	 */
+	public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+		this.name = name;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the current limit
+	 */
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * @return the number of calls in flight
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Try to start a call.
+	 * 
+	 * @return the number of calls in flight including this one, 0 if the limit is
+	 *         reached and the call must be rejected
+	 */
+	public int tryAcquire() {
+		while (true) {
+			final int current = inFlight.get();
+			if (current >= (int) limit) {
+				return 0;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return current + 1;
+			}
+		}
+	}
+
+	/**
+	 * End a call started by a successful {@link #tryAcquire()}.
+	 */
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * Update the limit from a call that completed normally.
+	 * 
+	 * @param rttNanos the call duration, in nanoseconds
+	 * @param inFlight the number of calls in flight when it started
+	 */
+	public synchronized void onSuccess(long rttNanos, int inFlight) {
+		if (longRtt == 0) {
+			shortRtt = rttNanos;
+			longRtt = rttNanos;
+			return;
+		}
+		shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+		longRtt += (shortRtt - longRtt) / LONG_WINDOW;
+		// latency went back down, forget the overload faster
+		if (longRtt / shortRtt > 2) {
+			longRtt *= 0.95;
+		}
+		// the limit is not what holds calls back, nothing to learn
+		if (inFlight < limit / 2) {
+			return;
+		}
+		final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+		this.update(limit * gradient + Math.sqrt(limit));
+	}
+
+	/**
+	 * Update the limit from a call that failed because of an overload, either
+	 * rejected or timed out downstream.
+	 */
+	public synchronized void onDropped() {
+		this.update(limit * BACKOFF_RATIO);
+	}
+
+	private void update(double target) {
+		final double smoothed = limit * (1 - SMOOTHING) + target * SMOOTHING;
+		limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+	}
+}
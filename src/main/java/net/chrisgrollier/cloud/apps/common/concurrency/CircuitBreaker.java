@@ -0,0 +1,209 @@
+package net.chrisgrollier.cloud.apps.common.concurrency;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker over the outcome of the last calls. The circuit opens when,
+ * over a window of the last calls, the failure rate or the slow call rate
+ * reaches its threshold, calls being then refused without trying. Once the
+ * open duration elapsed, a few probe calls are let through: the circuit closes
+ * if they all succeed in time and opens again otherwise. Only the outcomes of
+ * calls permitted in the current state count: a call started before the
+ * circuit opened, ending once half open, is not taken for a probe.
+ * 
+ * @author Atos
+ */
+public class CircuitBreaker {
+
+	/**
+	 * Circuit states, calls being refused only when open.
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final byte FAILED = 1;
+
+	private static final byte SLOW = 2;
+
+	private final String name;
+
+	private final double failureRateThreshold;
+
+	private final double slowCallRateThreshold;
+
+	private final long slowCallDuration;
+
+	private final int minimumCalls;
+
+	private final long openDuration;
+
+	private final int probeCalls;
+
+	/** Outcomes of the last calls, a ring of {@link #FAILED} and {@link #SLOW} flags */
+	private final byte[] window;
+
+	private int next;
+
+	private int calls;
+
+	private int failures;
+
+	private int slowCalls;
+
+	private volatile State state = State.CLOSED;
+
+	/** Incremented on each state change, permissions of older states being stale */
+	private long generation;
+
+	private long openedAt;
+
+	private int probesStarted;
+
+	private int probesSucceeded;
+
+	/**
+	 * @param name                  the circuit name
+	 * @param failureRateThreshold  the failure rate opening the circuit, in
+	 *                              percent
+	 * @param slowCallRateThreshold the slow call rate opening the circuit, in
+	 *                              percent
+	 * @param slowCallDuration      the duration from which a call is slow, in
+	 *                              milliseconds
+	 * @param windowSize            the number of last calls rates are computed on
+	 * @param minimumCalls          the number of calls before rates are
+	 *                              considered
+	 * @param openDuration          how long the circuit stays open before probing,
+	 *                              in milliseconds
+	 * @param probeCalls            the number of probe calls when half open
+	 */
+	public CircuitBreaker(String name, int failureRateThreshold, int slowCallRateThreshold, long slowCallDuration,
+			int windowSize, int minimumCalls, long openDuration, int probeCalls) {
+		this.name = name;
+		this.failureRateThreshold = failureRateThreshold / 100.0;
+		this.slowCallRateThreshold = slowCallRateThreshold / 100.0;
+		this.slowCallDuration = TimeUnit.MILLISECONDS.toNanos(slowCallDuration);
+		this.window = new byte[windowSize];
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.openDuration = TimeUnit.MILLISECONDS.toNanos(openDuration);
+		this.probeCalls = probeCalls;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * Ask for a call to be made, each permitted call having to be followed by
+	 * {@link #onResult(Permission, long, boolean)} or
+	 * {@link #onIgnored(Permission)}.
+	 * 
+	 * @return the permission of the call, null if it may not be made
+	 */
+	public synchronized Permission tryAcquirePermission() {
+		if (state == State.OPEN) {
+			if (System.nanoTime() - openedAt < openDuration) {
+				return null;
+			}
+			this.transition(State.HALF_OPEN);
+			probesStarted = 0;
+			probesSucceeded = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (probesStarted >= probeCalls) {
+				return null;
+			}
+			probesStarted++;
+		}
+		return new Permission(generation);
+	}
+
+	/**
+	 * Record the outcome of a permitted call.
+	 * 
+	 * @param permission    the call permission
+	 * @param durationNanos the call duration, in nanoseconds
+	 * @param failed        whether the call failed
+	 */
+	public synchronized void onResult(Permission permission, long durationNanos, boolean failed) {
+		if (permission.generation != generation) {
+			// a call permitted in a former state, such as before the circuit opened
+			return;
+		}
+		final byte outcome = (byte) ((failed ? FAILED : 0) | (durationNanos >= slowCallDuration ? SLOW : 0));
+		if (state == State.HALF_OPEN) {
+			if (outcome != 0) {
+				this.open();
+			} else if (++probesSucceeded >= probeCalls) {
+				this.close();
+			}
+			return;
+		}
+		if (calls == window.length) {
+			this.forget(window[next]);
+		} else {
+			calls++;
+		}
+		window[next] = outcome;
+		next = (next + 1) % window.length;
+		failures += outcome & FAILED;
+		slowCalls += (outcome & SLOW) >> 1;
+		if (calls >= minimumCalls
+				&& (failures >= failureRateThreshold * calls || slowCalls >= slowCallRateThreshold * calls)) {
+			this.open();
+		}
+	}
+
+	/**
+	 * Give back the permission of a call whose outcome tells nothing about the
+	 * called service, such as a call cut short by its caller. A probe call may
+	 * then be tried again.
+	 * 
+	 * @param permission the call permission
+	 */
+	public synchronized void onIgnored(Permission permission) {
+		if (permission.generation == generation && state == State.HALF_OPEN) {
+			probesStarted--;
+		}
+	}
+
+	private void forget(byte outcome) {
+		failures -= outcome & FAILED;
+		slowCalls -= (outcome & SLOW) >> 1;
+	}
+
+	private void transition(State newState) {
+		state = newState;
+		generation++;
+	}
+
+	private void open() {
+		this.transition(State.OPEN);
+		openedAt = System.nanoTime();
+	}
+
+	private void close() {
+		this.transition(State.CLOSED);
+		next = 0;
+		calls = 0;
+		failures = 0;
+		slowCalls = 0;
+	}
+
+	/**
+	 * Permission given to a call, its outcome only counting in the state it was
+	 * given in. Half open, it is one of the probe calls.
+	 */
+	public static final class Permission {
+
+		private final long generation;
+
+		private Permission(long generation) {
+			this.generation = generation;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package net.chrisgrollier.cloud.apps.common.concurrency;
+
+import java.util.concurrent.TimeUnit;
+
+import net.chrisgrollier.cloud.apps.common.exception.http.GatewayTimeoutException;
+
+/**
+ * The time by which the request processed by the current thread must be
+ * completed. Outbound calls take the remaining time as their timeout, and work
+ * stops with a {@link GatewayTimeoutException} once it is exceeded.
+ * 
+ * @author Atos
+ */
+public final class Deadline {
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+	private final long expiresAt;
+
+	private Deadline(long expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * @param timeout the time left to complete the request, in milliseconds
+	 * @return a deadline expiring after the given time
+	 */
+	public static Deadline after(long timeout) {
+		return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+	}
+
+	/**
+	 * @return the deadline of the current request, null if it has none
+	 */
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Set the deadline of the current request.
+	 * 
+	 * @param deadline the deadline, null for none
+	 */
+	public static void set(Deadline deadline) {
+		if (deadline == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(deadline);
+		}
+	}
+
+	/**
+	 * Forget the deadline of the current request.
+	 */
+	public static void clear() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Check the current request deadline, if any, is not exceeded yet.
+	 * 
+	 * @throws GatewayTimeoutException if it is
+	 */
+	public static void checkCurrent() {
+		final Deadline deadline = CURRENT.get();
+		if (deadline != null) {
+			deadline.check();
+		}
+	}
+
+	/**
+	 * @return the time left, in milliseconds, 0 once exceeded
+	 */
+	public long remainingMillis() {
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime()));
+	}
+
+	/**
+	 * @return whether the deadline is exceeded
+	 */
+	public boolean isExpired() {
+		return expiresAt - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * Check the deadline is not exceeded yet.
+	 * 
+	 * @return the time left, in milliseconds, at least 1
+	 * @throws GatewayTimeoutException if it is exceeded
+	 */
+	public long check() {
+		final long remaining = this.remainingMillis();
+		if (remaining <= 0) {
+			throw new GatewayTimeoutException("Request deadline exceeded");
+		}
+		return remaining;
+	}
+}
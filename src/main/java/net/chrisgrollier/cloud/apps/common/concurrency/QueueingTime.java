@@ -0,0 +1,42 @@
+package net.chrisgrollier.cloud.apps.common.concurrency;
+
+/**
+ * Holds the time the request processed by the current thread was queued at,
+ * for thread pools to report it and load shedding to tell how long the request
+ * already waited.
+ * 
+ * @author Atos
+ */
+public final class QueueingTime {
+
+	private static final ThreadLocal<Long> QUEUED_AT = new ThreadLocal<>();
+
+	private QueueingTime() {
+		super();
+	}
+
+	/**
+	 * Record the time the current request was queued at.
+	 * 
+	 * @param nanoTime the queueing time, as given by {@link System#nanoTime()}
+	 */
+	public static void set(long nanoTime) {
+		QUEUED_AT.set(nanoTime);
+	}
+
+	/**
+	 * Forget the queueing time of the current request.
+	 */
+	public static void clear() {
+		QUEUED_AT.remove();
+	}
+
+	/**
+	 * @return the time elapsed since the current request was queued, in
+	 *         nanoseconds, 0 if it was not queued
+	 */
+	public static long elapsedNanos() {
+		final Long queuedAt = QUEUED_AT.get();
+		return queuedAt == null ? 0 : System.nanoTime() - queuedAt;
+	}
+}
@@ -0,0 +1,49 @@
+package net.chrisgrollier.cloud.apps.common.concurrency.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import net.chrisgrollier.cloud.apps.common.concurrency.AdaptiveConcurrencyLimiter;
+
+/**
+ * Annotation limiting the number of concurrent calls of a method, or of each
+ * method of a type, the limit adapting to the observed latency (see
+ * {@link AdaptiveConcurrencyLimiter}). Calls beyond the limit, or that already
+ * waited in a queue longer than {@link #maxQueueTime()}, are rejected with a
+ * {@link net.chrisgrollier.cloud.apps.common.exception.http.ServiceUnavailableException}.
+ * 
+ * @author Atos
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface ConcurrencyLimit {
+
+	/**
+	 * @return the limiter name, methods sharing a name sharing a limit. Defaults
+	 *         to the method name qualified by its declaring type name.
+	 */
+	String value() default "";
+
+	/**
+	 * @return the limit to start with
+	 */
+	int initialLimit() default 20;
+
+	/**
+	 * @return the limit lower bound
+	 */
+	int minLimit() default 1;
+
+	/**
+	 * @return the limit upper bound
+	 */
+	int maxLimit() default 200;
+
+	/**
+	 * @return the longest time a call may have waited in a queue before reaching
+	 *         the method, in milliseconds, negative for no bound
+	 */
+	long maxQueueTime() default -1;
+}
@@ -0,0 +1 @@
+package net.chrisgrollier.cloud.apps.common.concurrency.aop;
\ No newline at end of file
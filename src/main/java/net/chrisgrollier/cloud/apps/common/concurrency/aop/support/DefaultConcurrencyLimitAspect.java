@@ -0,0 +1,150 @@
+package net.chrisgrollier.cloud.apps.common.concurrency.aop.support;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import net.chrisgrollier.cloud.apps.common.concurrency.AdaptiveConcurrencyLimiter;
+import net.chrisgrollier.cloud.apps.common.concurrency.QueueingTime;
+import net.chrisgrollier.cloud.apps.common.concurrency.aop.ConcurrencyLimit;
+import net.chrisgrollier.cloud.apps.common.exception.FrameworkFunctionalException;
+import net.chrisgrollier.cloud.apps.common.exception.http.ServiceUnavailableException;
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+import net.chrisgrollier.cloud.apps.common.util.mapping.aop.AbstractAspect;
+
+/**
+ * Aspect enforcing {@link ConcurrencyLimit} on annotated methods and on methods
+ * of annotated types, a method annotation taking precedence over the type one.
+ * 
+ * Functional exceptions and client errors thrown by the method are counted as
+ * normal completions, any other failure as an overload sign.
+ * 
+ * @author Atos
+ */
+@Aspect
+public class DefaultConcurrencyLimitAspect
+		extends AbstractAspect<ConcurrencyLimit, DefaultConcurrencyLimitAspect.Permit> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultConcurrencyLimitAspect.class);
+
+	private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+	/**
+	 * Defines an aspect on execution of any method annotated by
+	 * {@link ConcurrencyLimit} or of any method of a type annotated by
+	 * {@link ConcurrencyLimit}, within sub-packages of "net.chrisgrollier".
+	 * 
+	 * @param pjp proceeding join point
+	 * @return result of proceeded method if no exception was thrown
+	 * @throws Throwable exception thrown while proceeding
+	 */
+	@Around("execution(* net.chrisgrollier..*(..)) && (@within(net.chrisgrollier.cloud.apps.common.concurrency.aop.ConcurrencyLimit)"
+			+ " || @annotation(net.chrisgrollier.cloud.apps.common.concurrency.aop.ConcurrencyLimit))")
+	public Object limitAroundConcurrencyLimit(ProceedingJoinPoint pjp) throws Throwable {
+		return this.simpleAroundStrategy(pjp, this.getConcurrencyLimit(pjp));
+	}
+
+	/**
+	 * @return the limiters created so far, by name
+	 */
+	public Map<String, AdaptiveConcurrencyLimiter> getLimiters() {
+		return limiters;
+	}
+
+	@Override
+	protected Permit doBefore(ProceedingJoinPoint pjp, ConcurrencyLimit context) {
+		final AdaptiveConcurrencyLimiter limiter = limiters.computeIfAbsent(this.limiterName(pjp, context),
+				name -> new AdaptiveConcurrencyLimiter(name, context.initialLimit(), context.minLimit(),
+						context.maxLimit()));
+		final long queued = QueueingTime.elapsedNanos();
+		if (context.maxQueueTime() >= 0 && queued > TimeUnit.MILLISECONDS.toNanos(context.maxQueueTime())) {
+			LogUtil.debug(LOGGER, "{} shed after waiting {} ms", limiter.getName(), TimeUnit.NANOSECONDS.toMillis(queued));
+			throw new ServiceUnavailableException("Request waited too long to be processed");
+		}
+		final int inFlight = limiter.tryAcquire();
+		if (inFlight == 0) {
+			LogUtil.debug(LOGGER, "{} rejected at limit {}", limiter.getName(), limiter.getLimit());
+			throw new ServiceUnavailableException("Too many concurrent requests");
+		}
+		return new Permit(limiter, inFlight, System.nanoTime());
+	}
+
+	@Override
+	protected void doAfterReturning(ProceedingJoinPoint pjp, ConcurrencyLimit context, Permit permit, Object result,
+			long startTime, long endTime) {
+		permit.limiter.onSuccess(System.nanoTime() - permit.startNanos, permit.inFlight);
+	}
+
+	@Override
+	protected void doAfterThrowable(ProceedingJoinPoint pjp, ConcurrencyLimit context, Permit permit,
+			Throwable throwable, long startTime, long endTime) {
+		if (isOverload(throwable)) {
+			permit.limiter.onDropped();
+		} else {
+			permit.limiter.onSuccess(System.nanoTime() - permit.startNanos, permit.inFlight);
+		}
+	}
+
+	@Override
+	protected void doFinally(ProceedingJoinPoint pjp, ConcurrencyLimit context, Permit permit) {
+		permit.limiter.release();
+	}
+
+	/**
+	 * Find the annotation applying to the proceeded method, the method one if
+	 * any, else the one of its declaring type.
+	 */
+	protected ConcurrencyLimit getConcurrencyLimit(ProceedingJoinPoint pjp) {
+		final Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+		final ConcurrencyLimit result = AnnotatedElementUtils.findMergedAnnotation(method, ConcurrencyLimit.class);
+		return result != null ? result
+				: AnnotatedElementUtils.findMergedAnnotation(method.getDeclaringClass(), ConcurrencyLimit.class);
+	}
+
+	private String limiterName(ProceedingJoinPoint pjp, ConcurrencyLimit context) {
+		if (!context.value().isEmpty()) {
+			return context.value();
+		}
+		final Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+		return method.getDeclaringClass().getSimpleName() + '.' + method.getName();
+	}
+
+	private static boolean isOverload(Throwable throwable) {
+		if (throwable instanceof FrameworkFunctionalException) {
+			return false;
+		}
+		final ResponseStatus status = AnnotatedElementUtils.findMergedAnnotation(throwable.getClass(),
+				ResponseStatus.class);
+		return status == null || status.code().is5xxServerError();
+	}
+
+	/**
+	 * Data about an admitted call.
+	 * 
+	 * @author Atos
+	 */
+	protected static class Permit {
+
+		private final AdaptiveConcurrencyLimiter limiter;
+
+		private final int inFlight;
+
+		private final long startNanos;
+
+		Permit(AdaptiveConcurrencyLimiter limiter, int inFlight, long startNanos) {
+			this.limiter = limiter;
+			this.inFlight = inFlight;
+			this.startNanos = startNanos;
+		}
+	}
+}
@@ -0,0 +1 @@
+package net.chrisgrollier.cloud.apps.common.concurrency;
\ No newline at end of file
@@ -0,0 +1,23 @@
+package net.chrisgrollier.cloud.apps.common.exception.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a request conflicts with the current state of the
+ * target resource, typically with another request still in progress.
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class ConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = -2185367024381870311L;
+
+    /**
+     * Create a new ConflictException for the given error message.
+     * 
+     * @param message a detail error message
+     */
+    public ConflictException(String message) {
+        super(message);
+    }
+}
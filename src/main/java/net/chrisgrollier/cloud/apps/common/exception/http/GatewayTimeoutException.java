@@ -0,0 +1,24 @@
+package net.chrisgrollier.cloud.apps.common.exception.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a request could not be completed in time, either
+ * because a dependency did not answer in time or because the request deadline
+ * was already exceeded.
+ */
+@ResponseStatus(value = HttpStatus.GATEWAY_TIMEOUT)
+public class GatewayTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 2958470148625097541L;
+
+    /**
+     * Create a new GatewayTimeoutException for the given error message.
+     * 
+     * @param message a detail error message
+     */
+    public GatewayTimeoutException(String message) {
+        super(message);
+    }
+}
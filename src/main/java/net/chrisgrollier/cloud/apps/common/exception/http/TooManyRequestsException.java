@@ -0,0 +1,23 @@
+package net.chrisgrollier.cloud.apps.common.exception.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a client sent more requests than it is allowed to in a
+ * given amount of time.
+ */
+@ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RuntimeException {
+
+    private static final long serialVersionUID = 4604722377218790134L;
+
+    /**
+     * Create a new TooManyRequestsException for the given error message.
+     * 
+     * @param message a detail error message
+     */
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,17 @@
 package net.chrisgrollier.cloud.apps.common.util.mapping;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Abstract implementation of the {@link BidiMapper} interface providing basic
@@ -9,7 +19,13 @@ import org.slf4j.LoggerFactory;
  * {@link BidiMapper#to(Object)} methods. Subclasses should only implement
  * {@link BidiMapper#copyFrom(Object, Object)} and
  * {@link BidiMapper#copyTo(Object, Object)} and a default constructor that
- * should invoke {@link #AbstractBidiMapper(Class, Class)}.
+ * should invoke {@link #AbstractBidiMapper(Supplier, Supplier)} or
+ * {@link #AbstractBidiMapper(Class, Class)}.
+ * 
+ * New instances are created by factories captured once, constructor
+ * references being plain calls. Immutable classes are supported by factories
+ * returning an empty instance, the copy methods returning a new instance built
+ * from it, or from a builder.
  * 
  * @author Atos
  *
@@ -23,15 +39,33 @@ public abstract class AbstractBidiMapper<T, S> implements BidiMapper<T, S> {
 	/** a log service for all subclasses */
 	protected final Logger logService = LoggerFactory.getLogger(this.getClass());
 
-	/** concrete class of T */
-	private final Class<T> tClass;
+	/** factory of T instances */
+	private final Supplier<T> tFactory;
+
+	/** factory of S instances */
+	private final Supplier<S> sFactory;
 
-	/** concrete class of S */
-	private final Class<S> sClass;
+	/** mapping of collections and iterables */
+	private BulkMapping bulkMapping = BulkMapping.DEFAULT;
+
+	/**
+	 * Constructor that may be invoked by subclasses with the factories of T and S,
+	 * usually constructor references such as {@code T::new}.
+	 * 
+	 * @param tFactory
+	 *            the factory of T instances
+	 * @param sFactory
+	 *            the factory of S instances
+	 */
+	protected AbstractBidiMapper(Supplier<T> tFactory, Supplier<S> sFactory) {
+		super();
+		this.tFactory = tFactory;
+		this.sFactory = sFactory;
+	}
 
 	/**
 	 * Constructor that shoud be inkoed by subclasses with arguments T.class and
-	 * S.class
+	 * S.class, instances being created with their constructor with no args.
 	 * 
 	 * @param tClass
 	 *            the class of T
@@ -40,8 +74,8 @@ public abstract class AbstractBidiMapper<T, S> implements BidiMapper<T, S> {
 	 */
 	protected AbstractBidiMapper(Class<T> tClass, Class<S> sClass) {
 		super();
-		this.tClass = tClass;
-		this.sClass = sClass;
+		this.tFactory = factory(tClass);
+		this.sFactory = factory(sClass);
 	}
 
 	@Override
@@ -54,6 +88,23 @@ public abstract class AbstractBidiMapper<T, S> implements BidiMapper<T, S> {
 		return this.copyTo(t, this.newS());
 	}
 
+	@Override
+	public BulkMapping bulkMapping() {
+		return this.bulkMapping;
+	}
+
+	/**
+	 * Set the mapping of collections and iterables, injected when the mapper is
+	 * a bean and the context provides one.
+	 * 
+	 * @param bulkMapping
+	 *            the bulk mapping
+	 */
+	@Autowired(required = false)
+	public void setBulkMapping(BulkMapping bulkMapping) {
+		this.bulkMapping = bulkMapping;
+	}
+
 	/**
 	 * Factory method for class T called by {@link #from(Object)} method. Subclasses
 	 * may override if class T does not provide a default public constructor with no
@@ -62,7 +113,7 @@ public abstract class AbstractBidiMapper<T, S> implements BidiMapper<T, S> {
 	 * @return a new instance of T
 	 */
 	protected T newT() {
-		return newInstance(this.tClass);
+		return this.tFactory.get();
 	}
 
 	/**
@@ -73,24 +124,57 @@ public abstract class AbstractBidiMapper<T, S> implements BidiMapper<T, S> {
 	 * @return a new instance of S
 	 */
 	protected S newS() {
-		return newInstance(this.sClass);
+		return this.sFactory.get();
 	}
 
 	/**
-	 * Return a new instance of the provided class by invoking the
-	 * {@link Class#newInstance()} method.
+	 * Return a factory of the provided class invoking its constructor with no
+	 * args: a direct call if the constructor is public, a method handle
+	 * invocation otherwise. If the class has no such constructor, the factory
+	 * fails, so that subclasses overriding {@link #newT()} or {@link #newS()} may
+	 * still provide their class.
 	 * 
 	 * @param clazz
-	 *            the class of the object to be instantiated.
-	 * @return a new instance of the provided class
+	 *            the class of the objects to be instantiated.
+	 * @return a factory of the provided class
 	 */
-	private <C> C newInstance(Class<C> clazz) {
+	@SuppressWarnings("unchecked")
+	private static <C> Supplier<C> factory(Class<C> clazz) {
+		final Constructor<C> constructor;
+		try {
+			constructor = clazz.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			return () -> {
+				throw new IllegalStateException("Unable to instanciate class " + clazz.getName()
+						+ ". This class should implement a constructor with no args", e);
+			};
+		}
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			if (Modifier.isPublic(clazz.getModifiers()) && Modifier.isPublic(constructor.getModifiers())) {
+				final MethodHandle handle = lookup.unreflectConstructor(constructor);
+				final CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+						MethodType.methodType(Object.class), handle, MethodType.methodType(clazz));
+				return (Supplier<C>) site.getTarget().invoke();
+			}
+		} catch (Throwable e) {
+			// not linkable from here, e.g. loaded by another class loader
+		}
 		try {
-			return clazz.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			logService.error("newInstance", e, "Unable to instanciate class {}", clazz.getName());
-			throw new RuntimeException("Unable to instanciate class " + clazz.getName()
-					+ ". This class should implement a public constructor with no args", e);
+			constructor.setAccessible(true);
+			final MethodHandle handle = lookup.unreflectConstructor(constructor);
+			return () -> {
+				try {
+					return (C) handle.invoke();
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new IllegalStateException("Unable to instanciate class " + clazz.getName(), e);
+				}
+			};
+		} catch (IllegalAccessException | RuntimeException e) {
+			throw new IllegalArgumentException("Unable to access the constructor with no args of class "
+					+ clazz.getName(), e);
 		}
 	}
 }
@@ -1,14 +1,13 @@
 package net.chrisgrollier.cloud.apps.common.util.mapping;
 
 import java.util.Collection;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 /**
  * Utility interface for bidirectional object mapping. Provides methods to map
  * objects of 2 classes in two directions. In other words, can transform objects
  * of class S in objects of class T and vice versa. Also provides default
- * methods to map collections and iterable of these classes.
+ * methods to map collections and iterable of these classes, relying on
+ * {@link #bulkMapping()}.
  * 
  * @author Atos
  *
@@ -59,6 +58,17 @@ public interface BidiMapper<T, S> {
 	 */
 	S to(T t);
 
+	/**
+	 * Return the mapping of collections and iterables, in input order. Large
+	 * inputs may be mapped in parallel, {@link #from(Object)} and
+	 * {@link #to(Object)} having then to be thread safe.
+	 * 
+	 * @return the bulk mapping, {@link BulkMapping#DEFAULT} by default
+	 */
+	default BulkMapping bulkMapping() {
+		return BulkMapping.DEFAULT;
+	}
+
 	/**
 	 * Return a collection of S instances based on the collection of T. Individual
 	 * mapping relies on {@link #to(Object)}.
@@ -68,7 +78,7 @@ public interface BidiMapper<T, S> {
 	 * @return a collection of S instances
 	 */
 	default Collection<S> tos(Collection<T> t) {
-		return t.stream().map(o -> to(o)).collect(Collectors.toList());
+		return bulkMapping().map(t, this::to);
 	}
 
 	/**
@@ -80,7 +90,7 @@ public interface BidiMapper<T, S> {
 	 * @return a collection of T instances
 	 */
 	default Collection<T> froms(Collection<S> s) {
-		return s.stream().map(o -> from(o)).collect(Collectors.toList());
+		return bulkMapping().map(s, this::from);
 	}
 
 	/**
@@ -92,7 +102,7 @@ public interface BidiMapper<T, S> {
 	 * @return a collection of S instances
 	 */
 	default Collection<S> tos(Iterable<T> t) {
-		return StreamSupport.stream(t.spliterator(), false).map(o -> to(o)).collect(Collectors.toList());
+		return bulkMapping().map(t, this::to);
 	}
 
 	/**
@@ -104,6 +114,6 @@ public interface BidiMapper<T, S> {
 	 * @return a collection of T instances
 	 */
 	default Collection<T> froms(Iterable<S> s) {
-		return StreamSupport.stream(s.spliterator(), false).map(o -> from(o)).collect(Collectors.toList());
+		return bulkMapping().map(s, this::from);
 	}
 }
@@ -0,0 +1,200 @@
+package net.chrisgrollier.cloud.apps.common.util.mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Maps all the elements of an {@link Iterable}, used by the bulk methods of
+ * {@link BidiMapper}. The result list is presized when the input is a
+ * {@link Collection}. Inputs smaller than the parallel threshold are mapped
+ * by a plain loop, larger ones are split in chunks mapped by the tasks of a
+ * {@link ForkJoinPool}, so that element mapping must then be thread safe.
+ *
+ * Whatever the strategy, results are in input order and, when several elements
+ * fail to map, the exception thrown is the one of the first of them in input
+ * order, as a plain loop would.
+ *
+ * @author Atos
+ */
+public class BulkMapping {
+
+	/** Default parallel threshold */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+
+	/** Default chunk size */
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	/** The instance used unless configured otherwise, on the common pool */
+	public static final BulkMapping DEFAULT = new BulkMapping(DEFAULT_PARALLEL_THRESHOLD, DEFAULT_CHUNK_SIZE,
+			ForkJoinPool.commonPool());
+
+	/** minimum input size for parallel mapping */
+	private final int parallelThreshold;
+
+	/** number of elements a task maps with a plain loop */
+	private final int chunkSize;
+
+	/** pool running the chunk tasks */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param parallelThreshold
+	 *            minimum input size for parallel mapping, a value of
+	 *            {@link Integer#MAX_VALUE} disabling it
+	 * @param chunkSize
+	 *            number of elements a task maps with a plain loop
+	 * @param pool
+	 *            the pool running the chunk tasks
+	 */
+	public BulkMapping(int parallelThreshold, int chunkSize, ForkJoinPool pool) {
+		super();
+		if (parallelThreshold < 1 || chunkSize < 1) {
+			throw new IllegalArgumentException("parallelThreshold and chunkSize must be positive");
+		}
+		this.parallelThreshold = parallelThreshold;
+		this.chunkSize = chunkSize;
+		this.pool = pool;
+	}
+
+	/**
+	 * Map all the elements of an iterable.
+	 *
+	 * @param inputs
+	 *            the elements to map
+	 * @param function
+	 *            the mapping of an element
+	 * @return the mapped elements, in input order, in a mutable list
+	 */
+	public <I, O> List<O> map(Iterable<? extends I> inputs, Function<? super I, ? extends O> function) {
+		if (!(inputs instanceof Collection)) {
+			final List<O> outputs = new ArrayList<>();
+			for (I input : inputs) {
+				outputs.add(function.apply(input));
+			}
+			return outputs;
+		}
+		final Collection<? extends I> collection = (Collection<? extends I>) inputs;
+		final int size = collection.size();
+		if (size < this.parallelThreshold || size <= this.chunkSize || this.pool.getParallelism() < 2) {
+			final List<O> outputs = new ArrayList<>(size);
+			for (I input : collection) {
+				outputs.add(function.apply(input));
+			}
+			return outputs;
+		}
+		return this.mapInParallel(collection.toArray(), function);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <I, O> List<O> mapInParallel(Object[] inputs, Function<? super I, ? extends O> function) {
+		final Object[] outputs = new Object[inputs.length];
+		final Failures failures = new Failures((inputs.length + this.chunkSize - 1) / this.chunkSize);
+		this.pool.invoke(new ChunkTask(0, failures.chunks(), chunk -> {
+			final int from = chunk * this.chunkSize;
+			final int to = Math.min(from + this.chunkSize, inputs.length);
+			for (int i = from; i < to; i++) {
+				if (failures.firstChunk() < chunk) {
+					// an earlier element failed, the result is lost anyway
+					return;
+				}
+				try {
+					outputs[i] = function.apply((I) inputs[i]);
+				} catch (RuntimeException | Error e) {
+					failures.record(chunk, e);
+					return;
+				}
+			}
+		}));
+		failures.rethrowFirst();
+		return new ArrayList<>((List<O>) Arrays.asList(outputs));
+	}
+
+	/**
+	 * Maps a range of chunks, splitting it in halves down to a single chunk.
+	 */
+	private static class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+
+		private final int to;
+
+		private final ChunkMapping mapping;
+
+		ChunkTask(int from, int to, ChunkMapping mapping) {
+			super();
+			this.from = from;
+			this.to = to;
+			this.mapping = mapping;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				mapping.map(from);
+				return;
+			}
+			final int middle = (from + to) >>> 1;
+			invokeAll(new ChunkTask(from, middle, mapping), new ChunkTask(middle, to, mapping));
+		}
+	}
+
+	@FunctionalInterface
+	private interface ChunkMapping {
+
+		void map(int chunk);
+	}
+
+	/**
+	 * The first failure of each chunk, a chunk stopping at its first failure so
+	 * that the first failure of the earliest failed chunk is the first one in
+	 * input order.
+	 */
+	private static class Failures {
+
+		private final AtomicReferenceArray<Throwable> failures;
+
+		/** index of the earliest failed chunk, chunks after it may give up */
+		private final AtomicInteger firstChunk = new AtomicInteger(Integer.MAX_VALUE);
+
+		Failures(int chunks) {
+			super();
+			this.failures = new AtomicReferenceArray<>(chunks);
+		}
+
+		int chunks() {
+			return failures.length();
+		}
+
+		int firstChunk() {
+			return firstChunk.get();
+		}
+
+		void record(int chunk, Throwable failure) {
+			failures.set(chunk, failure);
+			firstChunk.accumulateAndGet(chunk, Math::min);
+		}
+
+		void rethrowFirst() {
+			final int chunk = firstChunk.get();
+			if (chunk == Integer.MAX_VALUE) {
+				return;
+			}
+			final Throwable failure = failures.get(chunk);
+			if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+			throw (RuntimeException) failure;
+		}
+	}
+}
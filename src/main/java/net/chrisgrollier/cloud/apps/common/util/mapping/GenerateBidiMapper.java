@@ -0,0 +1,46 @@
+package net.chrisgrollier.cloud.apps.common.util.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface extending {@link BidiMapper} whose implementation is
+ * generated at build time, named after the interface with an {@code Impl}
+ * suffix. The generated mapper copies each property having a setter in the
+ * target class from the getter of the same name in the source class:
+ * <ul>
+ * <li>as is, if types are assignable, boxing included</li>
+ * <li>unboxed, if the target property is primitive, null values leaving it
+ * untouched</li>
+ * <li>by constant name, between two enums or between an enum and a
+ * String</li>
+ * </ul>
+ * Any other target property without a matching source property, or with
+ * incompatible types, is a compilation error unless ignored. Both classes
+ * must have a public constructor with no args.
+ * 
+ * @author Atos
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateBidiMapper {
+
+	/**
+	 * @return properties of T not set by {@link BidiMapper#copyFrom(Object, Object)}
+	 */
+	String[] ignoreFrom() default {};
+
+	/**
+	 * @return properties of S not set by {@link BidiMapper#copyTo(Object, Object)}
+	 */
+	String[] ignoreTo() default {};
+
+	/**
+	 * @return whether the generated mapper is a Spring component
+	 */
+	boolean component() default true;
+}
@@ -0,0 +1,361 @@
+package net.chrisgrollier.cloud.apps.common.util.mapping.processor;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the implementations of the interfaces annotated with
+ * {@code GenerateBidiMapper}: straight-line getter to setter copies, without
+ * any reflection. Referenced by name only, so that it can be compiled before
+ * the annotation and the mappers it processes.
+ * 
+ * @author Atos
+ */
+@SupportedAnnotationTypes(BidiMapperProcessor.ANNOTATION)
+public class BidiMapperProcessor extends AbstractProcessor {
+
+	static final String ANNOTATION = "net.chrisgrollier.cloud.apps.common.util.mapping.GenerateBidiMapper";
+
+	private static final String BIDI_MAPPER = "net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper";
+
+	private static final String ABSTRACT_BIDI_MAPPER = "net.chrisgrollier.cloud.apps.common.util.mapping.AbstractBidiMapper";
+
+	private static final String COMPONENT = "org.springframework.stereotype.Component";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		final TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+		if (annotation == null) {
+			return false;
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+			if (element.getKind() != ElementKind.INTERFACE) {
+				this.error(element, "@GenerateBidiMapper only applies to interfaces");
+				continue;
+			}
+			try {
+				this.generate((TypeElement) element);
+			} catch (MappingException e) {
+				this.error(element, e.getMessage());
+			} catch (IOException e) {
+				this.error(element, "Unable to write the mapper implementation: " + e.getMessage());
+			}
+		}
+		return true;
+	}
+
+	private void generate(TypeElement mapper) throws IOException {
+		final DeclaredType bidiMapper = this.findBidiMapper(mapper.asType());
+		if (bidiMapper == null || bidiMapper.getTypeArguments().size() != 2) {
+			throw new MappingException(mapper + " must extend " + BIDI_MAPPER + "<T, S>");
+		}
+		final TypeElement t = this.mappedClass(bidiMapper.getTypeArguments().get(0));
+		final TypeElement s = this.mappedClass(bidiMapper.getTypeArguments().get(1));
+		final AnnotationMirror mirror = this.annotationMirror(mapper);
+		final Set<String> ignoreFrom = this.stringValues(mirror, "ignoreFrom");
+		final Set<String> ignoreTo = this.stringValues(mirror, "ignoreTo");
+		final boolean component = this.booleanValue(mirror, "component");
+
+		final List<String> copyFrom = this.copies(t, "t", s, "s", ignoreFrom, "ignoreFrom");
+		final List<String> copyTo = this.copies(s, "s", t, "t", ignoreTo, "ignoreTo");
+
+		final String packageName = processingEnv.getElementUtils().getPackageOf(mapper).getQualifiedName()
+				.toString();
+		final String simpleName = mapper.getSimpleName() + "Impl";
+		final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+		final String tName = t.getQualifiedName().toString();
+		final String sName = s.getQualifiedName().toString();
+		try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, mapper).openWriter()) {
+			if (!packageName.isEmpty()) {
+				writer.write("package " + packageName + ";\n\n");
+			}
+			writer.write("/**\n * Generated implementation of {@link " + mapper.getQualifiedName() + "}.\n */\n");
+			if (component) {
+				writer.write("@" + COMPONENT + "\n");
+			}
+			writer.write("public class " + simpleName + " extends " + ABSTRACT_BIDI_MAPPER + "<" + tName + ", " + sName
+					+ "> implements " + mapper.getQualifiedName() + " {\n\n");
+			writer.write("\tpublic " + simpleName + "() {\n\t\tsuper(" + tName + "::new, " + sName + "::new);\n\t}\n\n");
+			this.writeMethod(writer, tName, "copyFrom", tName, sName, "t", copyFrom);
+			writer.write("\n");
+			this.writeMethod(writer, sName, "copyTo", tName, sName, "s", copyTo);
+			writer.write("}\n");
+		}
+	}
+
+	private void writeMethod(Writer writer, String returnType, String name, String tName, String sName,
+			String result, List<String> copies) throws IOException {
+		writer.write("\t@Override\n\tpublic " + returnType + " " + name + "(" + tName + " t, " + sName + " s) {\n");
+		for (String copy : copies) {
+			writer.write(copy);
+		}
+		writer.write("\t\treturn " + result + ";\n\t}\n");
+	}
+
+	/**
+	 * @return the statements copying the properties of source to target
+	 */
+	private List<String> copies(TypeElement target, String targetVar, TypeElement source, String sourceVar,
+			Set<String> ignored, String ignoreAttribute) {
+		final Map<String, ExecutableElement> setters = this.setters(target);
+		final Map<String, ExecutableElement> getters = this.getters(source);
+		final Set<String> unknown = new LinkedHashSet<>(ignored);
+		unknown.removeAll(setters.keySet());
+		if (!unknown.isEmpty()) {
+			throw new MappingException(ignoreAttribute + " lists properties " + target.getSimpleName()
+					+ " does not have: " + unknown);
+		}
+		final List<String> copies = new ArrayList<>();
+		final List<String> unmapped = new ArrayList<>();
+		for (Map.Entry<String, ExecutableElement> setter : setters.entrySet()) {
+			final String property = setter.getKey();
+			if (ignored.contains(property)) {
+				continue;
+			}
+			final ExecutableElement getter = getters.get(property);
+			if (getter == null) {
+				unmapped.add(property);
+				continue;
+			}
+			copies.add(this.copy(property, targetVar + '.' + setter.getValue().getSimpleName(),
+					setter.getValue().getParameters().get(0).asType(), sourceVar + '.' + getter.getSimpleName() + "()",
+					getter.getReturnType()));
+		}
+		if (!unmapped.isEmpty()) {
+			throw new MappingException("Unmapped properties of " + target.getSimpleName() + ", missing in "
+					+ source.getSimpleName() + ": " + unmapped + ". Map them or list them in " + ignoreAttribute);
+		}
+		return copies;
+	}
+
+	/**
+	 * @return the statement copying a property
+	 */
+	private String copy(String property, String setter, TypeMirror to, String getter, TypeMirror from) {
+		final Types types = processingEnv.getTypeUtils();
+		// suffixed not to shadow the method parameters
+		final String local = property + "Value";
+		if (!from.getKind().isPrimitive() && to.getKind().isPrimitive()) {
+			final TypeMirror unboxed;
+			try {
+				unboxed = types.unboxedType(from);
+			} catch (IllegalArgumentException e) {
+				throw this.incompatible(property, from, to);
+			}
+			if (!types.isAssignable(unboxed, to)) {
+				throw this.incompatible(property, from, to);
+			}
+			return "\t\tfinal " + from + " " + local + " = " + getter + ";\n\t\tif (" + local
+					+ " != null) {\n\t\t\t" + setter + "(" + local + ");\n\t\t}\n";
+		}
+		if (types.isAssignable(from, to)) {
+			return "\t\t" + setter + "(" + getter + ");\n";
+		}
+		final boolean fromEnum = this.isEnum(from);
+		final boolean toEnum = this.isEnum(to);
+		final boolean fromString = this.isString(from);
+		final boolean toString = this.isString(to);
+		final String converted;
+		if (fromEnum && toEnum) {
+			final Set<String> missing = this.constants(from);
+			missing.removeAll(this.constants(to));
+			if (!missing.isEmpty()) {
+				throw new MappingException("Property " + property + ": constants " + missing + " of " + from
+						+ " are missing in " + to);
+			}
+			converted = to + ".valueOf(" + local + ".name())";
+		} else if (fromEnum && toString) {
+			converted = local + ".name()";
+		} else if (fromString && toEnum) {
+			converted = to + ".valueOf(" + local + ")";
+		} else {
+			throw this.incompatible(property, from, to);
+		}
+		return "\t\tfinal " + from + " " + local + " = " + getter + ";\n\t\t" + setter + "(" + local
+				+ " == null ? null : " + converted + ");\n";
+	}
+
+	private MappingException incompatible(String property, TypeMirror from, TypeMirror to) {
+		return new MappingException("Property " + property + " cannot be mapped from " + from + " to " + to);
+	}
+
+	private boolean isEnum(TypeMirror type) {
+		return type.getKind() == TypeKind.DECLARED
+				&& ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+	}
+
+	private boolean isString(TypeMirror type) {
+		return type.getKind() == TypeKind.DECLARED
+				&& ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.String");
+	}
+
+	private Set<String> constants(TypeMirror enumType) {
+		return ((DeclaredType) enumType).asElement().getEnclosedElements().stream()
+				.filter(e -> e.getKind() == ElementKind.ENUM_CONSTANT).map(e -> e.getSimpleName().toString())
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+
+	/**
+	 * @return the readable properties of a class, by name
+	 */
+	private Map<String, ExecutableElement> getters(TypeElement type) {
+		final Map<String, ExecutableElement> getters = new LinkedHashMap<>();
+		for (ExecutableElement method : this.publicMethods(type)) {
+			final String name = method.getSimpleName().toString();
+			if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID
+					|| "getClass".equals(name)) {
+				continue;
+			}
+			if (name.startsWith("get") && name.length() > 3) {
+				getters.putIfAbsent(Introspector.decapitalize(name.substring(3)), method);
+			} else if (name.startsWith("is") && name.length() > 2
+					&& method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+				getters.putIfAbsent(Introspector.decapitalize(name.substring(2)), method);
+			}
+		}
+		return getters;
+	}
+
+	/**
+	 * @return the writable properties of a class, by name
+	 */
+	private Map<String, ExecutableElement> setters(TypeElement type) {
+		final Map<String, ExecutableElement> setters = new LinkedHashMap<>();
+		for (ExecutableElement method : this.publicMethods(type)) {
+			final String name = method.getSimpleName().toString();
+			if (method.getParameters().size() == 1 && name.startsWith("set") && name.length() > 3) {
+				setters.putIfAbsent(Introspector.decapitalize(name.substring(3)), method);
+			}
+		}
+		return setters;
+	}
+
+	private List<ExecutableElement> publicMethods(TypeElement type) {
+		return ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type)).stream()
+				.filter(m -> m.getModifiers().contains(Modifier.PUBLIC) && !m.getModifiers().contains(Modifier.STATIC))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return the mapped class, checked to be instantiable
+	 */
+	private TypeElement mappedClass(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			throw new MappingException("Mapped type " + type + " is not a class");
+		}
+		final TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+		final boolean instantiable = element.getKind() == ElementKind.CLASS
+				&& element.getModifiers().contains(Modifier.PUBLIC)
+				&& !element.getModifiers().contains(Modifier.ABSTRACT)
+				&& (element.getEnclosingElement() instanceof PackageElement
+						|| element.getModifiers().contains(Modifier.STATIC))
+				&& ElementFilter.constructorsIn(element.getEnclosedElements()).stream().anyMatch(
+						c -> c.getParameters().isEmpty() && c.getModifiers().contains(Modifier.PUBLIC));
+		if (!instantiable) {
+			throw new MappingException("Mapped class " + type + " must be a concrete public class with a public"
+					+ " constructor with no args");
+		}
+		return element;
+	}
+
+	private DeclaredType findBidiMapper(TypeMirror type) {
+		for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type)) {
+			if (supertype.getKind() != TypeKind.DECLARED) {
+				continue;
+			}
+			final TypeElement element = (TypeElement) ((DeclaredType) supertype).asElement();
+			if (element.getQualifiedName().contentEquals(BIDI_MAPPER)) {
+				return (DeclaredType) supertype;
+			}
+			final DeclaredType found = this.findBidiMapper(supertype);
+			if (found != null) {
+				return found;
+			}
+		}
+		return null;
+	}
+
+	private AnnotationMirror annotationMirror(TypeElement element) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(ANNOTATION)) {
+				return mirror;
+			}
+		}
+		throw new IllegalStateException(element + " is not annotated with " + ANNOTATION);
+	}
+
+	private AnnotationValue value(AnnotationMirror mirror, String name) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv
+				.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue();
+			}
+		}
+		throw new IllegalStateException("No " + name + " attribute");
+	}
+
+	private Set<String> stringValues(AnnotationMirror mirror, String name) {
+		final Object value = this.value(mirror, name).getValue();
+		if (!(value instanceof List)) {
+			return Collections.singleton(value.toString());
+		}
+		final Set<String> values = new LinkedHashSet<>();
+		for (Object item : (List<?>) value) {
+			values.add(((AnnotationValue) item).getValue().toString());
+		}
+		return values;
+	}
+
+	private boolean booleanValue(AnnotationMirror mirror, String name) {
+		return (Boolean) this.value(mirror, name).getValue();
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	/**
+	 * A mapper that cannot be generated, reported as a compilation error.
+	 */
+	private static class MappingException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		MappingException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1 @@
+package net.chrisgrollier.cloud.apps.common.util.mapping.processor;
\ No newline at end of file
@@ -7,15 +7,20 @@ import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.web.client.RestTemplate;
 
+import net.chrisgrollier.cloud.apps.common.concurrency.aop.support.DefaultConcurrencyLimitAspect;
 import net.chrisgrollier.cloud.apps.common.log.aop.support.DefaultLoggableAspect;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.deadline.DeadlineClientHttpRequestInterceptor;
 
 /**
  * This class is the Application Class.
  */
 @SpringBootApplication
+@EnableScheduling
 @RefreshScope
 public class ContractServiceApplication {
 
@@ -28,11 +33,13 @@ public class ContractServiceApplication {
         SpringApplication.run(ContractServiceApplication.class, args);
     }
 	
-    // for calling userService
+    // for calling userService over pooled connections, within the request deadline
     @Bean
     @LoadBalanced
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+            ClientHttpRequestFactory usersServiceRequestFactory) {
+        return builder.requestFactory(() -> usersServiceRequestFactory)
+                .additionalInterceptors(new DeadlineClientHttpRequestInterceptor()).build();
     }
 	
     // for i18n support in validator
@@ -49,4 +56,10 @@ public class ContractServiceApplication {
 		return new DefaultLoggableAspect();
 	}
 
+	// for adaptive concurrency limiting
+	@Bean
+	public DefaultConcurrencyLimitAspect concurrencyLimitAspect() {
+		return new DefaultConcurrencyLimitAspect();
+	}
+
 }
@@ -0,0 +1,263 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+import net.chrisgrollier.cloud.apps.common.exception.http.GatewayTimeoutException;
+import net.chrisgrollier.cloud.apps.sample.contract.client.http.AbortHandle;
+
+/**
+ * Hedged calls to a load balanced service, enabled by
+ * {@code usersservice.hedging.enabled}. A call is sent to an instance chosen by
+ * the load balancer and, if it has not answered after a delay, the
+ * {@code usersservice.hedging.percentile} of the latest calls durations
+ * bounded by {@code min-delay} and {@code max-delay}, the same call is sent to
+ * another instance. The first response wins, the other call being aborted, a
+ * failure only ending the call once both failed. The wait is bounded by the
+ * request deadline, or else by {@code usersservice.read-timeout}, both calls
+ * being aborted once it is over.
+ * 
+ * Hedged calls are limited by a budget: each call earns
+ * {@code usersservice.hedging.budget-ratio} of a hedge, up to
+ * {@code budget-burst} hedges. Hedges are counted by result as
+ * {@code users.client.hedge}: sent, won, no-budget or no-instance.
+ * 
+ * Calls run on a thread pool of their own, their number being capped by the
+ * users service bulkhead, and must be idempotent.
+ */
+@Component
+@ConditionalOnProperty(name = "usersservice.hedging.enabled", havingValue = "true")
+public class RequestHedger implements DisposableBean {
+
+	private static final int WINDOW_SIZE = 512;
+
+	private static final int MIN_SAMPLES = 32;
+
+	private static final int UPDATE_PERIOD = 32;
+
+	private static final long BUDGET_UNIT = 1000;
+
+	private final LoadBalancerClient loadBalancer;
+
+	private final MeterRegistry meterRegistry;
+
+	private final double percentile;
+
+	private final long minDelay;
+
+	private final long maxDelay;
+
+	private final long budgetRatio;
+
+	private final long maxBudget;
+
+	private final long readTimeout;
+
+	private final ExecutorService executor;
+
+	private final AtomicLong budget = new AtomicLong();
+
+	private final long[] durations = new long[WINDOW_SIZE];
+
+	private int samples;
+
+	private volatile long delay;
+
+	public RequestHedger(final LoadBalancerClient loadBalancer, final MeterRegistry meterRegistry,
+			@Value("${usersservice.hedging.percentile:95}") final double percentile,
+			@Value("${usersservice.hedging.min-delay:5}") final long minDelay,
+			@Value("${usersservice.hedging.max-delay:1000}") final long maxDelay,
+			@Value("${usersservice.hedging.budget-ratio:0.1}") final double budgetRatio,
+			@Value("${usersservice.hedging.budget-burst:10}") final int budgetBurst,
+			@Value("${usersservice.read-timeout:10000}") final long readTimeout) {
+		this.loadBalancer = loadBalancer;
+		this.meterRegistry = meterRegistry;
+		this.percentile = percentile;
+		this.minDelay = TimeUnit.MILLISECONDS.toNanos(minDelay);
+		this.maxDelay = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+		this.delay = this.maxDelay;
+		this.budgetRatio = (long) (budgetRatio * BUDGET_UNIT);
+		this.maxBudget = budgetBurst * BUDGET_UNIT;
+		this.readTimeout = TimeUnit.MILLISECONDS.toNanos(readTimeout);
+		this.executor = Executors.newCachedThreadPool(
+				new ThreadFactoryBuilder().setNameFormat("users-hedge-%d").setDaemon(true).build());
+		meterRegistry.gauge("users.client.hedge.delay", this, h -> h.delay / 1e6);
+	}
+
+	/**
+	 * Make a hedged call.
+	 * 
+	 * @param uri  the call URI, its host being the service identifier
+	 * @param call the call, given the URI of the instance to send it to
+	 * @return the first response
+	 */
+	public <T> T call(URI uri, Function<URI, T> call) {
+		final String serviceId = uri.getHost();
+		final ServiceInstance primary = loadBalancer.choose(serviceId);
+		if (primary == null) {
+			throw new IllegalStateException("No instances available for " + serviceId);
+		}
+		budget.updateAndGet(b -> Math.min(maxBudget, b + budgetRatio));
+		final Race<T> race = new Race<>(uri, call);
+		final long timeout = race.deadline == null ? readTimeout
+				: TimeUnit.MILLISECONDS.toNanos(race.deadline.remainingMillis());
+		final long expiresAt = System.nanoTime() + timeout;
+		race.start(primary, false);
+		try {
+			try {
+				return race.winner.get(Math.min(delay, timeout), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				if (delay < timeout) {
+					this.hedge(race, serviceId, primary);
+				}
+				return race.winner.get(expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+		} catch (TimeoutException e) {
+			race.abort();
+			throw new GatewayTimeoutException("Timed out calling " + serviceId);
+		} catch (InterruptedException e) {
+			race.abort();
+			Thread.currentThread().interrupt();
+			throw new GatewayTimeoutException("Interrupted while calling " + serviceId);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void hedge(Race<?> race, String serviceId, ServiceInstance primary) {
+		final ServiceInstance other = this.chooseOther(serviceId, primary);
+		if (other == null) {
+			meterRegistry.counter("users.client.hedge", "result", "no-instance").increment();
+		} else if (!this.withdraw()) {
+			meterRegistry.counter("users.client.hedge", "result", "no-budget").increment();
+		} else if (!race.winner.isDone()) {
+			meterRegistry.counter("users.client.hedge", "result", "sent").increment();
+			race.start(other, true);
+		}
+	}
+
+	/**
+	 * @return another instance than the given one, null if the load balancer
+	 *         keeps choosing it
+	 */
+	private ServiceInstance chooseOther(String serviceId, ServiceInstance instance) {
+		for (int i = 0; i < 3; i++) {
+			final ServiceInstance other = loadBalancer.choose(serviceId);
+			if (other != null
+					&& !(other.getHost().equals(instance.getHost()) && other.getPort() == instance.getPort())) {
+				return other;
+			}
+		}
+		return null;
+	}
+
+	private boolean withdraw() {
+		while (true) {
+			final long current = budget.get();
+			if (current < BUDGET_UNIT) {
+				return false;
+			}
+			if (budget.compareAndSet(current, current - BUDGET_UNIT)) {
+				return true;
+			}
+		}
+	}
+
+	private synchronized void record(long durationNanos) {
+		durations[samples++ % WINDOW_SIZE] = durationNanos;
+		if (samples >= MIN_SAMPLES && samples % UPDATE_PERIOD == 0) {
+			final long[] sorted = Arrays.copyOf(durations, Math.min(samples, WINDOW_SIZE));
+			Arrays.sort(sorted);
+			final int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+			delay = Math.max(minDelay, Math.min(maxDelay, sorted[Math.max(0, index)]));
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * The calls sent for one hedged call, the first response completing the
+	 * winner and aborting the others.
+	 */
+	private final class Race<T> {
+
+		private final CompletableFuture<T> winner = new CompletableFuture<>();
+
+		private final List<AbortHandle> handles = new CopyOnWriteArrayList<>();
+
+		private final AtomicInteger running = new AtomicInteger();
+
+		private final URI uri;
+
+		private final Function<URI, T> call;
+
+		private final Deadline deadline = Deadline.current();
+
+		Race(URI uri, Function<URI, T> call) {
+			this.uri = uri;
+			this.call = call;
+		}
+
+		void start(ServiceInstance instance, boolean hedge) {
+			final AbortHandle handle = new AbortHandle();
+			handles.add(handle);
+			running.incrementAndGet();
+			executor.execute(() -> {
+				handle.bind();
+				if (deadline != null) {
+					Deadline.set(deadline);
+				}
+				final long start = System.nanoTime();
+				try {
+					final T value = call.apply(loadBalancer.reconstructURI(instance, uri));
+					record(System.nanoTime() - start);
+					if (winner.complete(value)) {
+						if (hedge) {
+							meterRegistry.counter("users.client.hedge", "result", "won").increment();
+						}
+						handles.stream().filter(h -> h != handle).forEach(AbortHandle::abort);
+					}
+				} catch (RuntimeException e) {
+					if (running.decrementAndGet() == 0) {
+						winner.completeExceptionally(e);
+					}
+				} finally {
+					AbortHandle.unbind();
+					Deadline.clear();
+				}
+			});
+		}
+
+		void abort() {
+			handles.forEach(AbortHandle::abort);
+		}
+	}
+}
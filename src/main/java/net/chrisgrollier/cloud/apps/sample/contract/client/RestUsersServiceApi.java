@@ -0,0 +1,100 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.google.common.collect.ImmutableMap;
+
+import net.chrisgrollier.cloud.apps.sample.contract.controller.deadline.DeadlineClientHttpRequestInterceptor;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * The users service, reached over REST: {@code GET /{id}} and
+ * {@code GET /role/{id}} answering 404 for unknown users, and
+ * {@code POST /bulk} taking a list of identifiers and answering the known
+ * users by identifier. Lookups are hedged when a {@link RequestHedger} is
+ * enabled, being then sent straight to the instances it chooses.
+ */
+@Component
+@Profile("!users-stub")
+public class RestUsersServiceApi implements UsersServiceApi {
+
+	private static final ParameterizedTypeReference<Map<Integer, UserInfo>> USERS_BY_ID = new ParameterizedTypeReference<Map<Integer, UserInfo>>() {
+	};
+
+	private final RestTemplate restTemplate;
+
+	private final String usersServiceUrl;
+
+	private final RequestHedger hedger;
+
+	/** Template for calls to a given instance, not load balanced */
+	private final RestTemplate instanceRestTemplate;
+
+	public RestUsersServiceApi(final RestTemplate restTemplate, final RestTemplateBuilder restTemplateBuilder,
+			final ClientHttpRequestFactory usersServiceRequestFactory,
+			final ObjectProvider<RequestHedger> hedger, @Value("${usersservice.url}") final String usersServiceUrl) {
+		this.restTemplate = restTemplate;
+		this.usersServiceUrl = usersServiceUrl;
+		this.hedger = hedger.getIfAvailable();
+		this.instanceRestTemplate = this.hedger == null ? null
+				: restTemplateBuilder.requestFactory(() -> usersServiceRequestFactory)
+						.additionalInterceptors(new DeadlineClientHttpRequestInterceptor()).build();
+	}
+
+	@Override
+	public Optional<UserInfo> findUser(Integer userId, String authorization) {
+		return this.find("/" + userId, authorization, UserInfo.class);
+	}
+
+	@Override
+	public Optional<String> findRole(Integer userId, String authorization) {
+		return this.find("/role/" + userId, authorization, String.class);
+	}
+
+	@Override
+	public Map<Integer, UserInfo> findUsers(Collection<Integer> userIds, String authorization) {
+		final Map<Integer, UserInfo> users = restTemplate.exchange(usersServiceUrl + "/bulk", HttpMethod.POST,
+				new HttpEntity<>(userIds, headers(authorization)), USERS_BY_ID).getBody();
+		return users == null ? ImmutableMap.of() : users;
+	}
+
+	private <T> Optional<T> find(String path, String authorization, Class<T> type) {
+		final HttpEntity<?> request = new HttpEntity<>(headers(authorization));
+		if (hedger == null) {
+			return find(restTemplate, URI.create(usersServiceUrl + path), request, type);
+		}
+		return hedger.call(URI.create(usersServiceUrl + path), uri -> find(instanceRestTemplate, uri, request, type));
+	}
+
+	private static <T> Optional<T> find(RestTemplate restTemplate, URI uri, HttpEntity<?> request, Class<T> type) {
+		try {
+			return Optional.ofNullable(restTemplate.exchange(uri, HttpMethod.GET, request, type).getBody());
+		} catch (HttpClientErrorException.NotFound e) {
+			return Optional.empty();
+		}
+	}
+
+	private static HttpHeaders headers(String authorization) {
+		final HttpHeaders headers = new HttpHeaders();
+		if (authorization != null) {
+			headers.set(HttpHeaders.AUTHORIZATION, authorization);
+		}
+		return headers;
+	}
+}
@@ -0,0 +1,66 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Local stand-in for the users service, enabled with the {@code users-stub}
+ * profile, for tests and local runs. Users 1 to
+ * {@code usersservice.stub.users} exist, odd ones having the USER role and
+ * even ones the ADMIN role.
+ */
+@Component
+@Profile("users-stub")
+public class StubUsersServiceApi implements UsersServiceApi {
+
+	private final int users;
+
+	public StubUsersServiceApi(@Value("${usersservice.stub.users:1000}") final int users) {
+		this.users = users;
+	}
+
+	@Override
+	public Optional<UserInfo> findUser(Integer userId, String authorization) {
+		if (!this.exists(userId)) {
+			return Optional.empty();
+		}
+		final UserInfo user = new UserInfo();
+		user.setFirstName("First" + userId);
+		user.setLastName("Last" + userId);
+		user.setRole(roleOf(userId));
+		user.setEmail("user" + userId + "@example.com");
+		user.setAddress(userId + " Stub Street");
+		user.setUsername("user" + userId);
+		return Optional.of(user);
+	}
+
+	@Override
+	public Optional<String> findRole(Integer userId, String authorization) {
+		return this.exists(userId) ? Optional.of(roleOf(userId)) : Optional.empty();
+	}
+
+	@Override
+	public Map<Integer, UserInfo> findUsers(Collection<Integer> userIds, String authorization) {
+		final Map<Integer, UserInfo> result = new LinkedHashMap<>();
+		for (Integer userId : userIds) {
+			this.findUser(userId, authorization).ifPresent(user -> result.put(userId, user));
+		}
+		return result;
+	}
+
+	private boolean exists(Integer userId) {
+		return userId != null && userId > 0 && userId <= users;
+	}
+
+	private static String roleOf(Integer userId) {
+		return userId % 2 == 0 ? "ADMIN" : "USER";
+	}
+}
@@ -0,0 +1,187 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Micro-batching of user lookups: users requested within a short window are
+ * fetched together through the users service bulk operation, in chunks of a
+ * maximum size, a chunk being sent as soon as it is full. A user already
+ * queued or being fetched is not requested again, its lookups sharing the
+ * pending result.
+ * 
+ * Lookups are batched per authorization header, so that each batch is sent
+ * with the credentials of all the lookups it holds, and results are only
+ * shared between lookups made with the same credentials.
+ */
+public class UserBatcher {
+
+	private final UsersServiceApi api;
+
+	private final long window;
+
+	private final int maxBatchSize;
+
+	private final ScheduledExecutorService executor;
+
+	/** batches in progress, by authorization header, empty if none */
+	private final ConcurrentMap<Optional<String>, Batches> batches = new ConcurrentHashMap<>();
+
+	/**
+	 * @param api          the users service
+	 * @param window       how long to wait for more lookups before sending a
+	 *                     batch, in milliseconds
+	 * @param maxBatchSize the maximum number of users fetched at once
+	 * @param threads      the number of batches sent at once
+	 */
+	public UserBatcher(UsersServiceApi api, long window, int maxBatchSize, int threads) {
+		this.api = api;
+		this.window = window;
+		this.maxBatchSize = maxBatchSize;
+		this.executor = new ScheduledThreadPoolExecutor(threads,
+				new ThreadFactoryBuilder().setNameFormat("users-batch-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * Request users.
+	 * 
+	 * @param userIds       the user identifiers
+	 * @param authorization the authorization header
+	 * @return the pending results, empty for unknown users, by identifier
+	 */
+	public Map<Integer, CompletableFuture<Optional<UserInfo>>> submit(Collection<Integer> userIds,
+			String authorization) {
+		final Optional<String> key = Optional.ofNullable(authorization);
+		while (true) {
+			final Map<Integer, CompletableFuture<Optional<UserInfo>>> result = batches
+					.computeIfAbsent(key, k -> new Batches(k)).submit(userIds);
+			if (result != null) {
+				return result;
+			}
+			// retired meanwhile, the next one is created
+		}
+	}
+
+	/**
+	 * Stop sending batches.
+	 */
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * The batches of an authorization header, retired once they have no
+	 * pending lookup left.
+	 */
+	private final class Batches {
+
+		private final Optional<String> authorization;
+
+		/** queued and in flight lookups */
+		private final Map<Integer, CompletableFuture<Optional<UserInfo>>> pending = new HashMap<>();
+
+		private List<Integer> queued = new ArrayList<>();
+
+		private boolean flushScheduled;
+
+		private boolean retired;
+
+		Batches(Optional<String> authorization) {
+			this.authorization = authorization;
+		}
+
+		/**
+		 * @return the pending results, null if retired
+		 */
+		Map<Integer, CompletableFuture<Optional<UserInfo>>> submit(Collection<Integer> userIds) {
+			final Map<Integer, CompletableFuture<Optional<UserInfo>>> result = new LinkedHashMap<>();
+			final List<List<Integer>> full = new ArrayList<>();
+			synchronized (this) {
+				if (retired) {
+					return null;
+				}
+				for (Integer userId : userIds) {
+					final CompletableFuture<Optional<UserInfo>> existing = pending.get(userId);
+					if (existing != null) {
+						result.put(userId, existing);
+						continue;
+					}
+					final CompletableFuture<Optional<UserInfo>> created = new CompletableFuture<>();
+					pending.put(userId, created);
+					result.put(userId, created);
+					queued.add(userId);
+					if (queued.size() >= maxBatchSize) {
+						full.add(queued);
+						queued = new ArrayList<>();
+					}
+				}
+				if (!queued.isEmpty() && !flushScheduled) {
+					flushScheduled = true;
+					executor.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+				}
+			}
+			for (List<Integer> batch : full) {
+				executor.execute(() -> this.load(batch));
+			}
+			return result;
+		}
+
+		private void flush() {
+			final List<Integer> batch;
+			synchronized (this) {
+				batch = queued;
+				queued = new ArrayList<>();
+				flushScheduled = false;
+			}
+			if (!batch.isEmpty()) {
+				this.load(batch);
+			}
+		}
+
+		private void load(List<Integer> batch) {
+			Map<Integer, UserInfo> users = null;
+			RuntimeException failure = null;
+			try {
+				users = api.findUsers(batch, authorization.orElse(null));
+			} catch (RuntimeException e) {
+				failure = e;
+			}
+			final List<CompletableFuture<Optional<UserInfo>>> futures = new ArrayList<>(batch.size());
+			synchronized (this) {
+				for (Integer userId : batch) {
+					futures.add(pending.remove(userId));
+				}
+				if (pending.isEmpty()) {
+					retired = true;
+					batches.remove(authorization, this);
+				}
+			}
+			for (int i = 0; i < batch.size(); i++) {
+				final CompletableFuture<Optional<UserInfo>> future = futures.get(i);
+				if (future == null) {
+					continue;
+				}
+				if (failure != null) {
+					future.completeExceptionally(failure);
+				} else {
+					future.complete(Optional.ofNullable(users.get(batch.get(i))));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+import net.chrisgrollier.cloud.apps.common.exception.http.GatewayTimeoutException;
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Client of the users service. User data and roles are cached for
+ * {@code usersservice.cache.ttl} seconds, entries older than
+ * {@code usersservice.cache.refresh-after} seconds being reloaded in the
+ * background while still served. Unknown users, the service answering 404,
+ * are cached too, for {@code usersservice.cache.negative-ttl} seconds.
+ * Concurrent lookups of the same entry share a single remote call, and users
+ * looked up many at once are fetched in micro-batches (see
+ * {@link UserBatcher}), configured by {@code usersservice.batch.*}.
+ * 
+ * Calls are made through the {@link UsersServiceGuard}, failing fast with a
+ * {@link UsersServiceUnavailableException} while the service is unavailable.
+ * 
+ * The users service authorizes each call with the credentials of the caller,
+ * so entries are cached by user and by caller {@code Authorization} header:
+ * a caller is only served what the service gave for its own credentials, and
+ * background reloads use those of the caller hitting the stale entry. Keys hold
+ * a SHA-256 digest of the header, not the credentials themselves. Lookups are counted by cache and result as
+ * {@code users.client.cache}.
+ */
+@Component
+public class UserServiceClient implements DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(UserServiceClient.class);
+
+	private final UsersServiceApi api;
+
+	private final UserBatcher batcher;
+
+	private final long batchTimeout;
+
+	private final long refreshAfter;
+
+	private final long negativeTtl;
+
+	private final Cache<Key, Entry<UserInfo>> users;
+
+	private final Cache<Key, Entry<String>> roles;
+
+	private final Cache<Key, String> lastKnownRoles;
+
+	private final ExecutorService refresher;
+
+	private final MeterRegistry meterRegistry;
+
+	public UserServiceClient(final UsersServiceApi api, final UsersServiceGuard guard,
+			final MeterRegistry meterRegistry, @Value("${usersservice.cache.ttl:300}") final long ttl,
+			@Value("${usersservice.cache.refresh-after:240}") final long refreshAfter,
+			@Value("${usersservice.cache.negative-ttl:30}") final long negativeTtl,
+			@Value("${usersservice.cache.max-size:10000}") final long maxSize,
+			@Value("${usersservice.cache.role-fallback-ttl:3600}") final long roleFallbackTtl,
+			@Value("${usersservice.batch.window:5}") final long batchWindow,
+			@Value("${usersservice.batch.max-size:100}") final int batchMaxSize,
+			@Value("${usersservice.batch.threads:4}") final int batchThreads,
+			@Value("${usersservice.batch.timeout:10000}") final long batchTimeout) {
+		this.api = guard.protect(api);
+		this.meterRegistry = meterRegistry;
+		this.batcher = new UserBatcher(this.api, batchWindow, batchMaxSize, batchThreads);
+		this.batchTimeout = batchTimeout;
+		this.refreshAfter = TimeUnit.SECONDS.toNanos(refreshAfter);
+		this.negativeTtl = TimeUnit.SECONDS.toNanos(negativeTtl);
+		this.users = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+		this.roles = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+		this.lastKnownRoles = CacheBuilder.newBuilder().maximumSize(maxSize)
+				.expireAfterWrite(roleFallbackTtl, TimeUnit.SECONDS).build();
+		this.refresher = Executors.newFixedThreadPool(2,
+				new ThreadFactoryBuilder().setNameFormat("users-client-refresh-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * Find a user.
+	 * 
+	 * @param userId        the user identifier
+	 * @param authorization the authorization header to call the service with
+	 * @return the user, empty if the service does not know it
+	 */
+	public Optional<UserInfo> findUser(Integer userId, String authorization) {
+		return this.lookup("users", users, new Key(userId, authorization),
+				() -> api.findUser(userId, authorization));
+	}
+
+	/**
+	 * Find the role of a user. While the users service is unavailable, the last
+	 * role it gave for the user to the same caller, up to
+	 * {@code usersservice.cache.role-fallback-ttl} seconds ago, is used instead.
+	 * 
+	 * @param userId        the user identifier
+	 * @param authorization the authorization header to call the service with
+	 * @return the user role, empty if the service does not know the user
+	 * @throws UsersServiceUnavailableException if the service is unavailable and
+	 *                                          no role is known for the user
+	 */
+	public Optional<String> findRole(Integer userId, String authorization) {
+		final Key key = new Key(userId, authorization);
+		try {
+			return this.lookup("roles", roles, key, () -> {
+				final Optional<String> role = api.findRole(userId, authorization);
+				role.ifPresent(r -> lastKnownRoles.put(key, r));
+				return role;
+			});
+		} catch (UsersServiceUnavailableException e) {
+			final String role = lastKnownRoles.getIfPresent(key);
+			if (role == null) {
+				throw e;
+			}
+			meterRegistry.counter("users.client.cache", "cache", "roles", "result", "fallback").increment();
+			LogUtil.debug(LOGGER, "Users service unavailable, using last known role of user {}", userId);
+			return Optional.of(role);
+		}
+	}
+
+	/**
+	 * Find many users at once, those not cached being fetched in batches.
+	 * 
+	 * @param userIds       the user identifiers
+	 * @param authorization the authorization header to call the service with
+	 * @return the known users, by identifier
+	 */
+	public Map<Integer, UserInfo> findUsers(Collection<Integer> userIds, String authorization) {
+		final long now = System.nanoTime();
+		final Map<Integer, UserInfo> result = new HashMap<>();
+		final Set<Integer> misses = new LinkedHashSet<>();
+		for (Integer userId : userIds) {
+			final Entry<UserInfo> entry = this.freshEntry(users, new Key(userId, authorization), now);
+			if (entry == null) {
+				misses.add(userId);
+			} else {
+				entry.value.ifPresent(user -> result.put(userId, user));
+			}
+		}
+		meterRegistry.counter("users.client.cache", "cache", "users", "result", "hit")
+				.increment(userIds.size() - misses.size());
+		meterRegistry.counter("users.client.cache", "cache", "users", "result", "miss").increment(misses.size());
+		if (misses.isEmpty()) {
+			return result;
+		}
+		final Deadline deadline = Deadline.current();
+		final long timeout = deadline == null ? batchTimeout : deadline.check();
+		final long waitUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		for (Map.Entry<Integer, CompletableFuture<Optional<UserInfo>>> pending : batcher.submit(misses, authorization)
+				.entrySet()) {
+			final Optional<UserInfo> user = await(pending.getValue(), waitUntil);
+			users.put(new Key(pending.getKey(), authorization), new Entry<>(user));
+			user.ifPresent(u -> result.put(pending.getKey(), u));
+		}
+		return result;
+	}
+
+	/**
+	 * Forget all cached entries.
+	 */
+	public void invalidateAll() {
+		users.invalidateAll();
+		roles.invalidateAll();
+	}
+
+	private <T> Optional<T> lookup(String name, Cache<Key, Entry<T>> cache, Key key,
+			Supplier<Optional<T>> loader) {
+		final long now = System.nanoTime();
+		Entry<T> entry = this.freshEntry(cache, key, now);
+		if (entry == null) {
+			meterRegistry.counter("users.client.cache", "cache", name, "result", "miss").increment();
+			try {
+				// concurrent loads of the same key wait for the first one
+				entry = cache.get(key, () -> new Entry<>(loader.get()));
+			} catch (ExecutionException | UncheckedExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		} else {
+			meterRegistry.counter("users.client.cache", "cache", name, "result", "hit").increment();
+			if (entry.value.isPresent() && now - entry.loadedAt > refreshAfter
+					&& entry.refreshing.compareAndSet(false, true)) {
+				this.refresh(name, cache, key, entry, loader);
+			}
+		}
+		return entry.value;
+	}
+
+	/**
+	 * @return the cached entry, null if none or if it is a negative one older
+	 *         than the negative TTL
+	 */
+	private <T> Entry<T> freshEntry(Cache<Key, Entry<T>> cache, Key key, long now) {
+		final Entry<T> entry = cache.getIfPresent(key);
+		if (entry != null && !entry.value.isPresent() && now - entry.loadedAt > negativeTtl) {
+			cache.asMap().remove(key, entry);
+			return null;
+		}
+		return entry;
+	}
+
+	private static <T> T await(CompletableFuture<T> future, long waitUntil) {
+		try {
+			return future.get(Math.max(0, waitUntil - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			throw new GatewayTimeoutException("Timed out fetching users");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GatewayTimeoutException("Interrupted while fetching users");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private <T> void refresh(String name, Cache<Key, Entry<T>> cache, Key key, Entry<T> entry,
+			Supplier<Optional<T>> loader) {
+		meterRegistry.counter("users.client.cache", "cache", name, "result", "refresh").increment();
+		refresher.execute(() -> {
+			try {
+				cache.asMap().replace(key, entry, new Entry<>(loader.get()));
+			} catch (RuntimeException e) {
+				// the current entry is kept until it expires, next hit retries
+				entry.refreshing.set(false);
+				LogUtil.debug(LOGGER, "Unable to refresh {} of user {}: {}", name, key.userId, e.getMessage());
+			}
+		});
+	}
+
+	@Override
+	public void destroy() {
+		refresher.shutdownNow();
+		batcher.shutdown();
+	}
+
+	/**
+	 * A user as seen by a caller.
+	 */
+	private static final class Key {
+
+		private final Integer userId;
+
+		/** digest of the caller authorization header, null if none */
+		private final HashCode authorization;
+
+		Key(Integer userId, String authorization) {
+			this.userId = userId;
+			this.authorization = authorization == null ? null
+					: Hashing.sha256().hashString(authorization, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(userId, authorization);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return Objects.equals(userId, other.userId) && Objects.equals(authorization, other.authorization);
+		}
+	}
+
+	private static final class Entry<T> {
+
+		private final Optional<T> value;
+
+		private final long loadedAt = System.nanoTime();
+
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+
+		Entry(Optional<T> value) {
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * The users service operations the contracts service relies on, each call
+ * being sent with the given authorization header.
+ */
+public interface UsersServiceApi {
+
+	/**
+	 * @param userId        the user identifier
+	 * @param authorization the authorization header
+	 * @return the user, empty if unknown
+	 */
+	Optional<UserInfo> findUser(Integer userId, String authorization);
+
+	/**
+	 * @param userId        the user identifier
+	 * @param authorization the authorization header
+	 * @return the user role, empty if the user is unknown
+	 */
+	Optional<String> findRole(Integer userId, String authorization);
+
+	/**
+	 * @param userIds       the user identifiers
+	 * @param authorization the authorization header
+	 * @return the known users, by identifier
+	 */
+	Map<Integer, UserInfo> findUsers(Collection<Integer> userIds, String authorization);
+}
@@ -0,0 +1,153 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chrisgrollier.cloud.apps.common.concurrency.CircuitBreaker;
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+import net.chrisgrollier.cloud.apps.common.exception.http.GatewayTimeoutException;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Protects the contracts service from a failing or slow users service: a
+ * bulkhead caps the concurrent calls to {@code usersservice.bulkhead.max-calls}
+ * and a circuit breaker, configured by {@code usersservice.circuit-breaker.*},
+ * refuses calls while the service fails. Refused and failed calls end with a
+ * {@link UsersServiceUnavailableException}, client errors being passed through
+ * as they are.
+ * 
+ * Calls failing once the request deadline expired, such as those cut short by
+ * the caller budget with a {@link GatewayTimeoutException}, may have failed
+ * because of it rather than because of the service: they are not held against
+ * the service, unless they already lasted {@code slow-call-duration}, being
+ * then recorded as slow. Calls succeeding past the deadline still count as
+ * successes.
+ * 
+ * The circuit state is exported as {@code users.client.circuit.state}, 0 for
+ * closed, 1 for open and 2 for half open, refused calls are counted by reason
+ * as {@code users.client.rejected}, and calls not recorded because cut short
+ * as {@code users.client.ignored}.
+ */
+@Component
+public class UsersServiceGuard {
+
+	private final CircuitBreaker circuitBreaker;
+
+	private final Semaphore bulkhead;
+
+	private final MeterRegistry meterRegistry;
+
+	private final long slowCallDuration;
+
+	public UsersServiceGuard(final MeterRegistry meterRegistry,
+			@Value("${usersservice.bulkhead.max-calls:25}") final int maxCalls,
+			@Value("${usersservice.circuit-breaker.failure-rate:50}") final int failureRate,
+			@Value("${usersservice.circuit-breaker.slow-call-rate:80}") final int slowCallRate,
+			@Value("${usersservice.circuit-breaker.slow-call-duration:2000}") final long slowCallDuration,
+			@Value("${usersservice.circuit-breaker.window-size:50}") final int windowSize,
+			@Value("${usersservice.circuit-breaker.minimum-calls:20}") final int minimumCalls,
+			@Value("${usersservice.circuit-breaker.open-duration:10000}") final long openDuration,
+			@Value("${usersservice.circuit-breaker.probe-calls:3}") final int probeCalls) {
+		this.meterRegistry = meterRegistry;
+		this.bulkhead = new Semaphore(maxCalls);
+		this.slowCallDuration = TimeUnit.MILLISECONDS.toNanos(slowCallDuration);
+		this.circuitBreaker = new CircuitBreaker("users", failureRate, slowCallRate, slowCallDuration, windowSize,
+				minimumCalls, openDuration, probeCalls);
+		meterRegistry.gauge("users.client.circuit.state", circuitBreaker, c -> c.getState().ordinal());
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	/**
+	 * Make a users service call.
+	 * 
+	 * @param call the call
+	 * @return the call result
+	 * @throws UsersServiceUnavailableException if the call is refused or fails
+	 */
+	public <T> T call(Supplier<T> call) {
+		// not the users service fault if the request is already late
+		final Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			deadline.check();
+		}
+		if (!bulkhead.tryAcquire()) {
+			meterRegistry.counter("users.client.rejected", "reason", "bulkhead").increment();
+			throw new UsersServiceUnavailableException("Too many users service calls in progress");
+		}
+		try {
+			final CircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+			if (permission == null) {
+				meterRegistry.counter("users.client.rejected", "reason", "circuit").increment();
+				throw new UsersServiceUnavailableException("Users service circuit is open");
+			}
+			final long start = System.nanoTime();
+			boolean failed = false;
+			try {
+				return call.get();
+			} catch (HttpClientErrorException e) {
+				throw e;
+			} catch (GatewayTimeoutException e) {
+				failed = true;
+				if (deadline != null && deadline.isExpired()) {
+					throw e;
+				}
+				throw new UsersServiceUnavailableException("Users service call failed: " + e.getMessage(), e);
+			} catch (RuntimeException e) {
+				failed = true;
+				throw new UsersServiceUnavailableException("Users service call failed: " + e.getMessage(), e);
+			} finally {
+				this.record(permission, System.nanoTime() - start, failed, deadline);
+			}
+		} finally {
+			bulkhead.release();
+		}
+	}
+
+	private void record(CircuitBreaker.Permission permission, long duration, boolean failed, Deadline deadline) {
+		if (!failed || deadline == null || !deadline.isExpired()) {
+			circuitBreaker.onResult(permission, duration, failed);
+		} else if (duration >= slowCallDuration) {
+			// slow whatever the caller budget
+			circuitBreaker.onResult(permission, duration, false);
+		} else {
+			meterRegistry.counter("users.client.ignored", "reason", "deadline").increment();
+			circuitBreaker.onIgnored(permission);
+		}
+	}
+
+	/**
+	 * @param api the users service
+	 * @return the users service, all calls being made through this guard
+	 */
+	public UsersServiceApi protect(UsersServiceApi api) {
+		return new UsersServiceApi() {
+
+			@Override
+			public Optional<UserInfo> findUser(Integer userId, String authorization) {
+				return call(() -> api.findUser(userId, authorization));
+			}
+
+			@Override
+			public Optional<String> findRole(Integer userId, String authorization) {
+				return call(() -> api.findRole(userId, authorization));
+			}
+
+			@Override
+			public Map<Integer, UserInfo> findUsers(Collection<Integer> userIds, String authorization) {
+				return call(() -> api.findUsers(userIds, authorization));
+			}
+		};
+	}
+}
@@ -0,0 +1,34 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import net.chrisgrollier.cloud.apps.common.exception.http.ServiceUnavailableException;
+
+/**
+ * The users service could not be called, because its circuit is open or too
+ * many calls are in progress, or failed. Callers able to do without user data
+ * degrade their response rather than fail.
+ */
+public class UsersServiceUnavailableException extends ServiceUnavailableException {
+
+    private static final long serialVersionUID = 4218530271366745213L;
+
+    /**
+     * Create a new UsersServiceUnavailableException for the given error message.
+     * 
+     * @param message a detail error message
+     */
+    public UsersServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    /**
+     * Create a new UsersServiceUnavailableException for the given error message
+     * and cause.
+     * 
+     * @param message a detail error message
+     * @param cause   the failure of the call
+     */
+    public UsersServiceUnavailableException(String message, Throwable cause) {
+        super(message);
+        this.initCause(cause);
+    }
+}
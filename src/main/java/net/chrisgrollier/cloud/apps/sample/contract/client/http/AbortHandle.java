@@ -0,0 +1,61 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.http;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Allows to abort, from another thread, the HTTP request sent by the thread
+ * the handle is bound to: the request is registered by the request factory
+ * when created, and aborting it closes its connection, the call failing at
+ * once. A request created after the handle was aborted is aborted right away.
+ */
+public final class AbortHandle {
+
+	private static final ThreadLocal<AbortHandle> CURRENT = new ThreadLocal<>();
+
+	private HttpUriRequest request;
+
+	private boolean aborted;
+
+	/**
+	 * Bind the handle to the current thread, until {@link #unbind()}.
+	 */
+	public void bind() {
+		CURRENT.set(this);
+	}
+
+	/**
+	 * Unbind the handle of the current thread, once its call is made.
+	 */
+	public static void unbind() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Register a request created by the current thread, if it has an open handle.
+	 * 
+	 * @param request the request
+	 */
+	public static void register(HttpUriRequest request) {
+		final AbortHandle handle = CURRENT.get();
+		if (handle != null) {
+			handle.attach(request);
+		}
+	}
+
+	private synchronized void attach(HttpUriRequest request) {
+		this.request = request;
+		if (aborted) {
+			request.abort();
+		}
+	}
+
+	/**
+	 * Abort the request, or the next one if none was created yet.
+	 */
+	public synchronized void abort() {
+		aborted = true;
+		if (request != null) {
+			request.abort();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.http;
+
+import java.io.IOException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.DefaultHttpResponseParserFactory;
+import org.apache.http.impl.conn.DefaultManagedHttpClientConnection;
+import org.apache.http.impl.entity.LaxContentLengthStrategy;
+import org.apache.http.impl.entity.StrictContentLengthStrategy;
+import org.apache.http.impl.io.DefaultHttpRequestWriterFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Creates connections the same way as the default connection factory, counting
+ * the connections opened and closed in {@code http.client.connections}, tagged
+ * with the {@code event}: a high rate tells connections are not reused.
+ */
+public class MeteredConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final Counter opened;
+
+	private final Counter closed;
+
+	public MeteredConnectionFactory(MeterRegistry meterRegistry) {
+		this.opened = meterRegistry.counter("http.client.connections", "event", "opened");
+		this.closed = meterRegistry.counter("http.client.connections", "event", "closed");
+	}
+
+	@Override
+	public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+		final ConnectionConfig connectionConfig = config != null ? config : ConnectionConfig.DEFAULT;
+		CharsetDecoder decoder = null;
+		CharsetEncoder encoder = null;
+		if (connectionConfig.getCharset() != null) {
+			final CodingErrorAction malformedInputAction = connectionConfig.getMalformedInputAction() != null
+					? connectionConfig.getMalformedInputAction()
+					: CodingErrorAction.REPORT;
+			final CodingErrorAction unmappableInputAction = connectionConfig.getUnmappableInputAction() != null
+					? connectionConfig.getUnmappableInputAction()
+					: CodingErrorAction.REPORT;
+			decoder = connectionConfig.getCharset().newDecoder().onMalformedInput(malformedInputAction)
+					.onUnmappableCharacter(unmappableInputAction);
+			encoder = connectionConfig.getCharset().newEncoder().onMalformedInput(malformedInputAction)
+					.onUnmappableCharacter(unmappableInputAction);
+		}
+		opened.increment();
+		// @formatter:off
+		return new MeteredConnection(
+				"http-outgoing-" + sequence.getAndIncrement(),
+				connectionConfig.getBufferSize(),
+				connectionConfig.getFragmentSizeHint(),
+				decoder,
+				encoder,
+				connectionConfig);
+		// @formatter:on
+	}
+
+	private class MeteredConnection extends DefaultManagedHttpClientConnection {
+
+		private final AtomicBoolean open = new AtomicBoolean(true);
+
+		MeteredConnection(String id, int bufferSize, int fragmentSizeHint, CharsetDecoder decoder,
+				CharsetEncoder encoder, ConnectionConfig config) {
+			super(id, bufferSize, fragmentSizeHint, decoder, encoder, config.getMessageConstraints(),
+					LaxContentLengthStrategy.INSTANCE, StrictContentLengthStrategy.INSTANCE,
+					DefaultHttpRequestWriterFactory.INSTANCE, DefaultHttpResponseParserFactory.INSTANCE);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				this.countClosed();
+			}
+		}
+
+		@Override
+		public void shutdown() throws IOException {
+			try {
+				super.shutdown();
+			} finally {
+				this.countClosed();
+			}
+		}
+
+		private void countClosed() {
+			if (open.compareAndSet(true, false)) {
+				closed.increment();
+			}
+		}
+	}
+}
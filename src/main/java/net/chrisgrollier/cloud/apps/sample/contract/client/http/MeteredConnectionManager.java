@@ -0,0 +1,83 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.http;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Pooling connection manager exporting its usage: gauges
+ * {@code http.client.pool.leased}, {@code http.client.pool.available},
+ * {@code http.client.pool.pending} and {@code http.client.pool.max}, and the
+ * time spent waiting for a connection in {@code http.client.pool.wait}, tagged
+ * with the {@code result}, acquired or timeout. Connections churn is counted by
+ * the {@link MeteredConnectionFactory}.
+ */
+public class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+
+	private final Timer acquired;
+
+	private final Timer timedOut;
+
+	/**
+	 * @param meterRegistry the registry to export metrics to
+	 * @param timeToLive    the maximum lifetime of a connection, in
+	 *                      milliseconds, not bounded if not positive
+	 */
+	public MeteredConnectionManager(MeterRegistry meterRegistry, long timeToLive) {
+		// @formatter:off
+		super(RegistryBuilder.<ConnectionSocketFactory>create()
+						.register("http", PlainConnectionSocketFactory.getSocketFactory())
+						.register("https", SSLConnectionSocketFactory.getSocketFactory())
+						.build(),
+				new MeteredConnectionFactory(meterRegistry),
+				null,
+				null,
+				timeToLive,
+				TimeUnit.MILLISECONDS);
+		// @formatter:on
+		this.acquired = meterRegistry.timer("http.client.pool.wait", "result", "acquired");
+		this.timedOut = meterRegistry.timer("http.client.pool.wait", "result", "timeout");
+		meterRegistry.gauge("http.client.pool.leased", this, m -> m.getTotalStats().getLeased());
+		meterRegistry.gauge("http.client.pool.available", this, m -> m.getTotalStats().getAvailable());
+		meterRegistry.gauge("http.client.pool.pending", this, m -> m.getTotalStats().getPending());
+		meterRegistry.gauge("http.client.pool.max", this, m -> m.getTotalStats().getMax());
+	}
+
+	@Override
+	public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+		final ConnectionRequest request = super.requestConnection(route, state);
+		return new ConnectionRequest() {
+
+			@Override
+			public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+					throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+				final long start = System.nanoTime();
+				try {
+					final HttpClientConnection connection = request.get(timeout, timeUnit);
+					acquired.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+					return connection;
+				} catch (ConnectionPoolTimeoutException e) {
+					timedOut.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+					throw e;
+				}
+			}
+
+			@Override
+			public boolean cancel() {
+				return request.cancel();
+			}
+		};
+	}
+}
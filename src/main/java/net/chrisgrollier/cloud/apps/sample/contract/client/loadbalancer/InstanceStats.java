@@ -0,0 +1,181 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Latency and load of the service instances called, by {@code host:port}: the
+ * number of calls in flight and an exponentially weighted moving average of the
+ * calls latency, decaying with a time constant of
+ * {@code usersservice.load-balancer.decay} milliseconds. Failed calls count as
+ * taking at least {@code usersservice.load-balancer.failure-penalty}
+ * milliseconds, so that an instance failing fast does not look fast. Instances
+ * not called for ten minutes are forgotten.
+ */
+@Component
+public class InstanceStats {
+
+	private final long decay;
+
+	private final long failurePenalty;
+
+	private final Cache<String, Stats> instances = CacheBuilder.newBuilder()
+			.expireAfterAccess(10, TimeUnit.MINUTES).build();
+
+	public InstanceStats(@Value("${usersservice.load-balancer.decay:10000}") final long decay,
+			@Value("${usersservice.load-balancer.failure-penalty:1000}") final long failurePenalty) {
+		this.decay = TimeUnit.MILLISECONDS.toNanos(decay);
+		this.failurePenalty = TimeUnit.MILLISECONDS.toNanos(failurePenalty);
+	}
+
+	/**
+	 * @param uri a call URI
+	 * @return the instance key of the call, {@code host:port}
+	 */
+	public static String key(URI uri) {
+		final int port = uri.getPort() != -1 ? uri.getPort() : "https".equals(uri.getScheme()) ? 443 : 80;
+		return uri.getHost() + ':' + port;
+	}
+
+	/**
+	 * @param instance an instance key
+	 * @return the instance statistics, created if unknown
+	 */
+	public Stats get(String instance) {
+		try {
+			return instances.get(instance, Stats::new);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return a snapshot of the statistics of all known instances, by key
+	 */
+	public Map<String, Snapshot> snapshot() {
+		final Map<String, Snapshot> snapshot = new TreeMap<>();
+		instances.asMap().forEach((instance, stats) -> snapshot.put(instance, stats.snapshot()));
+		return snapshot;
+	}
+
+	/**
+	 * Statistics of one instance.
+	 */
+	public final class Stats {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicLong calls = new AtomicLong();
+
+		private final AtomicLong failures = new AtomicLong();
+
+		/** NaN until the first call ends */
+		private double latency = Double.NaN;
+
+		private long updatedAt = System.nanoTime();
+
+		/**
+		 * Start a call, to be ended with {@link #end(long, boolean)}.
+		 */
+		public void start() {
+			inFlight.incrementAndGet();
+		}
+
+		/**
+		 * End a call.
+		 * 
+		 * @param durationNanos the call duration, in nanoseconds
+		 * @param failed        whether the call failed
+		 */
+		public void end(long durationNanos, boolean failed) {
+			inFlight.decrementAndGet();
+			calls.incrementAndGet();
+			if (failed) {
+				failures.incrementAndGet();
+			}
+			this.update(failed ? Math.max(durationNanos, failurePenalty) : durationNanos);
+		}
+
+		private synchronized void update(long durationNanos) {
+			final long now = System.nanoTime();
+			if (Double.isNaN(latency)) {
+				latency = durationNanos;
+			} else {
+				final double weight = Math.exp(-(double) (now - updatedAt) / decay);
+				latency = latency * weight + durationNanos * (1 - weight);
+			}
+			updatedAt = now;
+		}
+
+		public int getInFlight() {
+			return inFlight.get();
+		}
+
+		/**
+		 * @return the average latency, in nanoseconds, 0 if never called
+		 */
+		public synchronized double getLatency() {
+			return Double.isNaN(latency) ? 0 : latency;
+		}
+
+		/**
+		 * @return the expected cost of a new call: the average latency times the
+		 *         calls it would queue behind
+		 */
+		public double cost() {
+			return (this.getLatency() + 1) * (this.getInFlight() + 1);
+		}
+
+		Snapshot snapshot() {
+			return new Snapshot(this.getInFlight(), this.getLatency() / 1e6, calls.get(), failures.get());
+		}
+	}
+
+	/**
+	 * Statistics of an instance at a given time.
+	 */
+	public static final class Snapshot {
+
+		private final int inFlight;
+
+		private final double latencyMillis;
+
+		private final long calls;
+
+		private final long failures;
+
+		Snapshot(int inFlight, double latencyMillis, long calls, long failures) {
+			this.inFlight = inFlight;
+			this.latencyMillis = latencyMillis;
+			this.calls = calls;
+			this.failures = failures;
+		}
+
+		public int getInFlight() {
+			return inFlight;
+		}
+
+		public double getLatencyMillis() {
+			return latencyMillis;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+	}
+}
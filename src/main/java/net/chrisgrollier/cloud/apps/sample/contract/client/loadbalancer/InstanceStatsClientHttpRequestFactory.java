@@ -0,0 +1,79 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Request factory recording the latency and load of each instance called in
+ * the {@link InstanceStats}, a call lasting until its response headers are
+ * received. Requests are created by the given factory, disposed with this one.
+ */
+public class InstanceStatsClientHttpRequestFactory implements ClientHttpRequestFactory, DisposableBean {
+
+	private final ClientHttpRequestFactory requestFactory;
+
+	private final InstanceStats instanceStats;
+
+	public InstanceStatsClientHttpRequestFactory(ClientHttpRequestFactory requestFactory,
+			InstanceStats instanceStats) {
+		this.requestFactory = requestFactory;
+		this.instanceStats = instanceStats;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		final ClientHttpRequest request = requestFactory.createRequest(uri, httpMethod);
+		return new ClientHttpRequest() {
+
+			@Override
+			public ClientHttpResponse execute() throws IOException {
+				final InstanceStats.Stats stats = instanceStats.get(InstanceStats.key(request.getURI()));
+				stats.start();
+				final long start = System.nanoTime();
+				boolean failed = true;
+				try {
+					final ClientHttpResponse response = request.execute();
+					failed = response.getRawStatusCode() >= 500;
+					return response;
+				} finally {
+					stats.end(System.nanoTime() - start, failed);
+				}
+			}
+
+			@Override
+			public OutputStream getBody() throws IOException {
+				return request.getBody();
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return request.getHeaders();
+			}
+
+			@Override
+			public String getMethodValue() {
+				return request.getMethodValue();
+			}
+
+			@Override
+			public URI getURI() {
+				return request.getURI();
+			}
+		};
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (requestFactory instanceof DisposableBean) {
+			((DisposableBean) requestFactory).destroy();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint {@code loadbalancer} exposing the statistics of the
+ * instances called, by {@code host:port}.
+ */
+@Endpoint(id = "loadbalancer")
+public class InstanceStatsEndpoint {
+
+	private final InstanceStats instanceStats;
+
+	public InstanceStatsEndpoint(InstanceStats instanceStats) {
+		this.instanceStats = instanceStats;
+	}
+
+	@ReadOperation
+	public Map<String, InstanceStats.Snapshot> instances() {
+		return instanceStats.snapshot();
+	}
+}
@@ -0,0 +1,19 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer;
+
+import org.springframework.context.annotation.Bean;
+
+import com.netflix.loadbalancer.IRule;
+
+/**
+ * Ribbon clients configuration choosing instances with the
+ * {@link LatencyAwareRule}. It is not a {@code @Configuration}, so that it is
+ * only registered in the Ribbon clients contexts, each client having its own
+ * rule.
+ */
+public class LatencyAwareRibbonConfiguration {
+
+	@Bean
+	public IRule ribbonRule(InstanceStats instanceStats) {
+		return new LatencyAwareRule(instanceStats);
+	}
+}
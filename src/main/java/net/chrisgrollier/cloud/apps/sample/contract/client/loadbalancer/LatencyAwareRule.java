@@ -0,0 +1,52 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.Server;
+
+/**
+ * Ribbon rule choosing the better of two random reachable servers, the one
+ * whose next call is expected to cost less according to the
+ * {@link InstanceStats}. Degraded instances thus get less traffic while
+ * remaining probed, and a single slow choice never wins over all others.
+ */
+public class LatencyAwareRule extends AbstractLoadBalancerRule {
+
+	private final InstanceStats instanceStats;
+
+	public LatencyAwareRule(InstanceStats instanceStats) {
+		this.instanceStats = instanceStats;
+	}
+
+	@Override
+	public void initWithNiwsConfig(IClientConfig clientConfig) {
+		// nothing configurable per client
+	}
+
+	@Override
+	public Server choose(Object key) {
+		final List<Server> servers = this.getLoadBalancer().getReachableServers();
+		if (servers.isEmpty()) {
+			return null;
+		}
+		if (servers.size() == 1) {
+			return servers.get(0);
+		}
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final int first = random.nextInt(servers.size());
+		int second = random.nextInt(servers.size() - 1);
+		if (second >= first) {
+			second++;
+		}
+		final Server a = servers.get(first);
+		final Server b = servers.get(second);
+		return this.cost(a) <= this.cost(b) ? a : b;
+	}
+
+	private double cost(Server server) {
+		return instanceStats.get(server.getHostPort()).cost();
+	}
+}
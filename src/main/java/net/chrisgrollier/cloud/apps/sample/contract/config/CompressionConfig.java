@@ -0,0 +1,54 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.compression.AdaptiveCompressionLevel;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.compression.CompressedBodyCache;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.compression.ResponseCompressionFilter;
+
+/**
+ * Compression of the contract list responses, the largest ones the service
+ * sends.
+ */
+@Configuration
+@ConditionalOnProperty(name = "contract.compression.enabled", havingValue = "true", matchIfMissing = true)
+public class CompressionConfig {
+
+	private static final String CONTRACTS_PATH = "/api/v1/contracts";
+
+	private static final String CONTRACTS_BY_USER_PATH = "/api/v1/contracts/userId/*";
+
+	private static final String CONTRACT_INFOS_PATH = "/api/v1/contracts/info";
+
+	@Bean
+	public FilterRegistrationBean<ResponseCompressionFilter> responseCompressionFilter(MeterRegistry meterRegistry,
+			@Value("${contract.compression.min-size:1024}") int minSize,
+			@Value("${contract.compression.level.min:1}") int minLevel,
+			@Value("${contract.compression.level.max:6}") int maxLevel,
+			@Value("${contract.compression.level.low-load:0.5}") double lowLoad,
+			@Value("${contract.compression.level.high-load:0.85}") double highLoad,
+			@Value("${contract.compression.cache.max-weight:16777216}") long cacheMaxWeight,
+			@Value("${contract.compression.cache.ttl:600}") long cacheTtl) {
+		// @formatter:off
+		final ResponseCompressionFilter filter = new ResponseCompressionFilter(
+				ImmutableMap.of(CONTRACTS_PATH, "getContracts", CONTRACTS_BY_USER_PATH, "getContractsByUserId",
+						CONTRACT_INFOS_PATH, "getContractInfosByUserIds"),
+				minSize,
+				new AdaptiveCompressionLevel(minLevel, maxLevel, lowLoad, highLoad),
+				new CompressedBodyCache(cacheMaxWeight, cacheTtl),
+				meterRegistry);
+		// @formatter:on
+		final FilterRegistrationBean<ResponseCompressionFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.addUrlPatterns(CONTRACTS_PATH, CONTRACTS_BY_USER_PATH, CONTRACT_INFOS_PATH);
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+		return registration;
+	}
+}
@@ -0,0 +1,56 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.google.common.collect.ImmutableList;
+
+import net.chrisgrollier.cloud.apps.sample.contract.controller.deadline.DeadlineFilter;
+import net.chrisgrollier.cloud.apps.sample.contract.service.deadline.DeadlineJpaTransactionManager;
+
+/**
+ * Request deadlines: set as early as possible on each request, from the
+ * client budget or the endpoint default timeout given by
+ * {@code contract.deadline.<endpoint>}, and enforced by the users service
+ * calls and the database transactions.
+ */
+@Configuration
+@ConditionalOnProperty(name = "contract.deadline.enabled", havingValue = "true", matchIfMissing = true)
+public class DeadlineConfig {
+
+	private static final String CONTRACTS_PATH = "/api/v1/contracts";
+
+	@Bean
+	public FilterRegistrationBean<DeadlineFilter> deadlineFilter(
+			@Value("${contract.deadline.get-contracts:30000}") long getContractsTimeout,
+			@Value("${contract.deadline.default:5000}") long defaultTimeout,
+			@Value("${contract.deadline.max:60000}") long maxTimeout) {
+		final DeadlineFilter filter = new DeadlineFilter(
+				ImmutableList.of(new DeadlineFilter.Endpoint(HttpMethod.GET, CONTRACTS_PATH, getContractsTimeout)),
+				defaultTimeout, maxTimeout);
+		final FilterRegistrationBean<DeadlineFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.addUrlPatterns(CONTRACTS_PATH, CONTRACTS_PATH + "/*");
+		// after tracing, before security, so that the whole request is bounded
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+		return registration;
+	}
+
+	@Bean
+	public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+			ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+		final DeadlineJpaTransactionManager transactionManager = new DeadlineJpaTransactionManager(
+				entityManagerFactory);
+		transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+		return transactionManager;
+	}
+}
@@ -0,0 +1,60 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import net.chrisgrollier.cloud.apps.sample.contract.controller.execution.ExecutionClassDataSource;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.execution.ExecutionClassHandlerAdapter;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.execution.ExecutionClassPools;
+
+/**
+ * Execution classes: controller methods annotated with an execution class run
+ * on the bounded pool of that class, their database connections being counted
+ * against the class quota.
+ * 
+ * The quotas only bound request threads. The connection pool, sized by
+ * {@code spring.datasource.hikari.maximum-pool-size}, must hold the sum of the
+ * class quotas plus the connections taken outside of them: the scheduler
+ * thread running the archiver, cache snapshots and idempotency key purge, the
+ * cache preload threads and the gRPC calls. The LISTEN connection of the
+ * contract invalidation bus is opened out of the pool. The idempotency key transactions of a
+ * request run before and after the contract one, on the permit of the
+ * request. Raising a quota requires raising the pool size as much. Open
+ * session in view is disabled, it would hold the connection of a request
+ * until its async dispatch completes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "contract.execution.enabled", havingValue = "true", matchIfMissing = true)
+public class ExecutionClassConfig {
+
+	@Bean
+	public WebMvcRegistrations executionClassMvcRegistrations(final ExecutionClassPools pools) {
+		return new WebMvcRegistrations() {
+
+			@Override
+			public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+				return new ExecutionClassHandlerAdapter(pools);
+			}
+		};
+	}
+
+	@Bean
+	public static BeanPostProcessor executionClassDataSourcePostProcessor() {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource && !(bean instanceof ExecutionClassDataSource)) {
+					return new ExecutionClassDataSource((DataSource) bean);
+				}
+				return bean;
+			}
+		};
+	}
+}
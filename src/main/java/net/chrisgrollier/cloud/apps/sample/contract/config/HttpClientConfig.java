@@ -0,0 +1,67 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chrisgrollier.cloud.apps.sample.contract.client.http.MeteredConnectionManager;
+import net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer.InstanceStats;
+import net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer.InstanceStatsClientHttpRequestFactory;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.deadline.DeadlineClientHttpRequestFactory;
+
+/**
+ * Pooled HTTP client of the users service calls, configured by
+ * {@code usersservice.pool.*}: connections are kept alive for reuse, as long
+ * as the server allows it up to {@code keep-alive}, evicted once idle for
+ * {@code idle-timeout}, and limited per service instance by
+ * {@code max-per-route}. Requests wait at most {@code connection-request-timeout}
+ * for a pooled connection, then {@code usersservice.connect-timeout} and
+ * {@code usersservice.read-timeout} apply, all of them bounded by the request
+ * deadline. Calls are recorded in the {@link InstanceStats} of the instance
+ * they are sent to.
+ */
+@Configuration
+public class HttpClientConfig {
+
+	@Bean
+	public ClientHttpRequestFactory usersServiceRequestFactory(MeterRegistry meterRegistry, InstanceStats instanceStats,
+			@Value("${usersservice.connect-timeout:2000}") int connectTimeout,
+			@Value("${usersservice.read-timeout:10000}") int readTimeout,
+			@Value("${usersservice.pool.connection-request-timeout:1000}") int connectionRequestTimeout,
+			@Value("${usersservice.pool.max-total:200}") int maxTotal,
+			@Value("${usersservice.pool.max-per-route:50}") int maxPerRoute,
+			@Value("${usersservice.pool.keep-alive:30000}") long keepAlive,
+			@Value("${usersservice.pool.idle-timeout:30000}") long idleTimeout,
+			@Value("${usersservice.pool.time-to-live:-1}") long timeToLive,
+			@Value("${usersservice.pool.validate-after-inactivity:2000}") int validateAfterInactivity) {
+		final MeteredConnectionManager connectionManager = new MeteredConnectionManager(meterRegistry, timeToLive);
+		connectionManager.setMaxTotal(maxTotal);
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+		// @formatter:off
+		final DeadlineClientHttpRequestFactory requestFactory = new DeadlineClientHttpRequestFactory(HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectTimeout(connectTimeout)
+						.setSocketTimeout(readTimeout)
+						.setConnectionRequestTimeout(connectionRequestTimeout)
+						.build())
+				.setKeepAliveStrategy((response, context) -> {
+					final long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response,
+							context);
+					return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+				})
+				.evictExpiredConnections()
+				.evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
+				.build());
+		// @formatter:on
+		return new InstanceStatsClientHttpRequestFactory(requestFactory, instanceStats);
+	}
+}
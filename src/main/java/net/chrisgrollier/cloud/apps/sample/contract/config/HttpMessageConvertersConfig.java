@@ -0,0 +1,43 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.ContractProtobufHttpMessageConverter;
+import net.chrisgrollier.cloud.apps.sample.contract.mapping.ExceptionResponseProtoMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractMessage;
+
+/**
+ * Binary http message converters, picked up by spring boot in addition to the
+ * JSON one. Jackson based ones are built from the application
+ * {@link Jackson2ObjectMapperBuilder} so that they share the JSON
+ * configuration.
+ */
+@Configuration
+public class HttpMessageConvertersConfig {
+
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+	}
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+	}
+
+	@Bean
+	public ContractProtobufHttpMessageConverter contractProtobufHttpMessageConverter(
+			BidiMapper<Contract, ContractMessage> contractProtoMapper,
+			ExceptionResponseProtoMapper exceptionResponseProtoMapper) {
+		return new ContractProtobufHttpMessageConverter(contractProtoMapper, exceptionResponseProtoMapper);
+	}
+}
@@ -0,0 +1,34 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.model.json.ContractSerializerModifier;
+
+/**
+ * Jackson configuration. Registers a default filter serializing all properties
+ * so that models holding a {@code JsonFilter}, like {@link Contract}, are
+ * serialized in full unless a field selection applies, and hand written
+ * serializers for the contract models.
+ */
+@Configuration
+public class JacksonConfig {
+
+	@Bean
+	public Jackson2ObjectMapperBuilderCustomizer defaultFiltersCustomizer() {
+		return builder -> builder.filters(new SimpleFilterProvider()
+				.addFilter(Contract.FIELDS_FILTER, SimpleBeanPropertyFilter.serializeAll()).setFailOnUnknownId(false));
+	}
+
+	@Bean
+	public Module contractSerializationModule() {
+		return new SimpleModule("contractSerialization").setSerializerModifier(new ContractSerializerModifier());
+	}
+}
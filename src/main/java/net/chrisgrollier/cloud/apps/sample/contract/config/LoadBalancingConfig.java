@@ -0,0 +1,35 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnEnabledEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.netflix.ribbon.RibbonClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer.InstanceStats;
+import net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer.InstanceStatsEndpoint;
+import net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer.LatencyAwareRibbonConfiguration;
+import net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer.LatencyAwareRule;
+
+/**
+ * Latency aware load balancing of the users service calls, unless
+ * {@code usersservice.load-balancer.latency-aware} is false: Ribbon clients
+ * choose instances with the {@link LatencyAwareRule} instead of round robin.
+ * Instances statistics are exposed by the {@code loadbalancer} actuator
+ * endpoint.
+ */
+@Configuration
+public class LoadBalancingConfig {
+
+	@Bean
+	@ConditionalOnEnabledEndpoint
+	public InstanceStatsEndpoint instanceStatsEndpoint(InstanceStats instanceStats) {
+		return new InstanceStatsEndpoint(instanceStats);
+	}
+
+	@Configuration
+	@ConditionalOnProperty(name = "usersservice.load-balancer.latency-aware", havingValue = "true", matchIfMissing = true)
+	@RibbonClients(defaultConfiguration = LatencyAwareRibbonConfiguration.class)
+	static class LatencyAwareLoadBalancingConfig {
+	}
+}
@@ -0,0 +1,26 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import net.chrisgrollier.cloud.apps.common.util.mapping.BulkMapping;
+
+/**
+ * Bulk mapping of the mappers, configured by {@code mapping.bulk.*}: inputs of
+ * at least {@code parallel-threshold} elements are mapped on the common
+ * fork-join pool, by chunks of {@code chunk-size} elements.
+ */
+@Configuration
+public class MappingConfig {
+
+	@Bean
+	public BulkMapping bulkMapping(
+			@Value("${mapping.bulk.parallel-threshold:" + BulkMapping.DEFAULT_PARALLEL_THRESHOLD + "}") int parallelThreshold,
+			@Value("${mapping.bulk.chunk-size:" + BulkMapping.DEFAULT_CHUNK_SIZE + "}") int chunkSize) {
+		return new BulkMapping(parallelThreshold, chunkSize, ForkJoinPool.commonPool());
+	}
+
+}
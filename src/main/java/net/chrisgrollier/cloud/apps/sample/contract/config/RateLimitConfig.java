@@ -0,0 +1,78 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import com.google.common.collect.ImmutableList;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.ratelimit.RateLimitFilter;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.ratelimit.RateLimitGroup;
+
+/**
+ * Per client rate limiting of the contract endpoints, in three groups: bulk
+ * reads of all contracts or of many users contracts, other reads, and writes.
+ * Each group is configured with {@code contract.rate-limit.<group>.capacity},
+ * the burst size, and {@code contract.rate-limit.<group>.rate}, the sustained
+ * requests per second. Clients without an authenticated principal may
+ * identify themselves with one of the API keys listed in
+ * {@code contract.rate-limit.api-keys}.
+ * It runs outside the compression and response cache filters, so that
+ * throttled requests cost nothing more.
+ */
+@Configuration
+@ConditionalOnProperty(name = "contract.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+	private static final String CONTRACTS_PATH = "/api/v1/contracts";
+
+	private static final String CONTRACTS_SUB_PATHS = "/api/v1/contracts/**";
+
+	private static final String CONTRACT_INFOS_PATH = "/api/v1/contracts/info";
+
+	@Bean
+	public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(Environment environment,
+			@Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+			MeterRegistry meterRegistry, @Value("${contract.rate-limit.api-keys:}") Set<String> apiKeys,
+			@Value("${contract.rate-limit.max-buckets:100000}") long maxBuckets,
+			@Value("${contract.rate-limit.idle-timeout:600}") long idleTimeout) {
+		// @formatter:off
+		final RateLimitFilter filter = new RateLimitFilter(
+				ImmutableList.of(
+						group(environment, "bulk", EnumSet.of(HttpMethod.GET),
+								ImmutableList.of(CONTRACTS_PATH, CONTRACT_INFOS_PATH), 10, 2),
+						group(environment, "read", EnumSet.of(HttpMethod.GET), ImmutableList.of(CONTRACTS_SUB_PATHS), 100, 50),
+						group(environment, "write", EnumSet.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.DELETE),
+								ImmutableList.of(CONTRACTS_PATH, CONTRACTS_SUB_PATHS), 20, 10)),
+				apiKeys,
+				maxBuckets,
+				idleTimeout,
+				exceptionResolver,
+				meterRegistry);
+		// @formatter:on
+		meterRegistry.gauge("contract.ratelimit.buckets", filter, RateLimitFilter::size);
+		final FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.addUrlPatterns(CONTRACTS_PATH, CONTRACTS_PATH + "/*");
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+		return registration;
+	}
+
+	private static RateLimitGroup group(Environment environment, String name, EnumSet<HttpMethod> methods,
+			ImmutableList<String> pathPatterns, int capacity, double rate) {
+		final String prefix = "contract.rate-limit." + name + '.';
+		return new RateLimitGroup(name, methods, pathPatterns,
+				environment.getProperty(prefix + "capacity", Integer.class, capacity),
+				environment.getProperty(prefix + "rate", Double.class, rate));
+	}
+}
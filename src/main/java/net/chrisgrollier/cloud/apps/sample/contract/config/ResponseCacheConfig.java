@@ -0,0 +1,82 @@
+package net.chrisgrollier.cloud.apps.sample.contract.config;
+
+import java.lang.management.ManagementFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.google.common.collect.ImmutableMap;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.cache.ResponseCacheFilter;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.cache.ResponseCacheInvalidator;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.cache.SerializedResponseCache;
+
+/**
+ * Cache of the serialized single contract and user contracts responses. It
+ * runs inside the compression filter, so that cached bodies can still be
+ * compressed.
+ */
+@Configuration
+@ConditionalOnProperty(name = "contract.response-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class ResponseCacheConfig {
+
+	private static final String CONTRACT_PATH = "/api/v1/contracts/{id}";
+
+	private static final String USER_CONTRACTS_PATH = "/api/v1/contracts/userId/{userId}";
+
+	/**
+	 * The cached bodies are held in direct memory, so the cache size is limited
+	 * by the direct memory cap, {@code -XX:MaxDirectMemorySize}, set in the
+	 * {@code JAVA_OPTS} of the manifest, Tomcat and the JDK also using some of
+	 * it. Unless {@code contract.response-cache.max-size} is set, the cache
+	 * takes three quarters of the cap.
+	 */
+	@Bean
+	public SerializedResponseCache serializedResponseCache(MeterRegistry meterRegistry,
+			@Value("${contract.response-cache.max-size:0}") long maxSize,
+			@Value("${contract.response-cache.ttl:300}") long ttl) {
+		final SerializedResponseCache cache = new SerializedResponseCache(
+				maxSize > 0 ? maxSize : maxDirectMemory() / 4 * 3, ttl);
+		meterRegistry.gauge("contract.response.cache.size", cache, SerializedResponseCache::size);
+		return cache;
+	}
+
+	/**
+	 * @return the direct memory cap, the maximum heap size when not set
+	 */
+	static long maxDirectMemory() {
+		final HotSpotDiagnosticMXBean diagnostic = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+		final long max = diagnostic == null ? 0
+				: Long.parseLong(diagnostic.getVMOption("MaxDirectMemorySize").getValue());
+		return max > 0 ? max : Runtime.getRuntime().maxMemory();
+	}
+
+	@Bean
+	public ResponseCacheInvalidator responseCacheInvalidator(SerializedResponseCache cache) {
+		return new ResponseCacheInvalidator(cache);
+	}
+
+	@Bean
+	public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(SerializedResponseCache cache,
+			MeterRegistry meterRegistry, @Value("${contract.response-cache.max-entry-size:1048576}") int maxEntrySize) {
+		// @formatter:off
+		final ResponseCacheFilter filter = new ResponseCacheFilter(
+				ImmutableMap.of(
+						USER_CONTRACTS_PATH, new ResponseCacheFilter.Endpoint("getContractsByUserId", ResponseCacheInvalidator.USER_CONTRACTS, "userId"),
+						CONTRACT_PATH, new ResponseCacheFilter.Endpoint("getContractById", ResponseCacheInvalidator.CONTRACT, "id")),
+				cache,
+				maxEntrySize,
+				meterRegistry);
+		// @formatter:on
+		final FilterRegistrationBean<ResponseCacheFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.addUrlPatterns("/api/v1/contracts/*");
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+		return registration;
+	}
+}
@@ -1,9 +1,18 @@
 package net.chrisgrollier.cloud.apps.sample.contract.controller;
 
+import java.net.SocketTimeoutException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.client.ResourceAccessException;
 
+import net.chrisgrollier.cloud.apps.common.exception.handler.ExceptionResponse;
 import net.chrisgrollier.cloud.apps.common.exception.handler.support.DefaultWebAppExceptionHandler;
+import net.chrisgrollier.cloud.apps.common.exception.http.GatewayTimeoutException;
 import net.chrisgrollier.cloud.apps.common.i18n.MessageManager;
 
 @ControllerAdvice
@@ -13,5 +22,28 @@ public class AppExceptionHandler extends DefaultWebAppExceptionHandler {
 	public AppExceptionHandler(MessageManager messageManager) {
 		super(messageManager);
 	}
+
+	/**
+	 * Statements cancelled by the database once the request deadline is exceeded
+	 * end as a gateway timeout.
+	 */
+	@ExceptionHandler(QueryTimeoutException.class)
+	@ResponseBody
+	public ResponseEntity<ExceptionResponse> handleQueryTimeoutException(QueryTimeoutException exception) {
+		return this.handleException(new GatewayTimeoutException("Database query timed out"));
+	}
+
+	/**
+	 * Users service calls timing out while reading the response, once the
+	 * request deadline is exceeded, end as a gateway timeout.
+	 */
+	@ExceptionHandler(ResourceAccessException.class)
+	@ResponseBody
+	public ResponseEntity<ExceptionResponse> handleResourceAccessException(ResourceAccessException exception) {
+		if (exception.getRootCause() instanceof SocketTimeoutException) {
+			return this.handleException(new GatewayTimeoutException(exception.getMessage()));
+		}
+		return this.handleException(exception);
+	}
 	
 }
@@ -1,9 +1,19 @@
 package net.chrisgrollier.cloud.apps.sample.contract.controller;
 
+import static net.chrisgrollier.cloud.apps.sample.contract.controller.ContractMediaTypes.APPLICATION_CBOR_VALUE;
+import static net.chrisgrollier.cloud.apps.sample.contract.controller.ContractMediaTypes.APPLICATION_PROTOBUF_VALUE;
+import static net.chrisgrollier.cloud.apps.sample.contract.controller.ContractMediaTypes.APPLICATION_SMILE_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -11,10 +21,7 @@ import javax.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -24,90 +31,178 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
 
 import io.swagger.annotations.ApiOperation;
+import net.chrisgrollier.cloud.apps.common.concurrency.aop.ConcurrencyLimit;
+import net.chrisgrollier.cloud.apps.common.exception.http.BadRequestException;
 import net.chrisgrollier.cloud.apps.common.exception.service.EntityNotFoundUnrecoverableException;
 import net.chrisgrollier.cloud.apps.common.log.LogUtil;
 import net.chrisgrollier.cloud.apps.common.log.aop.Loggable;
+import net.chrisgrollier.cloud.apps.sample.contract.client.UserServiceClient;
+import net.chrisgrollier.cloud.apps.sample.contract.client.UsersServiceUnavailableException;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.cache.ResponseCacheFilter;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.execution.ExecutionClass;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.execution.ServiceClass;
 import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
 import net.chrisgrollier.cloud.apps.sample.contract.model.ContractInfo;
 import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
 import net.chrisgrollier.cloud.apps.sample.contract.service.ContractService;
+import net.chrisgrollier.cloud.apps.sample.contract.service.idempotency.IdempotencyService;
 
 @RestController
 @CrossOrigin(origins = "*", allowedHeaders = "*")
-@RequestMapping(value = "/api/v1/contracts")
+@RequestMapping(value = "/api/v1/contracts", produces = { APPLICATION_JSON_UTF8_VALUE, APPLICATION_SMILE_VALUE,
+		APPLICATION_CBOR_VALUE, APPLICATION_PROTOBUF_VALUE })
 @Loggable(debug = true, service = "contractService")
+@ConcurrencyLimit(maxQueueTime = 2000)
 public class ContractController {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ContractController.class);
-	@Autowired
-	private RestTemplate restTemplate;
+
+	private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+	private static final String USER_EXPANSION = "user";
+
+	private static final int MAX_USER_IDS = 500;
 
 	private final ContractService contractService;
 
-	@Value("${usersservice.url}")
-	private String usersServiceUrl;
+	private final IdempotencyService idempotencyService;
+
+	private final UserServiceClient userServiceClient;
 
 	@Autowired
-	public ContractController(final ContractService contractService) {
+	public ContractController(final ContractService contractService, final IdempotencyService idempotencyService,
+			final UserServiceClient userServiceClient) {
 		this.contractService = contractService;
+		this.idempotencyService = idempotencyService;
+		this.userServiceClient = userServiceClient;
 	}
 
 	@ApiOperation("Find all contracts.")
-	@GetMapping(produces = APPLICATION_JSON_UTF8_VALUE)
-	public Collection<Contract> getContracts() {
-		return contractService.findAllContracts();
+	@ExecutionClass(ServiceClass.BULK)
+	@GetMapping
+	public Collection<Contract> getContracts(
+			@RequestParam(name = "archived", defaultValue = "false") boolean includeArchived) {
+		return contractService.findAllContracts(includeArchived);
 	}
 
-	@ApiOperation("Find contract by the given identifier.")
-	@GetMapping(produces = APPLICATION_JSON_UTF8_VALUE, value = "/{id}")
-	public ContractInfo getContractById(@RequestHeader HttpHeaders headers, @PathVariable("id") Integer contractId) {
-		final Contract contract = contractService.findContract(contractId);
+	@ApiOperation("Find contract by the given identifier. User data is fetched if expand=user is given or if"
+			+ " neither fields nor expand are given.")
+	@ExecutionClass(ServiceClass.INTERACTIVE)
+	@GetMapping(value = "/{id}")
+	public ContractInfo getContractById(@RequestHeader HttpHeaders headers, @PathVariable("id") Integer contractId,
+			@RequestParam(name = "archived", defaultValue = "false") boolean includeArchived,
+			@RequestParam(name = FieldSelection.FIELDS_PARAM, required = false) String fields,
+			@RequestParam(name = "expand", required = false) String expand) {
+		final Contract contract = contractService.findContract(contractId, includeArchived);
 		final ContractInfo contractInfo = new ContractInfo(contract);
-		// complete Contract by user data
-		HttpHeaders requestHeader = new HttpHeaders();
-		requestHeader.addAll("Authorization", headers.get("Authorization"));
-		Boolean exist = restTemplate.exchange(usersServiceUrl + "/exists/id/" + contract.getUserId(), HttpMethod.GET,
-				new HttpEntity<>(requestHeader), Boolean.class).getBody();
-		if (exist) {
-			UserInfo result = restTemplate.exchange(usersServiceUrl + "/" + contract.getUserId(), HttpMethod.GET,
-					new HttpEntity<>(requestHeader), UserInfo.class).getBody();
-			contractInfo.setUser(result);
+		if (!this.isUserExpanded(FieldSelection.parse(fields), expand)) {
+			return contractInfo;
+		}
+		// complete Contract by user data, if the users service is available
+		try {
+			userServiceClient.findUser(contract.getUserId(), headers.getFirst(HttpHeaders.AUTHORIZATION))
+					.ifPresent(contractInfo::setUser);
+		} catch (UsersServiceUnavailableException e) {
+			LogUtil.debug(LOGGER, "Returning contract {} without user data: {}", contractId, e.getMessage());
+			contractInfo.setPartial(true);
+			// served again once the users service is back
+			ResponseCacheFilter.doNotCache();
 		}
 		return contractInfo;
 	}
 
+	@ApiOperation("Find live contracts of the given users, completed with user data. Users are fetched at once"
+			+ " rather than one call per contract.")
+	@ExecutionClass(ServiceClass.BULK)
+	@GetMapping(value = "/info")
+	public Collection<ContractInfo> getContractInfosByUserIds(@RequestHeader HttpHeaders headers,
+			@RequestParam("userIds") Set<Integer> userIds) {
+		if (userIds.size() > MAX_USER_IDS) {
+			throw new BadRequestException("At most " + MAX_USER_IDS + " userIds can be requested at once");
+		}
+		final Collection<Contract> contracts = contractService.findContractsByUserIds(userIds);
+		final Set<Integer> contractUserIds = contracts.stream().map(Contract::getUserId).collect(Collectors.toSet());
+		Map<Integer, UserInfo> users;
+		boolean partial = false;
+		try {
+			users = userServiceClient.findUsers(contractUserIds, headers.getFirst(HttpHeaders.AUTHORIZATION));
+		} catch (UsersServiceUnavailableException e) {
+			LogUtil.debug(LOGGER, "Returning contracts without user data: {}", e.getMessage());
+			users = Collections.emptyMap();
+			partial = true;
+			ResponseCacheFilter.doNotCache();
+		}
+		final Collection<ContractInfo> contractInfos = new ArrayList<>(contracts.size());
+		for (Contract contract : contracts) {
+			final ContractInfo contractInfo = new ContractInfo(contract);
+			contractInfo.setUser(users.get(contract.getUserId()));
+			contractInfo.setPartial(partial);
+			contractInfos.add(contractInfo);
+		}
+		return contractInfos;
+	}
+
+	/**
+	 * Tell whether user data should be fetched: either explicitly requested with
+	 * expand=user, or implied by the selected fields. Without any of these
+	 * parameters, user data is fetched as it always was.
+	 */
+	private boolean isUserExpanded(FieldSelection selection, String expand) {
+		if (expand != null) {
+			return Arrays.asList(expand.split(",")).contains(USER_EXPANSION);
+		}
+		return selection.includesAny(FieldSelection.USER_FIELDS);
+	}
+
 	@ApiOperation("Get contracts info for the given user ID .")
-	@GetMapping(produces = APPLICATION_JSON_UTF8_VALUE, value = "/userId/{userId}")
-	public Collection<Contract> getContractsByUserId(@PathVariable("userId") Integer userId) {
-		return contractService.findContractsByUserId(userId);
+	@ExecutionClass(ServiceClass.INTERACTIVE)
+	@GetMapping(value = "/userId/{userId}")
+	public Collection<Contract> getContractsByUserId(@PathVariable("userId") Integer userId,
+			@RequestParam(name = "archived", defaultValue = "false") boolean includeArchived) {
+		return contractService.findContractsByUserId(userId, includeArchived);
 	}
 
-	@ApiOperation("Add a new contract.")
-	@PostMapping(consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_UTF8_VALUE)
+	@ApiOperation("Add a new contract. Retries sending the same Idempotency-Key header get the first result back.")
+	@ExecutionClass(ServiceClass.INTERACTIVE)
+	@PostMapping(consumes = { APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE,
+			APPLICATION_PROTOBUF_VALUE })
 	public Contract addContract(@RequestHeader HttpHeaders headers,
+			@RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, Principal principal,
 			@RequestBody @Valid @NotNull final Contract contract) {
-		HttpHeaders requestHeader = new HttpHeaders();
-		requestHeader.addAll("Authorization", headers.get("Authorization"));
-		String role = restTemplate.exchange(usersServiceUrl + "/role/" + contract.getUserId(), HttpMethod.GET,
-				new HttpEntity<>(requestHeader), String.class).getBody();
-		Contract newContract = contractService.addContract(contract, role);
+		if (idempotencyKey == null) {
+			return this.createContract(headers, contract);
+		}
+		return idempotencyService.execute(principal.getName(), idempotencyKey, contract, Contract.class,
+				() -> this.createContract(headers, contract));
+	}
+
+	private Contract createContract(HttpHeaders headers, Contract contract) {
+		Contract newContract = contractService.addContract(contract, this.roleOf(headers, contract.getUserId()));
 		LogUtil.business(LOGGER, "Contract with id= {} has been created", newContract.getId());
 		return newContract;
 	}
 
 	@ApiOperation("Update contract.")
-	@PutMapping(consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_UTF8_VALUE, value = "/{id}")
-	public Contract updateContract(@PathVariable("id") Integer id, @RequestBody @Valid @NotNull final Contract contract)
-			throws EntityNotFoundUnrecoverableException {
-		return contractService.updateContract(id, contract);
+	@ExecutionClass(ServiceClass.INTERACTIVE)
+	@PutMapping(consumes = { APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE,
+			APPLICATION_PROTOBUF_VALUE }, value = "/{id}")
+	public Contract updateContract(@RequestHeader HttpHeaders headers, @PathVariable("id") Integer id,
+			@RequestBody @Valid @NotNull final Contract contract) throws EntityNotFoundUnrecoverableException {
+		return contractService.updateContract(id, contract, this.roleOf(headers, contract.getUserId()));
+	}
+
+	private String roleOf(HttpHeaders headers, Integer userId) {
+		return userServiceClient.findRole(userId, headers.getFirst(HttpHeaders.AUTHORIZATION))
+				.orElseThrow(() -> new BadRequestException("Unknown user " + userId));
 	}
 
 	@ApiOperation("Delete contract.")
-	@DeleteMapping(produces = APPLICATION_JSON_UTF8_VALUE, value = "/{id}")
+	@ExecutionClass(ServiceClass.INTERACTIVE)
+	@DeleteMapping(value = "/{id}")
 	public void deleteContract(@PathVariable("id") Integer id) {
 		contractService.deleteContract(id);
 		LogUtil.business(LOGGER, "Contract with id= {} has been deleted", id);
@@ -0,0 +1,21 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Media types contract endpoints can be negotiated with, besides JSON.
+ */
+public final class ContractMediaTypes {
+
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+	public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+	public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+
+	public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf(APPLICATION_PROTOBUF_VALUE);
+
+	private ContractMediaTypes() {
+		super();
+	}
+}
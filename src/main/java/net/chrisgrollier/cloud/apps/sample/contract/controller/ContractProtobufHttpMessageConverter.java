@@ -0,0 +1,142 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+import net.chrisgrollier.cloud.apps.common.exception.handler.ExceptionResponse;
+import net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.mapping.ExceptionResponseProtoMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.model.ContractInfo;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractInfoListMessage;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractInfoMessage;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractListMessage;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractMessage;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.UserInfoMessage;
+
+/**
+ * Http message converter reading and writing contract endpoints payloads with
+ * the protocol buffers schema defined in {@code contracts.proto}: a
+ * {@link Contract} is read, {@link Contract}, {@link ContractInfo}, collections
+ * of {@link Contract} or {@link ContractInfo} and {@link ExceptionResponse} are
+ * written.
+ */
+public class ContractProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+	private final BidiMapper<Contract, ContractMessage> mapper;
+
+	private final ExceptionResponseProtoMapper exceptionResponseMapper;
+
+	public ContractProtobufHttpMessageConverter(final BidiMapper<Contract, ContractMessage> contractProtoMapper,
+			final ExceptionResponseProtoMapper exceptionResponseMapper) {
+		super(ContractMediaTypes.APPLICATION_PROTOBUF);
+		this.mapper = contractProtoMapper;
+		this.exceptionResponseMapper = exceptionResponseMapper;
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return Contract.class.isAssignableFrom(clazz) || ContractInfo.class.isAssignableFrom(clazz)
+				|| ExceptionResponse.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	public boolean canRead(Class<?> clazz, MediaType mediaType) {
+		return Contract.class.equals(clazz) && this.canRead(mediaType);
+	}
+
+	@Override
+	public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+		return Contract.class.equals(type) && this.canRead(mediaType);
+	}
+
+	@Override
+	public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+		if (Collection.class.isAssignableFrom(clazz)) {
+			final Class<?> elementClass = type == null ? null
+					: ResolvableType.forType(type).asCollection().resolveGeneric(0);
+			return elementClass != null && (Contract.class.isAssignableFrom(elementClass)
+					|| ContractInfo.class.isAssignableFrom(elementClass)) && this.canWrite(mediaType);
+		}
+		return this.canWrite(clazz, mediaType);
+	}
+
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+		return this.readInternal(Contract.class, inputMessage);
+	}
+
+	@Override
+	protected Object readInternal(Class<? extends Object> clazz, HttpInputMessage inputMessage) throws IOException {
+		try {
+			return mapper.from(ContractMessage.parseFrom(inputMessage.getBody()));
+		} catch (InvalidProtocolBufferException e) {
+			throw new HttpMessageNotReadableException("Invalid protocol buffers contract: " + e.getMessage(), e,
+					inputMessage);
+		}
+	}
+
+	@Override
+	protected void writeInternal(Object o, Type type, HttpOutputMessage outputMessage) throws IOException {
+		this.toMessage(o).writeTo(outputMessage.getBody());
+	}
+
+	private Message toMessage(Object o) {
+		if (o instanceof ContractInfo) {
+			return this.toMessage((ContractInfo) o);
+		}
+		if (o instanceof Contract) {
+			return mapper.to((Contract) o);
+		}
+		if (o instanceof Collection && ((Collection<?>) o).stream().anyMatch(ContractInfo.class::isInstance)) {
+			final ContractInfoListMessage.Builder builder = ContractInfoListMessage.newBuilder();
+			for (Object contractInfo : (Collection<?>) o) {
+				builder.addContractInfos(this.toMessage((ContractInfo) contractInfo));
+			}
+			return builder.build();
+		}
+		if (o instanceof Collection) {
+			final ContractListMessage.Builder builder = ContractListMessage.newBuilder();
+			for (Object contract : (Collection<?>) o) {
+				builder.addContracts(mapper.to((Contract) contract));
+			}
+			return builder.build();
+		}
+		if (o instanceof ExceptionResponse) {
+			return exceptionResponseMapper.to((ExceptionResponse) o);
+		}
+		throw new HttpMessageNotWritableException("Unsupported type " + o.getClass().getName());
+	}
+
+	private ContractInfoMessage toMessage(ContractInfo contractInfo) {
+		final ContractInfoMessage.Builder builder = ContractInfoMessage.newBuilder()
+				.setContract(mapper.to(contractInfo.getContract())).setPartial(contractInfo.isPartial());
+		final UserInfo user = contractInfo.getUser();
+		if (user != null) {
+			// @formatter:off
+			builder.setUser(UserInfoMessage.newBuilder()
+					.setFirstName(Strings.nullToEmpty(user.getFirstName()))
+					.setLastName(Strings.nullToEmpty(user.getLastName()))
+					.setRole(Strings.nullToEmpty(user.getRole()))
+					.setEmail(Strings.nullToEmpty(user.getEmail()))
+					.setAddress(Strings.nullToEmpty(user.getAddress()))
+					.setUsername(Strings.nullToEmpty(user.getUsername())));
+			// @formatter:on
+		}
+		return builder.build();
+	}
+}
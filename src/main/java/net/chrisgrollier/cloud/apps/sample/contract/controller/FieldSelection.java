@@ -0,0 +1,78 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableSet;
+
+import net.chrisgrollier.cloud.apps.common.exception.http.BadRequestException;
+
+/**
+ * Set of properties a client asked for with the {@code fields} query parameter
+ * of contract endpoints. An absent parameter selects all properties.
+ */
+public final class FieldSelection {
+
+	/** Name of the query parameter holding the comma separated field list */
+	public static final String FIELDS_PARAM = "fields";
+
+	/** Properties of a contract */
+	public static final Set<String> CONTRACT_FIELDS = ImmutableSet.of("id", "type", "duration", "price", "userId");
+
+	/** Properties a contract info gets from user data */
+	public static final Set<String> USER_FIELDS = ImmutableSet.of("firstName", "lastName", "role", "email", "address",
+			"username");
+
+	/** Properties telling the response state, always written when set */
+	public static final Set<String> STATUS_FIELDS = ImmutableSet.of("partial");
+
+	private static final FieldSelection ALL = new FieldSelection(Collections.emptySet());
+
+	private final Set<String> fields;
+
+	private FieldSelection(Set<String> fields) {
+		this.fields = fields;
+	}
+
+	/**
+	 * Parse the given {@code fields} parameter value.
+	 * 
+	 * @param value a comma separated list of property names, may be null
+	 * @return the matching selection
+	 * @throws BadRequestException if an unknown property is requested
+	 */
+	public static FieldSelection parse(String value) {
+		if (value == null || value.trim().isEmpty()) {
+			return ALL;
+		}
+		final Set<String> fields = Arrays.stream(value.split(",")).map(String::trim).filter(f -> !f.isEmpty())
+				.collect(Collectors.toSet());
+		for (String field : fields) {
+			if (!CONTRACT_FIELDS.contains(field) && !USER_FIELDS.contains(field)) {
+				throw new BadRequestException("Unknown field " + field);
+			}
+		}
+		return new FieldSelection(ImmutableSet.copyOf(fields));
+	}
+
+	public boolean isAll() {
+		return fields.isEmpty();
+	}
+
+	public Set<String> getFields() {
+		return fields;
+	}
+
+	/**
+	 * Tell whether at least one of the given properties is selected.
+	 * 
+	 * @param candidates property names
+	 * @return true if all properties are selected or if one of the candidates is
+	 */
+	public boolean includesAny(Collection<String> candidates) {
+		return isAll() || candidates.stream().anyMatch(fields::contains);
+	}
+}
@@ -0,0 +1,40 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.google.common.collect.Sets;
+
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Restricts properties of serialized contracts to those listed by the
+ * {@link FieldSelection#FIELDS_PARAM} query parameter, if any, status properties
+ * such as partial being always kept.
+ */
+@ControllerAdvice(assignableTypes = ContractController.class)
+public class FieldSelectionResponseBodyAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+	@Override
+	protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+			MethodParameter returnType, ServerHttpRequest request, ServerHttpResponse response) {
+		if (request instanceof ServletServerHttpRequest) {
+			final FieldSelection selection = FieldSelection
+					.parse(((ServletServerHttpRequest) request).getServletRequest().getParameter(FieldSelection.FIELDS_PARAM));
+			if (!selection.isAll()) {
+				bodyContainer.setFilters(new SimpleFilterProvider().addFilter(Contract.FIELDS_FILTER,
+						SimpleBeanPropertyFilter
+								.filterOutAllExcept(Sets.union(selection.getFields(), FieldSelection.STATUS_FIELDS)))
+						.setFailOnUnknownId(false));
+			}
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.Principal;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.WebUtils;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Serves the responses of the given endpoints from a
+ * {@link SerializedResponseCache}, and stores the successful ones it had to
+ * build. Each endpoint path pattern holds a single numeric variable, the
+ * resource is named after. Handlers may keep a response out of the cache with
+ * {@link #doNotCache()}, e.g. a degraded one.
+ * 
+ * Cache usage is reported per endpoint as {@code contract.response.cache}.
+ */
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+	private static final String NOT_CACHEABLE_ATTRIBUTE = ResponseCacheFilter.class.getName() + ".NOT_CACHEABLE";
+
+	private final Map<String, Endpoint> endpoints;
+
+	private final SerializedResponseCache cache;
+
+	private final int maxEntrySize;
+
+	private final MeterRegistry meterRegistry;
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	/**
+	 * @param endpoints     endpoints, by path pattern
+	 * @param cache         the response cache
+	 * @param maxEntrySize  the maximum size of a cached response, in bytes
+	 * @param meterRegistry the registry metrics are reported to
+	 */
+	public ResponseCacheFilter(Map<String, Endpoint> endpoints, SerializedResponseCache cache, int maxEntrySize,
+			MeterRegistry meterRegistry) {
+		this.endpoints = ImmutableMap.copyOf(endpoints);
+		this.cache = cache;
+		this.maxEntrySize = maxEntrySize;
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Keep the response of the current request out of the cache, if any.
+	 */
+	public static void doNotCache() {
+		final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.setAttribute(NOT_CACHEABLE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !HttpMethod.GET.matches(request.getMethod());
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		CachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, CachingResponseWrapper.class);
+		if (wrapper != null) {
+			// async dispatch, the response is still the one wrapped at first
+			filterChain.doFilter(request, response);
+			this.complete(request, wrapper);
+			return;
+		}
+		final Principal principal = request.getUserPrincipal();
+		final String path = urlPathHelper.getPathWithinApplication(request);
+		Endpoint endpoint = null;
+		String resource = null;
+		for (Map.Entry<String, Endpoint> candidate : endpoints.entrySet()) {
+			if (pathMatcher.match(candidate.getKey(), path)) {
+				endpoint = candidate.getValue();
+				resource = endpoint.resourceOf(pathMatcher.extractUriTemplateVariables(candidate.getKey(), path));
+				break;
+			}
+		}
+		if (isAsyncDispatch(request) || principal == null || resource == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		// @formatter:off
+		final SerializedResponseCache.Key key = new SerializedResponseCache.Key(
+				endpoint.getName(),
+				resource,
+				cache.version(resource),
+				request.getLocale().toLanguageTag(),
+				request.getHeader(HttpHeaders.ACCEPT),
+				request.getQueryString(),
+				principal.getName());
+		// @formatter:on
+		final SerializedResponseCache.CachedResponse cached = cache.get(key);
+		if (cached != null) {
+			meterRegistry.counter("contract.response.cache", "endpoint", endpoint.getName(), "result", "hit")
+					.increment();
+			this.write(cached, response);
+			return;
+		}
+		meterRegistry.counter("contract.response.cache", "endpoint", endpoint.getName(), "result", "miss").increment();
+		wrapper = new CachingResponseWrapper(response, endpoint.getName(), key);
+		filterChain.doFilter(request, wrapper);
+		this.complete(request, wrapper);
+	}
+
+	/**
+	 * Hand the response over to the client once fully built, that is unless the
+	 * handler went on asynchronously, then store it. The client gets its
+	 * response whether or not it could be stored, direct memory being bounded.
+	 */
+	private void complete(HttpServletRequest request, CachingResponseWrapper wrapper) throws IOException {
+		if (isAsyncStarted(request)) {
+			return;
+		}
+		final HttpServletResponse response = (HttpServletResponse) wrapper.getResponse();
+		final boolean cacheable = wrapper.getStatus() == HttpServletResponse.SC_OK
+				&& wrapper.getContentType() != null && wrapper.getContentSize() <= maxEntrySize
+				&& !response.containsHeader(HttpHeaders.CONTENT_ENCODING)
+				&& request.getAttribute(NOT_CACHEABLE_ATTRIBUTE) == null;
+		final String contentType = wrapper.getContentType();
+		final byte[] body = cacheable ? wrapper.getContentAsByteArray() : null;
+		wrapper.copyBodyToResponse();
+		if (cacheable) {
+			try {
+				cache.put(wrapper.key, contentType, body);
+			} catch (RuntimeException | OutOfMemoryError e) {
+				meterRegistry.counter("contract.response.cache", "endpoint", wrapper.endpoint, "result", "failed")
+						.increment();
+			}
+		}
+	}
+
+	/**
+	 * Write a cached response. The servlet API gives no way to hand a direct
+	 * buffer to the socket, so the body goes through the container output
+	 * buffer, without any intermediate heap copy of the whole body.
+	 */
+	private void write(SerializedResponseCache.CachedResponse cached, HttpServletResponse response)
+			throws IOException {
+		final ByteBuffer body = cached.getBody();
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setContentType(cached.getContentType());
+		response.setContentLength(body.remaining());
+		final WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+		while (body.hasRemaining()) {
+			channel.write(body);
+		}
+	}
+
+	/**
+	 * Response wrapper of this filter, keeping the endpoint name and cache key of
+	 * the response until the async dispatch, if any.
+	 */
+	private static class CachingResponseWrapper extends ContentCachingResponseWrapper {
+
+		private final String endpoint;
+
+		private final SerializedResponseCache.Key key;
+
+		CachingResponseWrapper(HttpServletResponse response, String endpoint, SerializedResponseCache.Key key) {
+			super(response);
+			this.endpoint = endpoint;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * A cached endpoint: its name and the name of the path variable identifying
+	 * the resource.
+	 */
+	public static final class Endpoint {
+
+		private final String name;
+
+		private final String resourceType;
+
+		private final String variable;
+
+		/**
+		 * @param name         the endpoint name, used in metrics
+		 * @param resourceType the type of the resource, resource names being made
+		 *                     of it and of the variable value
+		 * @param variable     the path variable identifying the resource
+		 */
+		public Endpoint(String name, String resourceType, String variable) {
+			this.name = name;
+			this.resourceType = resourceType;
+			this.variable = variable;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the resource name, null if the path variable is not numeric
+		 */
+		String resourceOf(Map<String, String> variables) {
+			try {
+				return resourceName(resourceType, Integer.valueOf(variables.get(variable)));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * @param resourceType the resource type
+		 * @param id           the resource identifier
+		 * @return the name of the resource
+		 */
+		public static String resourceName(String resourceType, Integer id) {
+			return resourceType + ':' + id;
+		}
+	}
+}
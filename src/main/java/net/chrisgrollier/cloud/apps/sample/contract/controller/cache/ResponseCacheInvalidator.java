@@ -0,0 +1,49 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.cache;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import net.chrisgrollier.cloud.apps.sample.contract.service.ContractChangedEvent;
+
+/**
+ * Invalidates cached responses when contracts change.
+ * 
+ * Responses are invalidated as soon as the change is made, then again once it
+ * is committed: a response built in between from the not yet committed state
+ * would otherwise stay cached.
+ */
+public class ResponseCacheInvalidator {
+
+	/** Type of the resources holding a single contract */
+	public static final String CONTRACT = "contract";
+
+	/** Type of the resources holding the contracts of a user */
+	public static final String USER_CONTRACTS = "userContracts";
+
+	private final SerializedResponseCache cache;
+
+	public ResponseCacheInvalidator(final SerializedResponseCache cache) {
+		this.cache = cache;
+	}
+
+	@EventListener
+	public void onChange(ContractChangedEvent event) {
+		this.invalidate(event);
+	}
+
+	@TransactionalEventListener
+	public void onCommittedChange(ContractChangedEvent event) {
+		this.invalidate(event);
+	}
+
+	private void invalidate(ContractChangedEvent event) {
+		if (event.isAll()) {
+			cache.invalidateAll();
+			return;
+		}
+		event.getContractIds()
+				.forEach(id -> cache.invalidate(ResponseCacheFilter.Endpoint.resourceName(CONTRACT, id)));
+		event.getUserIds()
+				.forEach(id -> cache.invalidate(ResponseCacheFilter.Endpoint.resourceName(USER_CONTRACTS, id)));
+	}
+}
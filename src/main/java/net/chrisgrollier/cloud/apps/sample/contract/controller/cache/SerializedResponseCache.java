@@ -0,0 +1,209 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+
+/**
+ * Serialized responses, the bytes being held in direct buffers outside of the
+ * Java heap so that a large number of them does not weigh on garbage
+ * collection. The cache is bounded by the total size of the bodies.
+ * 
+ * Every cached resource (a contract, the contracts of a user) has a version,
+ * part of the entry key, which is bumped when the resource changes. A response
+ * built while the resource was changing is thus stored under the version read
+ * before it was built, and never served once the change is known.
+ * Versions are kept in a fixed number of stripes, resources sharing a stripe
+ * being invalidated together.
+ */
+public class SerializedResponseCache {
+
+	private static final int VERSION_STRIPES = 4096;
+
+	private final Cache<Key, CachedResponse> cache;
+
+	private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private final AtomicLong size = new AtomicLong();
+
+	/**
+	 * @param maxSize the maximum total size of the cached bodies, in bytes
+	 * @param ttl     how long a response is kept, in seconds
+	 */
+	public SerializedResponseCache(long maxSize, long ttl) {
+		final RemovalListener<Key, CachedResponse> onRemoval = n -> size.addAndGet(-n.getValue().getSize());
+		// @formatter:off
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maxSize)
+				.<Key, CachedResponse>weigher((key, response) -> response.getSize())
+				.expireAfterWrite(ttl, TimeUnit.SECONDS)
+				.removalListener(onRemoval)
+				.build();
+		// @formatter:on
+	}
+
+	/**
+	 * @param resource the resource name
+	 * @return the current version of the resource
+	 */
+	public long version(String resource) {
+		return generation.get() * VERSION_STRIPES + versions.get(stripeOf(resource));
+	}
+
+	/**
+	 * @param key the response key
+	 * @return the cached response, null if none
+	 */
+	public CachedResponse get(Key key) {
+		return cache.getIfPresent(key);
+	}
+
+	/**
+	 * Store a response body, copied to a direct buffer.
+	 * 
+	 * @param key         the response key
+	 * @param contentType the response content type
+	 * @param body        the serialized response
+	 */
+	public void put(Key key, String contentType, byte[] body) {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(body.length);
+		buffer.put(body).flip();
+		size.addAndGet(body.length);
+		cache.put(key, new CachedResponse(contentType, buffer.asReadOnlyBuffer()));
+	}
+
+	/**
+	 * Invalidate the responses of the given resource. They are no longer
+	 * reachable, their key holding the previous version, and are left to be
+	 * evicted as least recently used or expired rather than looked up among all
+	 * entries.
+	 * 
+	 * @param resource the resource name
+	 */
+	public void invalidate(String resource) {
+		versions.incrementAndGet(stripeOf(resource));
+	}
+
+	/**
+	 * Invalidate all responses.
+	 */
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	/**
+	 * @return the total size of the cached bodies, in bytes
+	 */
+	public long size() {
+		return size.get();
+	}
+
+	private static int stripeOf(String resource) {
+		return (resource.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+	}
+
+	/**
+	 * Key of a serialized response: the endpoint and resource, the resource
+	 * version, and what else the serialized form depends on.
+	 */
+	public static final class Key {
+
+		private final String endpoint;
+
+		private final String resource;
+
+		private final long version;
+
+		private final String locale;
+
+		private final String accept;
+
+		private final String query;
+
+		private final String principal;
+
+		/**
+		 * @param endpoint  the endpoint name
+		 * @param resource  the resource name
+		 * @param version   the resource version, read before building the response
+		 * @param locale    the request locale
+		 * @param accept    the Accept header, the response content type depends on
+		 * @param query     the query string
+		 * @param principal the caller, user data being fetched on their behalf
+		 */
+		public Key(String endpoint, String resource, long version, String locale, String accept, String query,
+				String principal) {
+			this.endpoint = endpoint;
+			this.resource = resource;
+			this.version = version;
+			this.locale = locale;
+			this.accept = accept;
+			this.query = query;
+			this.principal = principal;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(endpoint, resource, version, locale, accept, query, principal);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			// @formatter:off
+			return version == other.version
+					&& endpoint.equals(other.endpoint)
+					&& resource.equals(other.resource)
+					&& Objects.equals(locale, other.locale)
+					&& Objects.equals(accept, other.accept)
+					&& Objects.equals(query, other.query)
+					&& Objects.equals(principal, other.principal);
+			// @formatter:on
+		}
+	}
+
+	/**
+	 * A cached response: its content type and read-only body.
+	 */
+	public static final class CachedResponse {
+
+		private final String contentType;
+
+		private final ByteBuffer body;
+
+		private CachedResponse(String contentType, ByteBuffer body) {
+			this.contentType = contentType;
+			this.body = body;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		/**
+		 * @return a new view of the body, positioned at its start
+		 */
+		public ByteBuffer getBody() {
+			return body.duplicate();
+		}
+
+		public int getSize() {
+			return body.capacity();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.compression;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compression level following the process CPU load: the maximum level is used
+ * while the CPU is idle enough, and it is lowered down to the minimum one as
+ * the load grows, so that compression never competes with request handling.
+ * The load is sampled at most once per sampling period.
+ */
+public class AdaptiveCompressionLevel {
+
+	private static final long SAMPLING_PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+	private final int minLevel;
+
+	private final int maxLevel;
+
+	private final double lowLoad;
+
+	private final double highLoad;
+
+	private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+
+	private volatile int level;
+
+	private volatile long sampledAt;
+
+	/**
+	 * @param minLevel the level used when the load is above {@code highLoad}
+	 * @param maxLevel the level used when the load is below {@code lowLoad}
+	 * @param lowLoad  the CPU load (0 to 1) under which the maximum level is used
+	 * @param highLoad the CPU load (0 to 1) above which the minimum level is used
+	 */
+	public AdaptiveCompressionLevel(int minLevel, int maxLevel, double lowLoad, double highLoad) {
+		this.minLevel = minLevel;
+		this.maxLevel = maxLevel;
+		this.lowLoad = lowLoad;
+		this.highLoad = highLoad;
+		this.level = maxLevel;
+		this.sampledAt = System.nanoTime();
+	}
+
+	/**
+	 * @return the deflate level to use right now
+	 */
+	public int get() {
+		final long now = System.nanoTime();
+		if (now - sampledAt >= SAMPLING_PERIOD) {
+			sampledAt = now;
+			level = this.levelFor(this.cpuLoad());
+		}
+		return level;
+	}
+
+	private int levelFor(double load) {
+		if (load < 0 || load <= lowLoad) {
+			return maxLevel;
+		}
+		if (load >= highLoad) {
+			return minLevel;
+		}
+		final double position = (load - lowLoad) / (highLoad - lowLoad);
+		return (int) Math.round(maxLevel - position * (maxLevel - minLevel));
+	}
+
+	/**
+	 * Process CPU load when the JVM exposes it, system load average per
+	 * processor otherwise, a negative value if none is available.
+	 */
+	private double cpuLoad() {
+		if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuLoad();
+		}
+		final double loadAverage = osBean.getSystemLoadAverage();
+		return loadAverage < 0 ? loadAverage : loadAverage / osBean.getAvailableProcessors();
+	}
+}
@@ -0,0 +1,94 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.compression;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Compressed response bodies, keyed by the digest of the uncompressed body, so
+ * that identical responses are compressed only once whatever the request that
+ * produced them. The cache is bounded by the size of the compressed bodies.
+ */
+public class CompressedBodyCache {
+
+	private static final HashFunction DIGEST = Hashing.sha256();
+
+	private final Cache<Key, byte[]> cache;
+
+	/**
+	 * @param maxWeight the maximum total size of the cached bodies, in bytes
+	 * @param ttl       how long an unused body is kept, in seconds
+	 */
+	public CompressedBodyCache(long maxWeight, long ttl) {
+		// @formatter:off
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maxWeight)
+				.<Key, byte[]>weigher((key, body) -> body.length)
+				.expireAfterAccess(ttl, TimeUnit.SECONDS)
+				.build();
+		// @formatter:on
+	}
+
+	/**
+	 * Compute the key of a response body.
+	 * 
+	 * @param encoding the content coding
+	 * @param body     the uncompressed body
+	 * @return the key
+	 */
+	public Key keyOf(String encoding, byte[] body) {
+		return new Key(encoding, DIGEST.hashBytes(body));
+	}
+
+	/**
+	 * @param key the body key
+	 * @return the compressed body, null if not cached
+	 */
+	public byte[] get(Key key) {
+		return cache.getIfPresent(key);
+	}
+
+	/**
+	 * @param key        the body key
+	 * @param compressed the compressed body
+	 */
+	public void put(Key key, byte[] compressed) {
+		cache.put(key, compressed);
+	}
+
+	/**
+	 * Cache key: the content coding and the uncompressed body digest.
+	 */
+	public static final class Key {
+
+		private final String encoding;
+
+		private final HashCode digest;
+
+		private Key(String encoding, HashCode digest) {
+			this.encoding = encoding;
+			this.digest = digest;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * encoding.hashCode() + digest.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return encoding.equals(other.encoding) && digest.equals(other.digest);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.WebUtils;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Gzip compression of the responses of the given endpoints, when the client
+ * accepts it and the body is large enough to be worth it. The deflate level
+ * follows the CPU load, and compressed bodies are cached so that identical
+ * responses are not compressed again.
+ * 
+ * Per endpoint, the compression ratio is reported as
+ * {@code contract.compression.ratio}, the CPU time spent compressing as
+ * {@code contract.compression.cpu} and the cache usage as
+ * {@code contract.compression.cache}.
+ */
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+	static final String GZIP = "gzip";
+
+	private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+	private final Map<String, String> endpoints;
+
+	private final int minSize;
+
+	private final AdaptiveCompressionLevel level;
+
+	private final CompressedBodyCache cache;
+
+	private final MeterRegistry meterRegistry;
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	/**
+	 * @param endpoints     endpoint names, by path pattern
+	 * @param minSize       the minimum body size to compress, in bytes
+	 * @param level         the compression level
+	 * @param cache         the compressed bodies cache
+	 * @param meterRegistry the registry metrics are reported to
+	 */
+	public ResponseCompressionFilter(Map<String, String> endpoints, int minSize, AdaptiveCompressionLevel level,
+			CompressedBodyCache cache, MeterRegistry meterRegistry) {
+		this.endpoints = ImmutableMap.copyOf(endpoints);
+		this.minSize = minSize;
+		this.level = level;
+		this.cache = cache;
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !HttpMethod.GET.matches(request.getMethod()) || this.endpointOf(request) == null;
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		CompressingResponseWrapper wrapper = WebUtils.getNativeResponse(response, CompressingResponseWrapper.class);
+		if (wrapper == null) {
+			if (isAsyncDispatch(request)) {
+				filterChain.doFilter(request, response);
+				return;
+			}
+			response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			if (!acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+				filterChain.doFilter(request, response);
+				return;
+			}
+			wrapper = new CompressingResponseWrapper(response);
+			filterChain.doFilter(request, wrapper);
+		} else {
+			// async dispatch, the response is still the one wrapped at first
+			filterChain.doFilter(request, response);
+		}
+		if (isAsyncStarted(request)) {
+			return;
+		}
+		this.complete(request, wrapper);
+	}
+
+	private void complete(HttpServletRequest request, CompressingResponseWrapper wrapper) throws IOException {
+		final HttpServletResponse response = (HttpServletResponse) wrapper.getResponse();
+		if (wrapper.getStatus() != HttpServletResponse.SC_OK || wrapper.getContentSize() < minSize
+				|| response.containsHeader(HttpHeaders.CONTENT_ENCODING) || response.isCommitted()) {
+			wrapper.copyBodyToResponse();
+			return;
+		}
+		final String endpoint = this.endpointOf(request);
+		final byte[] body = wrapper.getContentAsByteArray();
+		final byte[] compressed = this.compress(endpoint, body);
+		response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+		response.setContentLength(compressed.length);
+		response.getOutputStream().write(compressed);
+		response.flushBuffer();
+	}
+
+	private byte[] compress(String endpoint, byte[] body) throws IOException {
+		final CompressedBodyCache.Key key = cache.keyOf(GZIP, body);
+		byte[] compressed = cache.get(key);
+		if (compressed != null) {
+			meterRegistry.counter("contract.compression.cache", "endpoint", endpoint, "result", "hit").increment();
+			return compressed;
+		}
+		meterRegistry.counter("contract.compression.cache", "endpoint", endpoint, "result", "miss").increment();
+		final long start = cpuTime();
+		compressed = gzip(body, level.get());
+		meterRegistry.timer("contract.compression.cpu", "endpoint", endpoint, "encoding", GZIP)
+				.record(cpuTime() - start, TimeUnit.NANOSECONDS);
+		meterRegistry.summary("contract.compression.ratio", "endpoint", endpoint, "encoding", GZIP)
+				.record((double) body.length / compressed.length);
+		cache.put(key, compressed);
+		return compressed;
+	}
+
+	private String endpointOf(HttpServletRequest request) {
+		final String path = urlPathHelper.getPathWithinApplication(request);
+		for (Map.Entry<String, String> endpoint : endpoints.entrySet()) {
+			if (pathMatcher.match(endpoint.getKey(), path)) {
+				return endpoint.getValue();
+			}
+		}
+		return null;
+	}
+
+	private static byte[] gzip(byte[] body, int level) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+		try (GZIPOutputStream gzip = new LeveledGZIPOutputStream(out, level)) {
+			gzip.write(body);
+		}
+		return out.toByteArray();
+	}
+
+	private static long cpuTime() {
+		return THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime()
+				: System.nanoTime();
+	}
+
+	/**
+	 * Tell whether gzip is an acceptable content coding according to the given
+	 * Accept-Encoding header, either explicitly or through the "*" wildcard.
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Boolean gzip = null;
+		boolean wildcard = false;
+		for (String coding : acceptEncoding.split(",")) {
+			final String[] parts = coding.trim().split(";");
+			final boolean accepted = qualityOf(parts) > 0;
+			final String name = parts[0].trim();
+			if (GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+				gzip = accepted;
+			} else if ("*".equals(name)) {
+				wildcard = accepted;
+			}
+		}
+		return gzip != null ? gzip : wildcard;
+	}
+
+	private static double qualityOf(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			final String parameter = parts[i].trim();
+			if (parameter.startsWith("q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2));
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Response wrapper of this filter, told apart from the other content caching
+	 * ones on the async dispatch.
+	 */
+	private static class CompressingResponseWrapper extends ContentCachingResponseWrapper {
+
+		CompressingResponseWrapper(HttpServletResponse response) {
+			super(response);
+		}
+	}
+
+	private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+		LeveledGZIPOutputStream(ByteArrayOutputStream out, int level) throws IOException {
+			super(out);
+			def.setLevel(level);
+		}
+	}
+}
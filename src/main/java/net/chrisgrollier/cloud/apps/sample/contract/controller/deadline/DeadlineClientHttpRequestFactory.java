@@ -0,0 +1,58 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.deadline;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+import net.chrisgrollier.cloud.apps.sample.contract.client.http.AbortHandle;
+
+/**
+ * Request factory bounding the connect, read and connection pool timeouts of
+ * each request by the time left to the current request deadline, and refusing
+ * to send any request once it is exceeded. Timeouts without deadline are the
+ * ones of the client default request configuration. Requests are registered
+ * to the {@link AbortHandle} of the calling thread, if any, so that they can be
+ * cancelled.
+ */
+public class DeadlineClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+	/**
+	 * @param httpClient the client to send requests with
+	 */
+	public DeadlineClientHttpRequestFactory(HttpClient httpClient) {
+		super(httpClient);
+	}
+
+	@Override
+	protected RequestConfig createRequestConfig(Object client) {
+		final RequestConfig config = super.createRequestConfig(client);
+		final Deadline deadline = Deadline.current();
+		if (deadline == null) {
+			return config;
+		}
+		final int remaining = (int) Math.min(Integer.MAX_VALUE, deadline.check());
+		final RequestConfig base = config != null ? config : RequestConfig.DEFAULT;
+		// @formatter:off
+		return RequestConfig.copy(base)
+				.setConnectTimeout(bounded(base.getConnectTimeout(), remaining))
+				.setSocketTimeout(bounded(base.getSocketTimeout(), remaining))
+				.setConnectionRequestTimeout(bounded(base.getConnectionRequestTimeout(), remaining))
+				.build();
+		// @formatter:on
+	}
+
+	@Override
+	protected void postProcessHttpRequest(HttpUriRequest request) {
+		AbortHandle.register(request);
+	}
+
+	/**
+	 * @return the timeout bounded by the remaining time, a non positive timeout
+	 *         standing for none
+	 */
+	private static int bounded(int timeout, int remaining) {
+		return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+	}
+}
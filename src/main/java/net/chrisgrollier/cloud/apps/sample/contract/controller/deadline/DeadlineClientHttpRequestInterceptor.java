@@ -0,0 +1,31 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.deadline;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+import net.chrisgrollier.cloud.apps.common.exception.http.GatewayTimeoutException;
+
+/**
+ * Turns the timeouts of outbound calls into {@link GatewayTimeoutException},
+ * and refuses to send a call once the current request deadline is exceeded.
+ */
+public class DeadlineClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		Deadline.checkCurrent();
+		try {
+			return execution.execute(request, body);
+		} catch (SocketTimeoutException | ConnectTimeoutException e) {
+			throw new GatewayTimeoutException("Timed out calling " + request.getURI().getHost());
+		}
+	}
+}
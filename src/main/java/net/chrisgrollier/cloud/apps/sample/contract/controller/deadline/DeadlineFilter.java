@@ -0,0 +1,106 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.deadline;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import com.google.common.collect.ImmutableList;
+
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+
+/**
+ * Sets the deadline of each request, from the time budget the client sent in
+ * the {@value #TIMEOUT_HEADER} header, in milliseconds, or else from the
+ * default timeout of the endpoint. Client budgets are bounded by a maximum.
+ */
+public class DeadlineFilter extends OncePerRequestFilter {
+
+	/** The header clients send their time budget in */
+	public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+	private final List<Endpoint> endpoints;
+
+	private final long defaultTimeout;
+
+	private final long maxTimeout;
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	/**
+	 * @param endpoints      endpoints with their own default timeout, the first
+	 *                       one matching a request applying
+	 * @param defaultTimeout the timeout of other requests, in milliseconds
+	 * @param maxTimeout     the maximum budget a client may ask for, in
+	 *                       milliseconds
+	 */
+	public DeadlineFilter(List<Endpoint> endpoints, long defaultTimeout, long maxTimeout) {
+		this.endpoints = ImmutableList.copyOf(endpoints);
+		this.defaultTimeout = defaultTimeout;
+		this.maxTimeout = maxTimeout;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		Deadline.set(Deadline.after(this.timeoutOf(request)));
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			Deadline.clear();
+		}
+	}
+
+	private long timeoutOf(HttpServletRequest request) {
+		final String budget = request.getHeader(TIMEOUT_HEADER);
+		if (budget != null) {
+			try {
+				return Math.max(0, Math.min(maxTimeout, Long.parseLong(budget.trim())));
+			} catch (NumberFormatException e) {
+				// ignored, falls back to the endpoint timeout
+			}
+		}
+		final HttpMethod method = HttpMethod.resolve(request.getMethod());
+		final String path = urlPathHelper.getPathWithinApplication(request);
+		for (Endpoint endpoint : endpoints) {
+			if (endpoint.method == method && pathMatcher.match(endpoint.pathPattern, path)) {
+				return endpoint.timeout;
+			}
+		}
+		return defaultTimeout;
+	}
+
+	/**
+	 * An endpoint and its default timeout.
+	 */
+	public static final class Endpoint {
+
+		private final HttpMethod method;
+
+		private final String pathPattern;
+
+		private final long timeout;
+
+		/**
+		 * @param method      the endpoint HTTP method
+		 * @param pathPattern the endpoint path pattern
+		 * @param timeout     the endpoint default timeout, in milliseconds
+		 */
+		public Endpoint(HttpMethod method, String pathPattern, long timeout) {
+			this.method = method;
+			this.pathPattern = pathPattern;
+			this.timeout = timeout;
+		}
+	}
+}
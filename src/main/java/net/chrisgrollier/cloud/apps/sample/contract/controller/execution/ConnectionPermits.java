@@ -0,0 +1,43 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.execution;
+
+import java.sql.SQLException;
+
+/**
+ * The database connection permit of a request run by an execution class pool.
+ * Connections of the request share a single permit, taken by the first one
+ * and given back by the last one closed, whichever thread closes it, so that
+ * nested transactions cannot starve on the quota of their own class.
+ */
+class ConnectionPermits {
+
+	private final ExecutionClassPool pool;
+
+	/** connections of the request still open */
+	private int held;
+
+	ConnectionPermits(ExecutionClassPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Count a new connection of the request, taking the permit for the first one.
+	 * 
+	 * @throws SQLException if no permit is available in time
+	 */
+	synchronized void acquire() throws SQLException {
+		if (held == 0) {
+			pool.acquireDbConnection();
+		}
+		held++;
+	}
+
+	/**
+	 * Count a closed connection of the request, giving the permit back with the
+	 * last one.
+	 */
+	synchronized void release() {
+		if (--held == 0) {
+			pool.releaseDbConnection();
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.execution;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assigns a controller method, or all the methods of a controller, to an
+ * execution class: the method runs on the class pool, asynchronously, so that
+ * the web server thread is released while it waits in the class queue.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface ExecutionClass {
+
+	/**
+	 * @return the execution class
+	 */
+	ServiceClass value();
+}
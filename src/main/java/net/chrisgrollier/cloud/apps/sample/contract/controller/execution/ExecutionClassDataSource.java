@@ -0,0 +1,75 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.execution;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source enforcing the database connection quota of the execution class
+ * running the calling request. Threads out of any class, such as the web
+ * server or scheduler ones, are not limited. The connections of a request share
+ * a single permit, see {@link ConnectionPermits}, given back when the last one
+ * is closed, even on another thread once the request task is over.
+ */
+public class ExecutionClassDataSource extends DelegatingDataSource {
+
+	public ExecutionClassDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		final ConnectionPermits permits = ExecutionClassPool.currentPermits();
+		if (permits == null) {
+			return super.getConnection();
+		}
+		permits.acquire();
+		try {
+			return limited(super.getConnection(), permits);
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		final ConnectionPermits permits = ExecutionClassPool.currentPermits();
+		if (permits == null) {
+			return super.getConnection(username, password);
+		}
+		permits.acquire();
+		try {
+			return limited(super.getConnection(username, password), permits);
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Wrap a connection so that closing it gives its permit back, once.
+	 */
+	private static Connection limited(Connection connection, ConnectionPermits permits) {
+		final AtomicBoolean closed = new AtomicBoolean();
+		return (Connection) Proxy.newProxyInstance(ExecutionClassDataSource.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					} finally {
+						if ("close".equals(method.getName()) && method.getParameterCount() == 0
+								&& closed.compareAndSet(false, true)) {
+							permits.release();
+						}
+					}
+				});
+	}
+}
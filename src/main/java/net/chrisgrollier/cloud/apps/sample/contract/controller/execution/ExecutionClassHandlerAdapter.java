@@ -0,0 +1,72 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.execution;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import net.chrisgrollier.cloud.apps.common.exception.http.ServiceUnavailableException;
+
+/**
+ * Handler adapter running the controller methods assigned to an
+ * {@link ExecutionClass} on the pool of that class. Arguments are resolved on
+ * the web server thread, the method itself is invoked by the pool, the result
+ * being written back on the async dispatch, as for a {@link WebAsyncTask}
+ * returned by the method.
+ * 
+ * A request its class queue has no room for is rejected at once with a
+ * {@link ServiceUnavailableException}, as is a request still running when the
+ * class timeout expires.
+ */
+public class ExecutionClassHandlerAdapter extends RequestMappingHandlerAdapter {
+
+	private final ExecutionClassPools pools;
+
+	public ExecutionClassHandlerAdapter(final ExecutionClassPools pools) {
+		this.pools = pools;
+	}
+
+	@Override
+	protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+		final ExecutionClass executionClass = executionClassOf(handlerMethod);
+		if (executionClass == null) {
+			return super.createInvocableHandlerMethod(handlerMethod);
+		}
+		return new PooledInvocableHandlerMethod(handlerMethod, pools.get(executionClass.value()));
+	}
+
+	private static ExecutionClass executionClassOf(HandlerMethod handlerMethod) {
+		final ExecutionClass executionClass = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(),
+				ExecutionClass.class);
+		if (executionClass != null) {
+			return executionClass;
+		}
+		return AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), ExecutionClass.class);
+	}
+
+	private static class PooledInvocableHandlerMethod extends ServletInvocableHandlerMethod {
+
+		private final ExecutionClassPool pool;
+
+		PooledInvocableHandlerMethod(HandlerMethod handlerMethod, ExecutionClassPool pool) {
+			super(handlerMethod);
+			this.pool = pool;
+		}
+
+		@Override
+		protected Object doInvoke(Object... args) throws Exception {
+			if (!pool.tryAdmit()) {
+				throw new ServiceUnavailableException(
+						"Too many pending " + pool.getServiceClass().name().toLowerCase() + " requests");
+			}
+			final WebAsyncTask<Object> task = new WebAsyncTask<>(pool.getTimeout(), pool.getTaskExecutor(),
+					pool.wrap(() -> super.doInvoke(args)));
+			task.onTimeout(() -> {
+				throw new ServiceUnavailableException(
+						"Timed out running " + pool.getServiceClass().name().toLowerCase() + " request");
+			});
+			return task;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.execution;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+import net.chrisgrollier.cloud.apps.common.concurrency.QueueingTime;
+
+/**
+ * The bounded pool of an execution class: a fixed number of threads, a queue
+ * of limited capacity, requests beyond being rejected, and a quota of database
+ * connections its threads may hold at once.
+ * 
+ * Queue depth, queue wait time, busy threads and rejections are reported,
+ * tagged with the class name, as {@code contract.execution.queue.depth},
+ * {@code contract.execution.queue.wait}, {@code contract.execution.active} and
+ * {@code contract.execution.rejected}.
+ */
+public class ExecutionClassPool {
+
+	private static final ThreadLocal<ExecutionClassPool> CURRENT = new ThreadLocal<>();
+
+	private static final ThreadLocal<ConnectionPermits> PERMITS = new ThreadLocal<>();
+
+	private final ServiceClass serviceClass;
+
+	private final ThreadPoolExecutor executor;
+
+	private final AsyncTaskExecutor taskExecutor;
+
+	private final Semaphore admissions;
+
+	private final Semaphore dbConnections;
+
+	private final long dbConnectionTimeout;
+
+	private final long timeout;
+
+	private final Timer queueWait;
+
+	private final MeterRegistry meterRegistry;
+
+	/**
+	 * @param serviceClass        the execution class
+	 * @param threads             the number of threads
+	 * @param queueCapacity       the maximum number of waiting requests
+	 * @param dbConnections       the maximum number of database connections held
+	 *                            at once
+	 * @param dbConnectionTimeout how long to wait for a database connection, in
+	 *                            milliseconds
+	 * @param timeout             the request timeout, in milliseconds
+	 * @param meterRegistry       the registry metrics are reported to
+	 */
+	public ExecutionClassPool(ServiceClass serviceClass, int threads, int queueCapacity, int dbConnections,
+			long dbConnectionTimeout, long timeout, MeterRegistry meterRegistry) {
+		this.serviceClass = serviceClass;
+		final String name = serviceClass.name().toLowerCase();
+		// the queue is bounded by admissions
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder().setNameFormat("exec-" + name + "-%d").build());
+		this.taskExecutor = new ConcurrentTaskExecutor(executor);
+		this.admissions = new Semaphore(threads + queueCapacity);
+		this.dbConnections = new Semaphore(dbConnections, true);
+		this.dbConnectionTimeout = dbConnectionTimeout;
+		this.timeout = timeout;
+		this.meterRegistry = meterRegistry;
+		this.queueWait = meterRegistry.timer("contract.execution.queue.wait", "class", name);
+		meterRegistry.gauge("contract.execution.queue.depth", Tags.of("class", name), executor,
+				e -> e.getQueue().size());
+		meterRegistry.gauge("contract.execution.active", Tags.of("class", name), executor,
+				ThreadPoolExecutor::getActiveCount);
+	}
+
+	/**
+	 * @return the pool of the execution class the current thread belongs to, null
+	 *         if none
+	 */
+	public static ExecutionClassPool current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @return the database connection permit of the request the current thread
+	 *         runs, null if it runs none
+	 */
+	static ConnectionPermits currentPermits() {
+		return PERMITS.get();
+	}
+
+	public ServiceClass getServiceClass() {
+		return serviceClass;
+	}
+
+	/**
+	 * @return the executor to hand tasks to, once admitted
+	 */
+	public AsyncTaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	/**
+	 * @return the request timeout, in milliseconds
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Admit a new task, if the queue is not full.
+	 * 
+	 * @return whether the task was admitted
+	 */
+	public boolean tryAdmit() {
+		if (admissions.tryAcquire()) {
+			return true;
+		}
+		meterRegistry.counter("contract.execution.rejected", "class", serviceClass.name().toLowerCase()).increment();
+		return false;
+	}
+
+	/**
+	 * Wrap an admitted task so that it runs in the context of the submitting
+	 * request, deadline included, and of this class, and frees its admission once
+	 * done. The database connection permit belongs to the task, not to the
+	 * thread, connections still open when it ends keeping it until closed.
+	 * 
+	 * @param task the task
+	 * @return the wrapped task
+	 */
+	public <T> Callable<T> wrap(Callable<T> task) {
+		final long submitted = System.nanoTime();
+		final LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+		final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+		final Deadline deadline = Deadline.current();
+		return () -> {
+			queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+			CURRENT.set(this);
+			PERMITS.set(new ConnectionPermits(this));
+			QueueingTime.set(submitted);
+			LocaleContextHolder.setLocaleContext(localeContext);
+			RequestContextHolder.setRequestAttributes(requestAttributes);
+			Deadline.set(deadline);
+			try {
+				// no need to start a request whose deadline passed while queued
+				Deadline.checkCurrent();
+				return task.call();
+			} finally {
+				Deadline.clear();
+				RequestContextHolder.resetRequestAttributes();
+				LocaleContextHolder.resetLocaleContext();
+				QueueingTime.clear();
+				PERMITS.remove();
+				CURRENT.remove();
+				admissions.release();
+			}
+		};
+	}
+
+	/**
+	 * Take a database connection permit from the class quota.
+	 * 
+	 * @throws SQLException if none is available in time
+	 */
+	void acquireDbConnection() throws SQLException {
+		try {
+			if (!dbConnections.tryAcquire(dbConnectionTimeout, TimeUnit.MILLISECONDS)) {
+				throw new SQLTransientConnectionException(
+						"Database connection quota of " + serviceClass + " execution class exhausted");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+		}
+	}
+
+	/**
+	 * Give a database connection permit back.
+	 */
+	void releaseDbConnection() {
+		dbConnections.release();
+	}
+
+	/**
+	 * Stop accepting tasks.
+	 */
+	void shutdown() {
+		executor.shutdown();
+	}
+}
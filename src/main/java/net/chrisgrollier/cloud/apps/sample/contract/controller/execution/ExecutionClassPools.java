@@ -0,0 +1,48 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.execution;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The pools of all execution classes, configured from the
+ * {@code contract.execution.<class>.*} properties.
+ */
+@Component
+public class ExecutionClassPools implements DisposableBean {
+
+	private final Map<ServiceClass, ExecutionClassPool> pools = new EnumMap<>(ServiceClass.class);
+
+	public ExecutionClassPools(final Environment environment, final MeterRegistry meterRegistry) {
+		for (ServiceClass serviceClass : ServiceClass.values()) {
+			final String prefix = serviceClass.propertyPrefix();
+			// @formatter:off
+			pools.put(serviceClass, new ExecutionClassPool(serviceClass,
+					environment.getProperty(prefix + "threads", Integer.class, serviceClass.getThreads()),
+					environment.getProperty(prefix + "queue-capacity", Integer.class, serviceClass.getQueueCapacity()),
+					environment.getProperty(prefix + "db-connections", Integer.class, serviceClass.getDbConnections()),
+					environment.getProperty(prefix + "db-connection-timeout", Long.class, 5000L),
+					environment.getProperty(prefix + "timeout", Long.class, serviceClass.getTimeout()),
+					meterRegistry));
+			// @formatter:on
+		}
+	}
+
+	/**
+	 * @param serviceClass the execution class
+	 * @return its pool
+	 */
+	public ExecutionClassPool get(ServiceClass serviceClass) {
+		return pools.get(serviceClass);
+	}
+
+	@Override
+	public void destroy() {
+		pools.values().forEach(ExecutionClassPool::shutdown);
+	}
+}
@@ -0,0 +1,57 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.execution;
+
+/**
+ * Execution classes endpoints are assigned to, each served by its own bounded
+ * pool. Defaults given here are overridden by the
+ * {@code contract.execution.<class>.*} properties, class being the lower case
+ * name.
+ */
+public enum ServiceClass {
+
+	/** Short requests a user waits for */
+	INTERACTIVE(32, 128, 8, 10000),
+
+	/** Long requests, reading or writing many contracts */
+	BULK(4, 16, 2, 60000),
+
+	/** Requests issued by other services */
+	INTERNAL(8, 64, 2, 30000);
+
+	private final int threads;
+
+	private final int queueCapacity;
+
+	private final int dbConnections;
+
+	private final long timeout;
+
+	private ServiceClass(int threads, int queueCapacity, int dbConnections, long timeout) {
+		this.threads = threads;
+		this.queueCapacity = queueCapacity;
+		this.dbConnections = dbConnections;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @return the property name prefix of the class
+	 */
+	public String propertyPrefix() {
+		return "contract.execution." + this.name().toLowerCase() + '.';
+	}
+
+	int getThreads() {
+		return threads;
+	}
+
+	int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	int getDbConnections() {
+		return dbConnections;
+	}
+
+	long getTimeout() {
+		return timeout;
+	}
+}
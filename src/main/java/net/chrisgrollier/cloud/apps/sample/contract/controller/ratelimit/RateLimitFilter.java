@@ -0,0 +1,176 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.ratelimit;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.UrlPathHelper;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chrisgrollier.cloud.apps.common.exception.http.TooManyRequestsException;
+
+/**
+ * Per client rate limiting of the given endpoint groups. Clients are told
+ * apart by their authenticated principal, else by their API key when they send
+ * one of the known keys, else by their address: an unknown key, which anyone
+ * may make up, does not earn a bucket of its own. A client exceeding the rate of a group
+ * gets a 429 response carrying a Retry-After header, the body being rendered
+ * by the application exception handlers.
+ * 
+ * Buckets are kept in memory, up to a maximum count, and dropped once idle.
+ * Throttled requests are counted per group as
+ * {@code contract.ratelimit.throttled}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	/** The header clients may identify themselves with */
+	public static final String API_KEY_HEADER = "X-Api-Key";
+
+	private final List<RateLimitGroup> groups;
+
+	private final Set<String> apiKeys;
+
+	private final Cache<BucketKey, TokenBucket> buckets;
+
+	private final HandlerExceptionResolver exceptionResolver;
+
+	private final MeterRegistry meterRegistry;
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	/**
+	 * @param groups            endpoint groups, the first one matching a request
+	 *                          applying
+	 * @param apiKeys           the API keys clients may identify themselves with
+	 * @param maxBuckets        the maximum number of buckets kept
+	 * @param idleTimeout       the time after which a bucket left unused is
+	 *                          dropped, in seconds
+	 * @param exceptionResolver the resolver rendering rejections
+	 * @param meterRegistry     the registry metrics are reported to
+	 */
+	public RateLimitFilter(List<RateLimitGroup> groups, Set<String> apiKeys, long maxBuckets, long idleTimeout,
+			HandlerExceptionResolver exceptionResolver, MeterRegistry meterRegistry) {
+		this.groups = ImmutableList.copyOf(groups);
+		// an empty list property may be bound as a single empty key
+		this.apiKeys = ImmutableSet.copyOf(apiKeys.stream().filter(key -> !key.isEmpty()).collect(Collectors.toSet()));
+		// idle buckets are full again, dropping them loses nothing
+		this.buckets = CacheBuilder.newBuilder().maximumSize(maxBuckets)
+				.expireAfterAccess(idleTimeout, TimeUnit.SECONDS).build();
+		this.exceptionResolver = exceptionResolver;
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * @return the number of buckets currently kept
+	 */
+	public long size() {
+		return buckets.size();
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		final RateLimitGroup group = this.groupOf(request);
+		if (group == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		final long now = System.nanoTime();
+		final TokenBucket bucket;
+		try {
+			bucket = buckets.get(new BucketKey(group.getName(), clientOf(request)), () -> group.newBucket(now));
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		final long wait = bucket.tryConsume(now);
+		if (wait == 0) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		meterRegistry.counter("contract.ratelimit.throttled", "group", group.getName()).increment();
+		response.setHeader(HttpHeaders.RETRY_AFTER,
+				String.valueOf(Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+		final TooManyRequestsException exception = new TooManyRequestsException(
+				"Rate limit of " + group.getName() + " requests exceeded");
+		if (exceptionResolver.resolveException(request, response, null, exception) == null) {
+			response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), exception.getMessage());
+		}
+	}
+
+	private RateLimitGroup groupOf(HttpServletRequest request) {
+		final HttpMethod method = HttpMethod.resolve(request.getMethod());
+		final String path = urlPathHelper.getPathWithinApplication(request);
+		for (RateLimitGroup group : groups) {
+			if (group.getMethods().contains(method)
+					&& group.getPathPatterns().stream().anyMatch(pattern -> pathMatcher.match(pattern, path))) {
+				return group;
+			}
+		}
+		return null;
+	}
+
+	private String clientOf(HttpServletRequest request) {
+		final Principal principal = request.getUserPrincipal();
+		if (principal != null) {
+			return "user:" + principal.getName();
+		}
+		final String apiKey = request.getHeader(API_KEY_HEADER);
+		if (apiKey != null && apiKeys.contains(apiKey)) {
+			return "key:" + apiKey;
+		}
+		return "address:" + request.getRemoteAddr();
+	}
+
+	private static final class BucketKey {
+
+		private final String group;
+
+		private final String client;
+
+		BucketKey(String group, String client) {
+			this.group = group;
+			this.client = client;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(group, client);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BucketKey)) {
+				return false;
+			}
+			final BucketKey other = (BucketKey) obj;
+			return group.equals(other.group) && client.equals(other.client);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.ratelimit;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.http.HttpMethod;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A group of endpoints sharing a rate limit, each client getting its own
+ * bucket for the group.
+ */
+public final class RateLimitGroup {
+
+	private final String name;
+
+	private final Set<HttpMethod> methods;
+
+	private final Collection<String> pathPatterns;
+
+	private final int capacity;
+
+	private final double refillPerSecond;
+
+	/**
+	 * @param name            the group name, used in metrics
+	 * @param methods         the HTTP methods of the endpoints
+	 * @param pathPatterns    the path patterns of the endpoints
+	 * @param capacity        the number of requests a client may burst
+	 * @param refillPerSecond the number of requests per second a client may
+	 *                        sustain
+	 */
+	public RateLimitGroup(String name, Set<HttpMethod> methods, Collection<String> pathPatterns, int capacity,
+			double refillPerSecond) {
+		this.name = name;
+		this.methods = ImmutableSet.copyOf(methods);
+		this.pathPatterns = ImmutableList.copyOf(pathPatterns);
+		this.capacity = capacity;
+		this.refillPerSecond = refillPerSecond;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Set<HttpMethod> getMethods() {
+		return methods;
+	}
+
+	public Collection<String> getPathPatterns() {
+		return pathPatterns;
+	}
+
+	/**
+	 * @param now the current time, in nanoseconds
+	 * @return a new full bucket for a client of the group
+	 */
+	TokenBucket newBucket(long now) {
+		return new TokenBucket(capacity, refillPerSecond, now);
+	}
+}
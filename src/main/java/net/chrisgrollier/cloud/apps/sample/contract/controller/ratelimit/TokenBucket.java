@@ -0,0 +1,50 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, in its generic cell rate algorithm form: instead of
+ * a token count and a refill date, the bucket keeps the single date at which it
+ * would be full again, updated with a compare and set.
+ */
+public class TokenBucket {
+
+	private final long emissionInterval;
+
+	private final long burstTolerance;
+
+	private final AtomicLong fullAt;
+
+	/**
+	 * @param capacity        the number of tokens the bucket holds when full
+	 * @param refillPerSecond the number of tokens added each second
+	 * @param now             the current time, in nanoseconds
+	 */
+	public TokenBucket(int capacity, double refillPerSecond, long now) {
+		this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+		this.burstTolerance = emissionInterval * capacity;
+		this.fullAt = new AtomicLong(now);
+	}
+
+	/**
+	 * Take a token.
+	 * 
+	 * @param now the current time, in nanoseconds
+	 * @return 0 if a token was taken, otherwise how long to wait for one, in
+	 *         nanoseconds
+	 */
+	public long tryConsume(long now) {
+		while (true) {
+			final long current = fullAt.get();
+			final long next = Math.max(current, now) + emissionInterval;
+			final long excess = next - now - burstTolerance;
+			if (excess > 0) {
+				return excess;
+			}
+			if (fullAt.compareAndSet(current, next)) {
+				return 0;
+			}
+		}
+	}
+}
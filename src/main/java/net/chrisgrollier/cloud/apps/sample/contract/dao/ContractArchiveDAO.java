@@ -0,0 +1,16 @@
+package net.chrisgrollier.cloud.apps.sample.contract.dao;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractArchiveEntity;
+
+/**
+ * A basic archived contract DAO based spring data
+ */
+@Repository
+public interface ContractArchiveDAO extends CrudRepository<ContractArchiveEntity, Integer> {
+
+	Iterable<ContractArchiveEntity> findByUserId(Integer userId);
+
+}
@@ -1,18 +1,81 @@
 package net.chrisgrollier.cloud.apps.sample.contract.dao;
 
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractEntity;
 
 
 /**
- * A basic contract DAO based spring data
+ * A basic contract DAO based spring data. Contracts having a deletion date are
+ * soft deleted and only wait for being archived, hence "live" finders filter
+ * them out.
  */
 @Repository
 public interface ContractDAO extends CrudRepository<ContractEntity, Integer> {
 	
-	Iterable<ContractEntity> findByUserId(Integer userId);
+	Iterable<ContractEntity> findByDeletionDateIsNull();
+
+	Optional<ContractEntity> findByIdAndDeletionDateIsNull(Integer id);
+
+	Iterable<ContractEntity> findByUserIdAndDeletionDateIsNull(Integer userId);
+
+	List<ContractEntity> findByUserIdInAndDeletionDateIsNull(Collection<Integer> userIds);
+
+	List<ContractEntity> findByIdBetweenAndDeletionDateIsNull(Integer from, Integer to);
+
+	Iterable<ContractEntity> findByDeletionDateIsNotNull();
+
+	Optional<ContractEntity> findByIdAndDeletionDateIsNotNull(Integer id);
+
+	Iterable<ContractEntity> findByUserIdAndDeletionDateIsNotNull(Integer userId);
+
+	Optional<ContractEntity> findFirstByOrderByIdAsc();
+
+	Optional<ContractEntity> findFirstByOrderByIdDesc();
+
+	/**
+	 * Read the current watermark of the contract table, telling whether it
+	 * changed since a previous one was read.
+	 * 
+	 * @return the watermark
+	 */
+	default ContractWatermark findWatermark() {
+		return new ContractWatermark(this.findVersion());
+	}
+
+	/**
+	 * @return the committed version of the contract table, bumped by a trigger
+	 */
+	@Query(value = "SELECT CAST(sum(version) AS BIGINT) FROM contract_version", nativeQuery = true)
+	long findVersion();
+
+	/**
+	 * Find and lock contracts that should be moved to the archive, i.e. soft
+	 * deleted or expired before the given date. Contracts locked by another
+	 * transaction, e.g. the archiver of another instance, are skipped, so that
+	 * concurrent archivers move distinct batches.
+	 * 
+	 * @param date  the expiration limit date
+	 * @param limit the maximum number of contracts to retrieve
+	 * @return a batch of inactive contracts, locked until the end of the
+	 *         transaction
+	 */
+	@Query(value = "SELECT * FROM contract WHERE deletion_date IS NOT NULL OR expiration_date < :date"
+			+ " ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+	List<ContractEntity> lockInactiveContracts(@Param("date") LocalDateTime date, @Param("limit") int limit);
+
+	@Modifying
+	@Query("delete from ContractEntity c where c.id in :ids")
+	int deleteByIds(@Param("ids") Collection<Integer> ids);
 
 }
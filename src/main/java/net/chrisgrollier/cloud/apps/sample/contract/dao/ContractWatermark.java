@@ -0,0 +1,47 @@
+package net.chrisgrollier.cloud.apps.sample.contract.dao;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * State of the contract table, its version being maintained by the database:
+ * every committed insert, update or delete moves it, whatever the clock of the
+ * instance making the change and however late it commits, so equal watermarks
+ * tell that the table did not change.
+ */
+public class ContractWatermark {
+
+	private final long version;
+
+	public ContractWatermark(long version) {
+		this.version = version;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(version);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ContractWatermark)) {
+			return false;
+		}
+		return version == ((ContractWatermark) obj).version;
+	}
+
+	@Override
+	public String toString() {
+		// @formatter:off
+		return MoreObjects.toStringHelper(this)
+				.add("version", version)
+				.toString();
+		// @formatter:on
+	}
+}
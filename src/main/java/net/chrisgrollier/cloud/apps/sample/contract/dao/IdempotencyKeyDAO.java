@@ -0,0 +1,39 @@
+package net.chrisgrollier.cloud.apps.sample.contract.dao;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import net.chrisgrollier.cloud.apps.sample.contract.entity.IdempotencyKeyEntity;
+
+/**
+ * A basic idempotency key DAO based spring data
+ */
+@Repository
+public interface IdempotencyKeyDAO extends CrudRepository<IdempotencyKeyEntity, String> {
+
+	/**
+	 * Reserve again a key whose record expired, unless another request did it
+	 * first.
+	 * 
+	 * @param key            the idempotency key
+	 * @param fingerprint    the fingerprint of the request taking the key over
+	 * @param now            the current date, the record must have expired before
+	 * @param expirationDate the end of the new reservation
+	 * @return 1 if the key has been taken over, 0 otherwise
+	 */
+	@Modifying
+	@Query("update IdempotencyKeyEntity k set k.fingerprint = :fingerprint, k.response = null,"
+			+ " k.expirationDate = :expirationDate where k.key = :key and k.expirationDate <= :now")
+	int takeOver(@Param("key") String key, @Param("fingerprint") String fingerprint, @Param("now") LocalDateTime now,
+			@Param("expirationDate") LocalDateTime expirationDate);
+
+	@Modifying
+	@Query("delete from IdempotencyKeyEntity k where k.expirationDate < :date")
+	int deleteExpired(@Param("date") LocalDateTime date);
+
+}
@@ -0,0 +1,148 @@
+package net.chrisgrollier.cloud.apps.sample.contract.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A contract that has been moved out of the {@code CONTRACT} table because it
+ * was deleted or expired. Keeps the identifier it had in the live table.
+ */
+@Entity
+@Table(name = "CONTRACT_ARCHIVE")
+public class ContractArchiveEntity {
+
+    /** The contract identifier, as it was in the live table */
+    @Id
+    @Column(name = "Id", nullable = false)
+    private Integer id;
+
+    /** The contract type, possible values {LOA, VAC, LLD} */
+    @Column(name = "TYPE", length = 64, nullable = false)
+    private ContractType type;
+
+    /** The contract duration in months */
+    @Column(name = "DURATION", nullable = false)
+    private Integer duration;
+
+    /** The monthly contract price */
+    @Column(name = "PRICE", nullable = false)
+    private Double price;
+
+    /** The contract user ID */
+    @Column(name = "USERID", nullable = false)
+    private Integer userId;
+
+    /** The contract creation date */
+    @Column(name = "CREATION_DATE")
+    private LocalDateTime creationDate;
+
+    /** The contract expiration date */
+    @Column(name = "EXPIRATION_DATE")
+    private LocalDateTime expirationDate;
+
+    /** The contract deletion date, null if the contract was archived because expired */
+    @Column(name = "DELETION_DATE")
+    private LocalDateTime deletionDate;
+
+    /** The date the contract was moved to the archive */
+    @Column(name = "ARCHIVE_DATE", nullable = false)
+    private LocalDateTime archiveDate;
+
+    public ContractArchiveEntity() {
+        super();
+    }
+
+    /**
+     * Build a new archive entry from a live contract.
+     *
+     * @param contract    the live contract to archive
+     * @param archiveDate the archive date
+     */
+    public ContractArchiveEntity(ContractEntity contract, LocalDateTime archiveDate) {
+        this.id = contract.getId();
+        this.type = contract.getType();
+        this.duration = contract.getDuration();
+        this.price = contract.getPrice();
+        this.userId = contract.getUserId();
+        this.creationDate = contract.getCreationDate();
+        this.expirationDate = contract.getExpirationDate();
+        this.deletionDate = contract.getDeletionDate();
+        this.archiveDate = archiveDate;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public ContractType getType() {
+        return type;
+    }
+
+    public void setType(ContractType type) {
+        this.type = type;
+    }
+
+    public Integer getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Integer duration) {
+        this.duration = duration;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public LocalDateTime getExpirationDate() {
+        return expirationDate;
+    }
+
+    public LocalDateTime getDeletionDate() {
+        return deletionDate;
+    }
+
+    public LocalDateTime getArchiveDate() {
+        return archiveDate;
+    }
+
+    @Override
+    public String toString() {
+        // @formatter:off
+        return MoreObjects.toStringHelper(this)
+                          .add("id", id)
+                          .add("type", type)
+                          .add("duration", duration)
+                          .add("price", price)
+                          .add("userId", userId)
+                          .add("creationDate", creationDate)
+                          .add("expirationDate", expirationDate)
+                          .add("deletionDate", deletionDate)
+                          .add("archiveDate", archiveDate)
+                          .toString();
+        // @formatter:on
+    }
+
+}
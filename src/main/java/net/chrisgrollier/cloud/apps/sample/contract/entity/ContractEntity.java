@@ -3,10 +3,14 @@
  */
 package net.chrisgrollier.cloud.apps.sample.contract.entity;
 
+import java.time.LocalDateTime;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 
 import com.google.common.base.MoreObjects;
@@ -37,6 +41,22 @@ public class ContractEntity {
     @Column(name = "USERID", nullable = false)
     private Integer userId;
 
+    /** The contract creation date */
+    @Column(name = "CREATION_DATE")
+    private LocalDateTime creationDate;
+
+    /** The contract expiration date, computed from creation date and duration */
+    @Column(name = "EXPIRATION_DATE")
+    private LocalDateTime expirationDate;
+
+    /** The contract deletion date, null as long as the contract is live */
+    @Column(name = "DELETION_DATE")
+    private LocalDateTime deletionDate;
+
+    /** The date of the last change made to the contract */
+    @Column(name = "LAST_MODIFIED")
+    private LocalDateTime lastModified;
+
     public ContractType getType() {
         return type;
     }
@@ -76,6 +96,40 @@ public class ContractEntity {
 		this.userId = userId;
 	}
 
+	public LocalDateTime getCreationDate() {
+		return creationDate;
+	}
+
+	public LocalDateTime getExpirationDate() {
+		return expirationDate;
+	}
+
+	public LocalDateTime getDeletionDate() {
+		return deletionDate;
+	}
+
+	public void setDeletionDate(LocalDateTime deletionDate) {
+		this.deletionDate = deletionDate;
+	}
+
+	public LocalDateTime getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Stamps creation date on first save, last modification date on every save
+	 * and (re)computes expiration date, since duration may have changed.
+	 */
+	@PrePersist
+	@PreUpdate
+	protected void computeDates() {
+		lastModified = LocalDateTime.now();
+		if (creationDate == null) {
+			creationDate = lastModified;
+		}
+		expirationDate = duration == null ? null : creationDate.plusMonths(duration);
+	}
+
 	@Override
     public String toString() {
         // @formatter:off
@@ -85,6 +139,10 @@ public class ContractEntity {
                           .add("duration", duration)
                           .add("price", price)
                           .add("userId", userId)
+                          .add("creationDate", creationDate)
+                          .add("expirationDate", expirationDate)
+                          .add("deletionDate", deletionDate)
+                          .add("lastModified", lastModified)
                           .toString();
         // @formatter:on
     }
@@ -0,0 +1,87 @@
+package net.chrisgrollier.cloud.apps.sample.contract.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Type;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * An idempotency key received with a non idempotent request, together with the
+ * result of that request once it has been processed.
+ */
+@Entity
+@Table(name = "IDEMPOTENCY_KEY")
+public class IdempotencyKeyEntity {
+
+    /** The idempotency key, scoped by the calling principal */
+    @Id
+    @Column(name = "KEY_ID", length = 320, nullable = false)
+    private String key;
+
+    /** A fingerprint of the request, to detect a key reused for another request */
+    @Column(name = "FINGERPRINT", length = 64, nullable = false)
+    private String fingerprint;
+
+    /**
+     * The serialized request result, null while the request is in progress.
+     * Mapped as text, a {@code Lob} being stored as a large object by the
+     * Postgres driver
+     */
+    @Type(type = "org.hibernate.type.TextType")
+    @Column(name = "RESPONSE")
+    private String response;
+
+    /** The date after which the key can be purged */
+    @Column(name = "EXPIRATION_DATE", nullable = false)
+    private LocalDateTime expirationDate;
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public LocalDateTime getExpirationDate() {
+        return expirationDate;
+    }
+
+    public void setExpirationDate(LocalDateTime expirationDate) {
+        this.expirationDate = expirationDate;
+    }
+
+    @Override
+    public String toString() {
+        // @formatter:off
+        return MoreObjects.toStringHelper(this)
+                          .add("key", key)
+                          .add("fingerprint", fingerprint)
+                          .add("expirationDate", expirationDate)
+                          .toString();
+        // @formatter:on
+    }
+
+}
@@ -0,0 +1,160 @@
+package net.chrisgrollier.cloud.apps.sample.contract.grpc;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.Iterators;
+import com.google.protobuf.Empty;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.grpc.stub.StreamObservers;
+import net.chrisgrollier.cloud.apps.common.exception.http.BadRequestException;
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+import net.chrisgrollier.cloud.apps.common.log.aop.Loggable;
+import net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.client.UserServiceClient;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractIdRequest;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractMessage;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractsGrpc;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ListContractsRequest;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.UpdateContractRequest;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.UserIdRequest;
+import net.chrisgrollier.cloud.apps.sample.contract.service.ContractService;
+import net.chrisgrollier.cloud.apps.sample.contract.service.idempotency.IdempotencyService;
+
+/**
+ * gRPC counterpart of the contract REST controller. It relies on the same
+ * services, validation and error handling, contract lists being streamed with
+ * respect to the client flow control.
+ */
+@Component
+@Loggable(debug = true, service = "contractService")
+public class ContractGrpcService extends ContractsGrpc.ContractsImplBase {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContractGrpcService.class);
+
+	private final ContractService contractService;
+
+	private final IdempotencyService idempotencyService;
+
+	private final BidiMapper<Contract, ContractMessage> mapper;
+
+	private final Validator validator;
+
+	private final GrpcExceptionTranslator exceptionTranslator;
+
+	private final UserServiceClient userServiceClient;
+
+	public ContractGrpcService(final ContractService contractService, final IdempotencyService idempotencyService,
+			final BidiMapper<Contract, ContractMessage> contractProtoMapper, final Validator validator,
+			final GrpcExceptionTranslator exceptionTranslator, final UserServiceClient userServiceClient) {
+		this.contractService = contractService;
+		this.idempotencyService = idempotencyService;
+		this.mapper = contractProtoMapper;
+		this.validator = validator;
+		this.exceptionTranslator = exceptionTranslator;
+		this.userServiceClient = userServiceClient;
+	}
+
+	@Override
+	public void getContract(ContractIdRequest request, StreamObserver<ContractMessage> responseObserver) {
+		this.unary(responseObserver,
+				() -> mapper.to(contractService.findContract(request.getId(), request.getIncludeArchived())));
+	}
+
+	@Override
+	public void listContracts(ListContractsRequest request, StreamObserver<ContractMessage> responseObserver) {
+		this.stream(responseObserver, () -> contractService.findAllContracts(request.getIncludeArchived()));
+	}
+
+	@Override
+	public void listContractsByUser(UserIdRequest request, StreamObserver<ContractMessage> responseObserver) {
+		this.stream(responseObserver,
+				() -> contractService.findContractsByUserId(request.getUserId(), request.getIncludeArchived()));
+	}
+
+	@Override
+	public void addContract(ContractMessage request, StreamObserver<ContractMessage> responseObserver) {
+		this.unary(responseObserver, () -> {
+			final Contract contract = this.validate(mapper.from(request));
+			final String idempotencyKey = GrpcRequestContext.IDEMPOTENCY_KEY.get();
+			if (idempotencyKey == null) {
+				return mapper.to(this.createContract(contract));
+			}
+			return mapper.to(idempotencyService.execute(GrpcRequestContext.PRINCIPAL.get(), idempotencyKey, contract,
+					Contract.class, () -> this.createContract(contract)));
+		});
+	}
+
+	private Contract createContract(Contract contract) {
+		final Contract newContract = contractService.addContract(contract, this.roleOf(contract.getUserId()));
+		LogUtil.business(LOGGER, "Contract with id= {} has been created", newContract.getId());
+		return newContract;
+	}
+
+	@Override
+	public void updateContract(UpdateContractRequest request, StreamObserver<ContractMessage> responseObserver) {
+		this.unary(responseObserver, () -> {
+			final Contract contract = this.validate(mapper.from(request.getContract()));
+			return mapper.to(contractService.updateContract(request.getId(), contract,
+					this.roleOf(contract.getUserId())));
+		});
+	}
+
+	private String roleOf(Integer userId) {
+		return userServiceClient.findRole(userId, GrpcRequestContext.AUTHORIZATION.get())
+				.orElseThrow(() -> new BadRequestException("Unknown user " + userId));
+	}
+
+	@Override
+	public void deleteContract(ContractIdRequest request, StreamObserver<Empty> responseObserver) {
+		this.unary(responseObserver, () -> {
+			contractService.deleteContract(request.getId());
+			LogUtil.business(LOGGER, "Contract with id= {} has been deleted", request.getId());
+			return Empty.getDefaultInstance();
+		});
+	}
+
+	private Contract validate(Contract contract) {
+		final Set<ConstraintViolation<Contract>> violations = validator.validate(contract);
+		if (!violations.isEmpty()) {
+			throw new ConstraintViolationException(violations);
+		}
+		return contract;
+	}
+
+	private <T> void unary(StreamObserver<T> responseObserver, Supplier<T> call) {
+		final T response;
+		try {
+			response = call.get();
+		} catch (RuntimeException e) {
+			responseObserver.onError(exceptionTranslator.translate(e));
+			return;
+		}
+		responseObserver.onNext(response);
+		responseObserver.onCompleted();
+	}
+
+	private void stream(StreamObserver<ContractMessage> responseObserver, Supplier<Collection<Contract>> call) {
+		final Collection<Contract> contracts;
+		try {
+			contracts = call.get();
+		} catch (RuntimeException e) {
+			responseObserver.onError(exceptionTranslator.translate(e));
+			return;
+		}
+		StreamObservers.copyWithFlowControl(Iterators.transform(contracts.iterator(), mapper::to),
+				(ServerCallStreamObserver<ContractMessage>) responseObserver);
+	}
+}
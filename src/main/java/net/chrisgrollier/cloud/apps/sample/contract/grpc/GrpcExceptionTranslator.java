@@ -0,0 +1,109 @@
+package net.chrisgrollier.cloud.apps.sample.contract.grpc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.protobuf.ProtoUtils;
+import net.chrisgrollier.cloud.apps.common.exception.handler.ExceptionResponse;
+import net.chrisgrollier.cloud.apps.common.exception.handler.support.BasicWebAppExceptionHandler;
+import net.chrisgrollier.cloud.apps.sample.contract.mapping.ExceptionResponseProtoMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ExceptionResponseMessage;
+
+/**
+ * Translates exceptions raised while serving gRPC calls into a gRPC status.
+ * Exceptions are first handed to the application exception handler, so that
+ * gRPC clients get the same (localized) error response REST clients get, sent
+ * in the {@link #EXCEPTION_RESPONSE_KEY} trailer.
+ */
+@Component
+public class GrpcExceptionTranslator {
+
+	public static final Metadata.Key<ExceptionResponseMessage> EXCEPTION_RESPONSE_KEY = Metadata.Key
+			.of("exception-response-bin", ProtoUtils.metadataMarshaller(ExceptionResponseMessage.getDefaultInstance()));
+
+	private final BasicWebAppExceptionHandler exceptionHandler;
+
+	private final ExceptionHandlerMethodResolver resolver;
+
+	private final ExceptionResponseProtoMapper mapper;
+
+	public GrpcExceptionTranslator(final BasicWebAppExceptionHandler exceptionHandler,
+			final ExceptionResponseProtoMapper exceptionResponseProtoMapper) {
+		this.exceptionHandler = exceptionHandler;
+		this.resolver = new ExceptionHandlerMethodResolver(ClassUtils.getUserClass(exceptionHandler));
+		this.mapper = exceptionResponseProtoMapper;
+	}
+
+	/**
+	 * Translate the given exception.
+	 * 
+	 * @param exception the exception raised while serving a call
+	 * @return the exception to close the call with
+	 */
+	public StatusRuntimeException translate(Exception exception) {
+		if (exception instanceof StatusRuntimeException) {
+			return (StatusRuntimeException) exception;
+		}
+		final ExceptionResponse response = this.handle(exception);
+		final Metadata trailers = new Metadata();
+		trailers.put(EXCEPTION_RESPONSE_KEY, mapper.to(response));
+		// @formatter:off
+		return toStatus(response.getStatusCode())
+				.withDescription(response.getMessage())
+				.withCause(exception)
+				.asRuntimeException(trailers);
+		// @formatter:on
+	}
+
+	private ExceptionResponse handle(Exception exception) {
+		final Method method = resolver.resolveMethod(exception);
+		if (method != null) {
+			try {
+				final Object result = method.invoke(exceptionHandler, exception);
+				if (result instanceof ResponseEntity && ((ResponseEntity<?>) result).getBody() instanceof ExceptionResponse) {
+					return (ExceptionResponse) ((ResponseEntity<?>) result).getBody();
+				}
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				// falls back to a generic response below
+			}
+		}
+		return ExceptionResponse.of(HttpStatus.INTERNAL_SERVER_ERROR, exception.getMessage());
+	}
+
+	private static Status toStatus(HttpStatus status) {
+		switch (status) {
+		case BAD_REQUEST:
+		case UNPROCESSABLE_ENTITY:
+		case UNSUPPORTED_MEDIA_TYPE:
+			return Status.INVALID_ARGUMENT;
+		case UNAUTHORIZED:
+			return Status.UNAUTHENTICATED;
+		case FORBIDDEN:
+			return Status.PERMISSION_DENIED;
+		case NOT_FOUND:
+			return Status.NOT_FOUND;
+		case CONFLICT:
+			return Status.ABORTED;
+		case TOO_MANY_REQUESTS:
+			return Status.RESOURCE_EXHAUSTED;
+		case NOT_IMPLEMENTED:
+			return Status.UNIMPLEMENTED;
+		case SERVICE_UNAVAILABLE:
+		case BAD_GATEWAY:
+			return Status.UNAVAILABLE;
+		case GATEWAY_TIMEOUT:
+			return Status.DEADLINE_EXCEEDED;
+		default:
+			return Status.INTERNAL;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package net.chrisgrollier.cloud.apps.sample.contract.grpc;
+
+import io.grpc.Context;
+import io.grpc.Metadata;
+
+/**
+ * Metadata keys read from gRPC calls and the context keys their values are
+ * exposed with to the service implementation, mirroring the http headers of
+ * the REST API.
+ */
+public final class GrpcRequestContext {
+
+	static final Metadata.Key<String> AUTHORIZATION_HEADER = Metadata.Key.of("authorization",
+			Metadata.ASCII_STRING_MARSHALLER);
+
+	static final Metadata.Key<String> ACCEPT_LANGUAGE_HEADER = Metadata.Key.of("accept-language",
+			Metadata.ASCII_STRING_MARSHALLER);
+
+	static final Metadata.Key<String> IDEMPOTENCY_KEY_HEADER = Metadata.Key.of("idempotency-key",
+			Metadata.ASCII_STRING_MARSHALLER);
+
+	/** The raw authorization header, forwarded to the users service */
+	public static final Context.Key<String> AUTHORIZATION = Context.key("authorization");
+
+	/** The authenticated principal name */
+	public static final Context.Key<String> PRINCIPAL = Context.key("principal");
+
+	/** The idempotency key of the call, if any */
+	public static final Context.Key<String> IDEMPOTENCY_KEY = Context.key("idempotency-key");
+
+	private GrpcRequestContext() {
+	}
+}
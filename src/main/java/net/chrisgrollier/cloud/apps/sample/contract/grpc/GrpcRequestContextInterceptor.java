@@ -0,0 +1,164 @@
+package net.chrisgrollier.cloud.apps.sample.contract.grpc;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+
+/**
+ * Authenticates gRPC calls with the same http basic credentials as the REST
+ * API, and makes the authentication and the requested locale available to the
+ * service the same way Spring MVC does, through {@link SecurityContextHolder}
+ * and {@link LocaleContextHolder}. The call deadline, if any, becomes the
+ * request {@link Deadline}.
+ */
+@Component
+public class GrpcRequestContextInterceptor implements ServerInterceptor {
+
+	private static final String BASIC_PREFIX = "Basic ";
+
+	private final AuthenticationConfiguration authenticationConfiguration;
+
+	private volatile AuthenticationManager authenticationManager;
+
+	public GrpcRequestContextInterceptor(final AuthenticationConfiguration authenticationConfiguration) {
+		this.authenticationConfiguration = authenticationConfiguration;
+	}
+
+	@Override
+	public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+			ServerCallHandler<Q, R> next) {
+		final String authorization = headers.get(GrpcRequestContext.AUTHORIZATION_HEADER);
+		final Authentication authentication;
+		try {
+			authentication = this.authenticate(authorization);
+		} catch (AuthenticationException e) {
+			call.close(Status.UNAUTHENTICATED.withDescription(e.getMessage()), new Metadata());
+			return new ServerCall.Listener<Q>() {
+			};
+		}
+		final Locale locale = this.resolveLocale(headers.get(GrpcRequestContext.ACCEPT_LANGUAGE_HEADER));
+		// @formatter:off
+		final Context context = Context.current()
+				.withValue(GrpcRequestContext.AUTHORIZATION, authorization)
+				.withValue(GrpcRequestContext.PRINCIPAL, authentication.getName())
+				.withValue(GrpcRequestContext.IDEMPOTENCY_KEY, headers.get(GrpcRequestContext.IDEMPOTENCY_KEY_HEADER));
+		// @formatter:on
+		final io.grpc.Deadline callDeadline = context.getDeadline();
+		final Deadline deadline = callDeadline == null ? null
+				: Deadline.after(callDeadline.timeRemaining(TimeUnit.MILLISECONDS));
+		final ServerCall.Listener<Q> listener = Contexts.interceptCall(context, call, headers, next);
+		return new SimpleForwardingServerCallListener<Q>(listener) {
+
+			@Override
+			public void onMessage(Q message) {
+				this.run(() -> super.onMessage(message));
+			}
+
+			@Override
+			public void onHalfClose() {
+				this.run(super::onHalfClose);
+			}
+
+			@Override
+			public void onCancel() {
+				this.run(super::onCancel);
+			}
+
+			@Override
+			public void onComplete() {
+				this.run(super::onComplete);
+			}
+
+			@Override
+			public void onReady() {
+				this.run(super::onReady);
+			}
+
+			private void run(Runnable callback) {
+				LocaleContextHolder.setLocale(locale);
+				SecurityContextHolder.getContext().setAuthentication(authentication);
+				Deadline.set(deadline);
+				try {
+					callback.run();
+				} finally {
+					Deadline.clear();
+					SecurityContextHolder.clearContext();
+					LocaleContextHolder.resetLocaleContext();
+				}
+			}
+		};
+	}
+
+	private Authentication authenticate(String authorization) {
+		if (authorization == null || !authorization.startsWith(BASIC_PREFIX)) {
+			throw new BadCredentialsException("Basic credentials are required");
+		}
+		final String credentials;
+		try {
+			credentials = new String(BaseEncoding.base64().decode(authorization.substring(BASIC_PREFIX.length())),
+					Charsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new BadCredentialsException("Invalid basic credentials");
+		}
+		final int separator = credentials.indexOf(':');
+		if (separator < 0) {
+			throw new BadCredentialsException("Invalid basic credentials");
+		}
+		return this.getAuthenticationManager().authenticate(new UsernamePasswordAuthenticationToken(
+				credentials.substring(0, separator), credentials.substring(separator + 1)));
+	}
+
+	/**
+	 * The authentication manager is only built once the security configuration
+	 * is complete, so it is looked up on first use.
+	 */
+	private AuthenticationManager getAuthenticationManager() {
+		AuthenticationManager manager = this.authenticationManager;
+		if (manager == null) {
+			try {
+				manager = authenticationConfiguration.getAuthenticationManager();
+			} catch (Exception e) {
+				throw new IllegalStateException("Unable to get the authentication manager", e);
+			}
+			this.authenticationManager = manager;
+		}
+		return manager;
+	}
+
+	private Locale resolveLocale(String acceptLanguage) {
+		if (acceptLanguage != null) {
+			try {
+				final List<Locale.LanguageRange> ranges = Locale.LanguageRange.parse(acceptLanguage);
+				if (!ranges.isEmpty()) {
+					return Locale.forLanguageTag(ranges.get(0).getRange());
+				}
+			} catch (IllegalArgumentException e) {
+				// ignored, falls back to the default locale as Spring MVC does
+			}
+		}
+		return Locale.getDefault();
+	}
+}
@@ -0,0 +1,85 @@
+package net.chrisgrollier.cloud.apps.sample.contract.grpc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+
+/**
+ * Runs the embedded gRPC server alongside the web server, on its own port.
+ */
+@Component
+@ConditionalOnProperty(name = "grpc.server.enabled", havingValue = "true", matchIfMissing = true)
+public class GrpcServerLifecycle implements SmartLifecycle {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GrpcServerLifecycle.class);
+
+	private final ContractGrpcService contractGrpcService;
+
+	private final GrpcRequestContextInterceptor requestContextInterceptor;
+
+	@Value("${grpc.server.port:9086}")
+	private int port;
+
+	@Value("${grpc.server.shutdown-grace-period:10}")
+	private long shutdownGracePeriod;
+
+	private volatile Server server;
+
+	public GrpcServerLifecycle(final ContractGrpcService contractGrpcService,
+			final GrpcRequestContextInterceptor requestContextInterceptor) {
+		this.contractGrpcService = contractGrpcService;
+		this.requestContextInterceptor = requestContextInterceptor;
+	}
+
+	@Override
+	public void start() {
+		// @formatter:off
+		final Server newServer = NettyServerBuilder.forPort(port)
+				.addService(ServerInterceptors.intercept(contractGrpcService, requestContextInterceptor))
+				.build();
+		// @formatter:on
+		try {
+			newServer.start();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to start gRPC server on port " + port, e);
+		}
+		this.server = newServer;
+		LogUtil.debug(LOGGER, "gRPC server started on port {}", newServer.getPort());
+	}
+
+	@Override
+	public void stop() {
+		final Server current = this.server;
+		if (current == null) {
+			return;
+		}
+		current.shutdown();
+		try {
+			if (!current.awaitTermination(shutdownGracePeriod, TimeUnit.SECONDS)) {
+				current.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			current.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		this.server = null;
+		LogUtil.debug(LOGGER, "gRPC server stopped");
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.server != null;
+	}
+}
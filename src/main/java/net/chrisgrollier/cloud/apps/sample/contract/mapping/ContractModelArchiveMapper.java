@@ -0,0 +1,14 @@
+package net.chrisgrollier.cloud.apps.sample.contract.mapping;
+
+import net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper;
+import net.chrisgrollier.cloud.apps.common.util.mapping.GenerateBidiMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractArchiveEntity;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Maps contracts to archive entities.
+ */
+@GenerateBidiMapper
+public interface ContractModelArchiveMapper extends BidiMapper<Contract, ContractArchiveEntity> {
+
+}
@@ -0,0 +1,60 @@
+package net.chrisgrollier.cloud.apps.sample.contract.mapping;
+
+import org.springframework.stereotype.Component;
+
+import com.google.protobuf.DoubleValue;
+import com.google.protobuf.Int32Value;
+
+import net.chrisgrollier.cloud.apps.common.util.mapping.AbstractBidiMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractMessage;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ContractTypeMessage;
+
+/**
+ * Maps contracts from/to their protocol buffers representation. Since protocol
+ * buffers messages are immutable, new messages are created as the default
+ * instance and {@link #copyTo(Contract, ContractMessage)} returns a new message
+ * based on the given one.
+ */
+@Component
+public class ContractProtoMapper extends AbstractBidiMapper<Contract, ContractMessage> {
+
+	public ContractProtoMapper() {
+		super(Contract::new, ContractMessage::getDefaultInstance);
+	}
+
+	@Override
+	public Contract copyFrom(Contract t, ContractMessage s) {
+		t.setId(s.hasId() ? s.getId().getValue() : null);
+		t.setType(s.getType() == ContractTypeMessage.UNSPECIFIED || s.getType() == ContractTypeMessage.UNRECOGNIZED
+				? null
+				: ContractType.valueOf(s.getType().name()));
+		t.setDuration(s.hasDuration() ? s.getDuration().getValue() : null);
+		t.setPrice(s.hasPrice() ? s.getPrice().getValue() : null);
+		t.setUserId(s.hasUserId() ? s.getUserId().getValue() : null);
+		return t;
+	}
+
+	@Override
+	public ContractMessage copyTo(Contract t, ContractMessage s) {
+		final ContractMessage.Builder builder = s.toBuilder();
+		if (t.getId() != null) {
+			builder.setId(Int32Value.of(t.getId()));
+		}
+		if (t.getType() != null) {
+			builder.setType(ContractTypeMessage.valueOf(t.getType().name()));
+		}
+		if (t.getDuration() != null) {
+			builder.setDuration(Int32Value.of(t.getDuration()));
+		}
+		if (t.getPrice() != null) {
+			builder.setPrice(DoubleValue.of(t.getPrice()));
+		}
+		if (t.getUserId() != null) {
+			builder.setUserId(Int32Value.of(t.getUserId()));
+		}
+		return builder.build();
+	}
+
+}
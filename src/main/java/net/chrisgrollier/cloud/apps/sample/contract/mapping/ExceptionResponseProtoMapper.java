@@ -0,0 +1,35 @@
+package net.chrisgrollier.cloud.apps.sample.contract.mapping;
+
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Strings;
+
+import net.chrisgrollier.cloud.apps.common.exception.handler.ExceptionResponse;
+import net.chrisgrollier.cloud.apps.common.exception.handler.FieldError;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.ExceptionResponseMessage;
+import net.chrisgrollier.cloud.apps.sample.contract.proto.FieldErrorMessage;
+
+/**
+ * Maps error responses to their protocol buffers representation.
+ */
+@Component
+public class ExceptionResponseProtoMapper {
+
+	/**
+	 * Creates and return a protocol buffers message based on the given error
+	 * response.
+	 * 
+	 * @param response the error response
+	 * @return the matching message
+	 */
+	public ExceptionResponseMessage to(ExceptionResponse response) {
+		final ExceptionResponseMessage.Builder builder = ExceptionResponseMessage.newBuilder()
+				.setStatusCode(response.getStatusCode().value())
+				.setMessage(Strings.nullToEmpty(response.getMessage()));
+		for (FieldError error : response.getErrors()) {
+			builder.addErrors(FieldErrorMessage.newBuilder().setField(Strings.nullToEmpty(error.getField()))
+					.setMessage(Strings.nullToEmpty(error.getMessage())));
+		}
+		return builder.build();
+	}
+}
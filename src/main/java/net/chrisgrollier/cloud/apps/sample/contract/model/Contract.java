@@ -3,13 +3,18 @@ package net.chrisgrollier.cloud.apps.sample.contract.model;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.NotNull;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.google.common.base.MoreObjects;
 
 import io.swagger.annotations.ApiModelProperty;
 import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
 
+@JsonFilter(Contract.FIELDS_FILTER)
 public class Contract {
 
+	/** Id of the Jackson filter restricting serialized properties */
+	public static final String FIELDS_FILTER = "contractFields";
+
 	@ApiModelProperty(position = 1, required = false, value = "The contract identifier")
 	private Integer id;
 
@@ -30,6 +35,23 @@ public class Contract {
 	@NotNull(message = "{contract.validation.userid.mandatory}")
 	private Integer userId;
 
+	public Contract() {
+		super();
+	}
+
+	/**
+	 * Copy constructor.
+	 * 
+	 * @param contract the contract to copy
+	 */
+	public Contract(Contract contract) {
+		this.id = contract.id;
+		this.type = contract.type;
+		this.duration = contract.duration;
+		this.price = contract.price;
+		this.userId = contract.userId;
+	}
+
 	public ContractType getType() {
 		return type;
 	}
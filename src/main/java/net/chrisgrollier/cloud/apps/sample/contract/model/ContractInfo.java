@@ -1,115 +1,130 @@
 package net.chrisgrollier.cloud.apps.sample.contract.model;
 
-import javax.validation.constraints.NotNull;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.google.common.base.MoreObjects;
 
 import io.swagger.annotations.ApiModelProperty;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
 
-public class ContractInfo extends Contract {
+/**
+ * A contract completed with the data of its user. It is a composition of the
+ * contract and of the user, properties being read from them, and is serialized
+ * flat as a contract holding user properties. It is partial when user data
+ * was requested but could not be fetched, the users service being unavailable.
+ */
+@JsonFilter(Contract.FIELDS_FILTER)
+@JsonPropertyOrder({ "id", "type", "duration", "price", "userId", "firstName", "lastName", "role", "email", "address",
+		"username", "partial" })
+public class ContractInfo {
 
-	@ApiModelProperty(position = 2, required = true, value = "The user firstName")
-	@NotNull(message = "The user firstName is mandatory")
-	private String firstName;
+	private Contract contract;
 
-	@ApiModelProperty(position = 3, required = true, value = "The user lastName")
-	@NotNull(message = "The user lastName is mandatory")
-	private String lastName;
+	private UserInfo user;
 
-	@ApiModelProperty(position = 4, required = true, value = "The user role, possible values {ADMIN, USER}")
-	@NotNull(message = "user role type is mandatory")
-	private String role;
-
-	@ApiModelProperty(position = 5, required = true, value = "The user Email")
-	@NotNull(message = "The user email is mandatory")
-	private String email;
-
-	@ApiModelProperty(position = 6, value = "The user address")
-	private String address;
-
-	@ApiModelProperty(position = 7, required = true, value = "username")
-	private String username;
+	private boolean partial;
 
 	public ContractInfo(Contract contract) {
 		this.setContract(contract);
+	}
 
+	@ApiModelProperty(position = 1, required = false, value = "The contract identifier")
+	public Integer getId() {
+		return contract.getId();
 	}
 
-	public String getFirstName() {
-		return firstName;
+	@ApiModelProperty(position = 2, required = true, value = "The contract type, possible values {LOA, VAC, LLD}")
+	public ContractType getType() {
+		return contract.getType();
 	}
 
-	public void setFirstName(String firstName) {
-		this.firstName = firstName;
+	@ApiModelProperty(position = 3, required = true, value = "The contract duration in months")
+	public Integer getDuration() {
+		return contract.getDuration();
 	}
 
-	public String getLastName() {
-		return lastName;
+	@ApiModelProperty(position = 4, required = true, value = "The monthly contract price ")
+	public Double getPrice() {
+		return contract.getPrice();
 	}
 
-	public void setLastName(String lastName) {
-		this.lastName = lastName;
+	@ApiModelProperty(position = 5, required = true, value = "The contract user ID ")
+	public Integer getUserId() {
+		return contract.getUserId();
 	}
 
-	public String getRole() {
-		return role;
+	@ApiModelProperty(position = 6, value = "The user firstName")
+	public String getFirstName() {
+		return user == null ? null : user.getFirstName();
+	}
+
+	@ApiModelProperty(position = 7, value = "The user lastName")
+	public String getLastName() {
+		return user == null ? null : user.getLastName();
 	}
 
-	public void setRole(String role) {
-		this.role = role;
+	@ApiModelProperty(position = 8, value = "The user role, possible values {ADMIN, USER}")
+	public String getRole() {
+		return user == null ? null : user.getRole();
 	}
 
+	@ApiModelProperty(position = 9, value = "The user Email")
 	public String getEmail() {
-		return email;
+		return user == null ? null : user.getEmail();
 	}
 
-	public void setEmail(String email) {
-		this.email = email;
+	@ApiModelProperty(position = 10, value = "The user address")
+	public String getAddress() {
+		return user == null ? null : user.getAddress();
 	}
 
-	public String getAddress() {
-		return address;
+	@ApiModelProperty(position = 11, value = "username")
+	public String getUsername() {
+		return user == null ? null : user.getUsername();
 	}
 
-	public void setAddress(String address) {
-		this.address = address;
+	@ApiModelProperty(position = 12, value = "Whether user data is missing, the users service being unavailable")
+	@JsonInclude(Include.NON_DEFAULT)
+	public boolean isPartial() {
+		return partial;
 	}
 
-	public String getUsername() {
-		return username;
+	public void setPartial(boolean partial) {
+		this.partial = partial;
 	}
 
-	public void setUsername(String username) {
-		this.username = username;
+	@JsonIgnore
+	public Contract getContract() {
+		return contract;
 	}
 
 	public void setContract(Contract contract) {
-		this.setId(contract.getId());
-		this.setType(contract.getType());
-		this.setDuration(contract.getDuration());
-		this.setPrice(contract.getPrice());
-		this.setUserId(contract.getUserId());
+		this.contract = contract;
+	}
+
+	/**
+	 * @return the user data, null if not fetched or not found
+	 */
+	@JsonIgnore
+	public UserInfo getUser() {
+		return user;
 	}
 
 	public void setUser(UserInfo user) {
-		this.setFirstName(user.getFirstName());
-		this.setLastName(user.getLastName());
-		this.setRole(user.getRole());
-		this.setEmail(user.getEmail());
-		this.setAddress(user.getAddress());
-		this.setUsername(user.getUsername());
+		this.user = user;
 	}
 
 	@Override
 	public String toString() {
 		// @formatter:off
-		return super.toString().concat(
-				MoreObjects.toStringHelper(this)
-				.add("firstName", firstName)
-				.add("lastName", lastName)
-				.add("role", role)
-				.add("email", email)
-				.add("address", address)
-				.add("username", username).toString());
+		return MoreObjects.toStringHelper(this)
+				.add("contract", contract)
+				.add("user", user)
+				.add("partial", partial)
+				.toString();
 		// @formatter:on
 	}
 
@@ -0,0 +1,75 @@
+package net.chrisgrollier.cloud.apps.sample.contract.model.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.model.ContractInfo;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Hand written {@link ContractInfo} serializer, writing the contract then the
+ * user properties straight from the composed objects.
+ */
+class ContractInfoSerializer extends FastPathSerializer<ContractInfo> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final SerializableString FIRST_NAME = new SerializedString("firstName");
+	private static final SerializableString LAST_NAME = new SerializedString("lastName");
+	private static final SerializableString ROLE = new SerializedString("role");
+	private static final SerializableString EMAIL = new SerializedString("email");
+	private static final SerializableString ADDRESS = new SerializedString("address");
+	private static final SerializableString USERNAME = new SerializedString("username");
+	private static final SerializableString PARTIAL = new SerializedString("partial");
+
+	/** Stands for a missing user, all properties being written as null */
+	private static final UserInfo NO_USER = new UserInfo();
+
+	private transient JsonSerializer<Object> typeSerializer;
+
+	ContractInfoSerializer(JsonSerializer<?> beanSerializer) {
+		super(ContractInfo.class, beanSerializer, Contract.FIELDS_FILTER);
+	}
+
+	@Override
+	protected void resolveValueSerializers(SerializerProvider provider) throws JsonMappingException {
+		typeSerializer = provider.findValueSerializer(ContractType.class);
+	}
+
+	@Override
+	protected void writeProperties(ContractInfo value, JsonGenerator gen, SerializerProvider provider)
+			throws IOException {
+		final Contract contract = value.getContract();
+		ContractSerializer.writeContract(contract.getId(), contract.getType(), contract.getDuration(),
+				contract.getPrice(), contract.getUserId(), gen, provider, typeSerializer);
+		final UserInfo user = value.getUser() == null ? NO_USER : value.getUser();
+		writeString(FIRST_NAME, user.getFirstName(), gen);
+		writeString(LAST_NAME, user.getLastName(), gen);
+		writeString(ROLE, user.getRole(), gen);
+		writeString(EMAIL, user.getEmail(), gen);
+		writeString(ADDRESS, user.getAddress(), gen);
+		writeString(USERNAME, user.getUsername(), gen);
+		// like the bean serializer, only written when true
+		if (value.isPartial()) {
+			gen.writeFieldName(PARTIAL);
+			gen.writeBoolean(true);
+		}
+	}
+
+	private static void writeString(SerializableString name, String value, JsonGenerator gen) throws IOException {
+		gen.writeFieldName(name);
+		if (value == null) {
+			gen.writeNull();
+		} else {
+			gen.writeString(value);
+		}
+	}
+}
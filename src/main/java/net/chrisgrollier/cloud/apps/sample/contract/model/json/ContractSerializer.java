@@ -0,0 +1,73 @@
+package net.chrisgrollier.cloud.apps.sample.contract.model.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Hand written {@link Contract} serializer.
+ */
+class ContractSerializer extends FastPathSerializer<Contract> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final SerializableString ID = new SerializedString("id");
+	static final SerializableString TYPE = new SerializedString("type");
+	static final SerializableString DURATION = new SerializedString("duration");
+	static final SerializableString PRICE = new SerializedString("price");
+	static final SerializableString USER_ID = new SerializedString("userId");
+
+	private transient JsonSerializer<Object> typeSerializer;
+
+	ContractSerializer(JsonSerializer<?> beanSerializer) {
+		super(Contract.class, beanSerializer, Contract.FIELDS_FILTER);
+	}
+
+	@Override
+	protected void resolveValueSerializers(SerializerProvider provider) throws JsonMappingException {
+		typeSerializer = provider.findValueSerializer(ContractType.class);
+	}
+
+	@Override
+	protected void writeProperties(Contract value, JsonGenerator gen, SerializerProvider provider)
+			throws IOException {
+		writeContract(value.getId(), value.getType(), value.getDuration(), value.getPrice(), value.getUserId(), gen,
+				provider, typeSerializer);
+	}
+
+	static void writeContract(Integer id, ContractType type, Integer duration, Double price, Integer userId,
+			JsonGenerator gen, SerializerProvider provider, JsonSerializer<Object> typeSerializer) throws IOException {
+		writeInteger(ID, id, gen);
+		gen.writeFieldName(TYPE);
+		if (type == null) {
+			gen.writeNull();
+		} else {
+			typeSerializer.serialize(type, gen, provider);
+		}
+		writeInteger(DURATION, duration, gen);
+		gen.writeFieldName(PRICE);
+		if (price == null) {
+			gen.writeNull();
+		} else {
+			gen.writeNumber(price.doubleValue());
+		}
+		writeInteger(USER_ID, userId, gen);
+	}
+
+	private static void writeInteger(SerializableString name, Integer value, JsonGenerator gen) throws IOException {
+		gen.writeFieldName(name);
+		if (value == null) {
+			gen.writeNull();
+		} else {
+			gen.writeNumber(value.intValue());
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package net.chrisgrollier.cloud.apps.sample.contract.model.json;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+import net.chrisgrollier.cloud.apps.common.exception.handler.ExceptionResponse;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.model.ContractInfo;
+
+/**
+ * Replaces the bean serializers of the most serialized types by hand written
+ * ones, which keep the bean serializer to fall back to when needed.
+ */
+public class ContractSerializerModifier extends BeanSerializerModifier {
+
+	@Override
+	public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+			JsonSerializer<?> serializer) {
+		final Class<?> type = beanDesc.getBeanClass();
+		if (type == Contract.class) {
+			return new ContractSerializer(serializer);
+		}
+		if (type == ContractInfo.class) {
+			return new ContractInfoSerializer(serializer);
+		}
+		if (type == ExceptionResponse.class) {
+			return new ExceptionResponseSerializer(serializer);
+		}
+		return serializer;
+	}
+}
@@ -0,0 +1,71 @@
+package net.chrisgrollier.cloud.apps.sample.contract.model.json;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpStatus;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import net.chrisgrollier.cloud.apps.common.exception.handler.ExceptionResponse;
+import net.chrisgrollier.cloud.apps.common.exception.handler.FieldError;
+
+/**
+ * Hand written {@link ExceptionResponse} serializer. Both the response and its
+ * field errors exclude null values.
+ */
+class ExceptionResponseSerializer extends FastPathSerializer<ExceptionResponse> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final SerializableString STATUS_CODE = new SerializedString("statusCode");
+	private static final SerializableString MESSAGE = new SerializedString("message");
+	private static final SerializableString ERRORS = new SerializedString("errors");
+	private static final SerializableString FIELD = new SerializedString("field");
+
+	private transient JsonSerializer<Object> statusSerializer;
+
+	ExceptionResponseSerializer(JsonSerializer<?> beanSerializer) {
+		super(ExceptionResponse.class, beanSerializer, null);
+	}
+
+	@Override
+	protected void resolveValueSerializers(SerializerProvider provider) throws JsonMappingException {
+		statusSerializer = provider.findValueSerializer(HttpStatus.class);
+	}
+
+	@Override
+	protected boolean supportsInclusion(JsonInclude.Include inclusion) {
+		return super.supportsInclusion(inclusion) || inclusion == JsonInclude.Include.NON_NULL;
+	}
+
+	@Override
+	protected void writeProperties(ExceptionResponse value, JsonGenerator gen, SerializerProvider provider)
+			throws IOException {
+		gen.writeFieldName(STATUS_CODE);
+		statusSerializer.serialize(value.getStatusCode(), gen, provider);
+		writeNonNullString(MESSAGE, value.getMessage(), gen);
+		gen.writeFieldName(ERRORS);
+		gen.writeStartArray();
+		for (FieldError error : value.getErrors()) {
+			gen.writeStartObject(error);
+			writeNonNullString(FIELD, error.getField(), gen);
+			writeNonNullString(MESSAGE, error.getMessage(), gen);
+			gen.writeEndObject();
+		}
+		gen.writeEndArray();
+	}
+
+	private static void writeNonNullString(SerializableString name, String value, JsonGenerator gen)
+			throws IOException {
+		if (value != null) {
+			gen.writeFieldName(name);
+			gen.writeString(value);
+		}
+	}
+}
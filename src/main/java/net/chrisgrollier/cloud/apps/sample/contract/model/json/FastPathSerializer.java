@@ -0,0 +1,114 @@
+package net.chrisgrollier.cloud.apps.sample.contract.model.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Base of hand written serializers, writing properties straight to the
+ * generator with pre-encoded names. Serialization falls back to the bean
+ * serializer Jackson built whenever the output could differ from it: a
+ * property filter other than the serialize-all one applies, a view is active
+ * or the default inclusion of values is not the expected one.
+ *
+ * @param <T> the serialized type
+ */
+abstract class FastPathSerializer<T> extends StdSerializer<T> implements ResolvableSerializer {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final PropertyFilter SERIALIZE_ALL = SimpleBeanPropertyFilter.serializeAll();
+
+	private final JsonSerializer<Object> beanSerializer;
+
+	private final String filterId;
+
+	private boolean fastPathEnabled;
+
+	/**
+	 * @param type           the serialized type
+	 * @param beanSerializer the serializer Jackson built for that type
+	 * @param filterId       the id of the type property filter, null if none
+	 */
+	@SuppressWarnings("unchecked")
+	protected FastPathSerializer(Class<T> type, JsonSerializer<?> beanSerializer, String filterId) {
+		super(type);
+		this.beanSerializer = (JsonSerializer<Object>) beanSerializer;
+		this.filterId = filterId;
+	}
+
+	@Override
+	public void resolve(SerializerProvider provider) throws JsonMappingException {
+		if (beanSerializer instanceof ResolvableSerializer) {
+			((ResolvableSerializer) beanSerializer).resolve(provider);
+		}
+		fastPathEnabled = this.supportsInclusion(
+				provider.getConfig().getDefaultPropertyInclusion(handledType()).getValueInclusion());
+		this.resolveValueSerializers(provider);
+	}
+
+	/**
+	 * Tell whether the properties written by {@link #writeProperties} are those
+	 * the bean serializer would write given the configured default inclusion.
+	 * 
+	 * @param inclusion the default inclusion
+	 * @return true for the default inclusion, that writes null values
+	 */
+	protected boolean supportsInclusion(JsonInclude.Include inclusion) {
+		return inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS;
+	}
+
+	/**
+	 * Resolve the serializers of non trivial property values, once.
+	 * 
+	 * @param provider the serializer provider
+	 * @throws JsonMappingException if a serializer cannot be found
+	 */
+	protected abstract void resolveValueSerializers(SerializerProvider provider) throws JsonMappingException;
+
+	/**
+	 * Write the object properties, the object start and end being already
+	 * written.
+	 * 
+	 * @param value    the serialized value
+	 * @param gen      the generator
+	 * @param provider the serializer provider
+	 * @throws IOException if writing fails
+	 */
+	protected abstract void writeProperties(T value, JsonGenerator gen, SerializerProvider provider)
+			throws IOException;
+
+	@Override
+	public void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		if (!this.isFastPathApplicable(value, provider)) {
+			beanSerializer.serialize(value, gen, provider);
+			return;
+		}
+		gen.writeStartObject(value);
+		this.writeProperties(value, gen, provider);
+		gen.writeEndObject();
+	}
+
+	@Override
+	public void serializeWithType(T value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+			throws IOException {
+		beanSerializer.serializeWithType(value, gen, provider, typeSer);
+	}
+
+	private boolean isFastPathApplicable(T value, SerializerProvider provider) {
+		if (!fastPathEnabled || provider.getActiveView() != null) {
+			return false;
+		}
+		return filterId == null || provider.getFilterProvider() != null
+				&& provider.getFilterProvider().findPropertyFilter(filterId, value) == SERIALIZE_ALL;
+	}
+}
@@ -0,0 +1,127 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+import net.chrisgrollier.cloud.apps.common.log.aop.Loggable;
+import net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.dao.ContractArchiveDAO;
+import net.chrisgrollier.cloud.apps.sample.contract.dao.ContractDAO;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractArchiveEntity;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractEntity;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Service managing the contract archive: moves inactive (soft deleted or
+ * expired) contracts out of the live table and gives read access to archived
+ * ones. Soft deleted contracts not moved yet are read as archived ones.
+ */
+@Service
+@Loggable(debug = true)
+public class ContractArchiveService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContractArchiveService.class);
+
+	private final ContractDAO contractDAO;
+	private final ContractArchiveDAO contractArchiveDAO;
+	private final BidiMapper<Contract, ContractArchiveEntity> mapper;
+	private final BidiMapper<Contract, ContractEntity> entityMapper;
+	private final ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	public ContractArchiveService(final ContractDAO contractDAO, final ContractArchiveDAO contractArchiveDAO,
+			final BidiMapper<Contract, ContractArchiveEntity> contractArchiveMapper,
+			final BidiMapper<Contract, ContractEntity> contractEntityMapper,
+			final ApplicationEventPublisher eventPublisher) {
+		this.contractDAO = contractDAO;
+		this.contractArchiveDAO = contractArchiveDAO;
+		this.mapper = contractArchiveMapper;
+		this.entityMapper = contractEntityMapper;
+		this.eventPublisher = eventPublisher;
+	}
+
+	/**
+	 * Find all archived contracts.
+	 * 
+	 * @return a collection of {@code Contract}
+	 */
+	public Collection<Contract> findAllArchivedContracts() {
+		return this.merge(entityMapper.froms(contractDAO.findByDeletionDateIsNotNull()),
+				mapper.froms(contractArchiveDAO.findAll()));
+	}
+
+	/**
+	 * Find archived contract by id.
+	 * 
+	 * @param id the contract identifier as {@code Integer}
+	 * @return the archived {@code Contract} if any
+	 */
+	public Optional<Contract> findArchivedContract(final Integer id) {
+		// the live table first, a contract being archived in between is then found
+		// in the archive table
+		final Optional<Contract> deleted = contractDAO.findByIdAndDeletionDateIsNotNull(id).map(entityMapper::from);
+		return deleted.isPresent() ? deleted : contractArchiveDAO.findById(id).map(mapper::from);
+	}
+
+	/**
+	 * Find archived contracts associated to the given user ID.
+	 * 
+	 * @param userId the contract user identifier as {@code Integer}
+	 * @return a collection of archived {@code Contract}, possibly empty
+	 */
+	public Collection<Contract> findArchivedContractsByUserId(final Integer userId) {
+		return this.merge(entityMapper.froms(contractDAO.findByUserIdAndDeletionDateIsNotNull(userId)),
+				mapper.froms(contractArchiveDAO.findByUserId(userId)));
+	}
+
+	/**
+	 * Moves one batch of inactive contracts, i.e. soft deleted or expired before
+	 * the given date, from the live table to the archive table. Contracts being
+	 * archived by another instance are left to it.
+	 * 
+	 * @param expiredBefore the expiration limit date
+	 * @param batchSize     the maximum number of contracts to move
+	 * @return the number of archived contracts
+	 */
+	@Transactional
+	public int archiveInactiveContracts(final LocalDateTime expiredBefore, final int batchSize) {
+		final List<ContractEntity> batch = contractDAO.lockInactiveContracts(expiredBefore, batchSize);
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		final LocalDateTime archiveDate = LocalDateTime.now();
+		contractArchiveDAO.saveAll(
+				batch.stream().map(c -> new ContractArchiveEntity(c, archiveDate)).collect(Collectors.toList()));
+		final List<Integer> ids = batch.stream().map(ContractEntity::getId).collect(Collectors.toList());
+		contractDAO.deleteByIds(ids);
+		eventPublisher.publishEvent(ContractChangedEvent.of(ids,
+				batch.stream().map(ContractEntity::getUserId).collect(Collectors.toSet())));
+		LogUtil.business(LOGGER, "{} inactive contracts have been archived", batch.size());
+		return batch.size();
+	}
+
+	/**
+	 * Merge soft deleted contracts read from the live table before archived ones,
+	 * a contract archived in between being found in both.
+	 */
+	private Collection<Contract> merge(final Collection<Contract> deleted, final Collection<Contract> archived) {
+		final Map<Integer, Contract> contracts = new LinkedHashMap<>();
+		deleted.forEach(contract -> contracts.put(contract.getId(), contract));
+		archived.forEach(contract -> contracts.putIfAbsent(contract.getId(), contract));
+		return new ArrayList<>(contracts.values());
+	}
+}
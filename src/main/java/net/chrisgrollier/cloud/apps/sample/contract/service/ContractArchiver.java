@@ -0,0 +1,50 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service;
+
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+
+/**
+ * Background job periodically moving inactive contracts to the archive, batch
+ * after batch, so that the live {@code CONTRACT} table and its indexes stay
+ * small. Can be disabled with property {@code contract.archive.enabled}.
+ */
+@Component
+@ConditionalOnProperty(name = "contract.archive.enabled", matchIfMissing = true)
+public class ContractArchiver {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContractArchiver.class);
+
+	private final ContractArchiveService contractArchiveService;
+
+	@Value("${contract.archive.batch-size:500}")
+	private int batchSize;
+
+	@Value("${contract.archive.expired-grace-days:0}")
+	private int expiredGraceDays;
+
+	@Autowired
+	public ContractArchiver(final ContractArchiveService contractArchiveService) {
+		this.contractArchiveService = contractArchiveService;
+	}
+
+	@Scheduled(initialDelayString = "${contract.archive.initial-delay:60000}", fixedDelayString = "${contract.archive.fixed-delay:3600000}")
+	public void archive() {
+		final LocalDateTime expiredBefore = LocalDateTime.now().minusDays(expiredGraceDays);
+		int total = 0;
+		int archived;
+		do {
+			archived = contractArchiveService.archiveInactiveContracts(expiredBefore, batchSize);
+			total += archived;
+		} while (archived == batchSize);
+		LogUtil.debug(LOGGER, "Archiving run completed, {} contracts archived", total);
+	}
+}
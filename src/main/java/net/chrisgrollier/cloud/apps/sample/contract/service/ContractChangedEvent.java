@@ -0,0 +1,100 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Event published when contracts are created, updated, deleted or archived,
+ * telling which contracts and which users' contract lists have changed. An
+ * event may also tell that anything may have changed, when the changes are not
+ * known precisely. Events either stem from a change made by this instance, or
+ * relay a change made by another instance.
+ */
+public class ContractChangedEvent {
+
+	private static final ContractChangedEvent ALL = new ContractChangedEvent(Collections.emptySet(),
+			Collections.emptySet(), true, false);
+
+	private static final ContractChangedEvent REMOTE_ALL = new ContractChangedEvent(Collections.emptySet(),
+			Collections.emptySet(), true, true);
+
+	private final Set<Integer> contractIds;
+
+	private final Set<Integer> userIds;
+
+	private final boolean all;
+
+	private final boolean remote;
+
+	private ContractChangedEvent(Set<Integer> contractIds, Set<Integer> userIds, boolean all, boolean remote) {
+		this.contractIds = contractIds;
+		this.userIds = userIds;
+		this.all = all;
+		this.remote = remote;
+	}
+
+	/**
+	 * @param contractIds the changed contracts identifiers
+	 * @param userIds     the identifiers of the users owning them
+	 * @return an event about the given contracts
+	 */
+	public static ContractChangedEvent of(Collection<Integer> contractIds, Collection<Integer> userIds) {
+		return new ContractChangedEvent(ImmutableSet.copyOf(contractIds), ImmutableSet.copyOf(userIds), false, false);
+	}
+
+	/**
+	 * @param contractIds the contracts identifiers changed by another instance
+	 * @param userIds     the identifiers of the users owning them
+	 * @return an event relaying a change made by another instance
+	 */
+	public static ContractChangedEvent remote(Collection<Integer> contractIds, Collection<Integer> userIds) {
+		return new ContractChangedEvent(ImmutableSet.copyOf(contractIds), ImmutableSet.copyOf(userIds), false, true);
+	}
+
+	/**
+	 * @return an event telling that any contract may have changed
+	 */
+	public static ContractChangedEvent all() {
+		return ALL;
+	}
+
+	/**
+	 * @return an event telling that any contract may have been changed by
+	 *         another instance
+	 */
+	public static ContractChangedEvent remoteAll() {
+		return REMOTE_ALL;
+	}
+
+	public Set<Integer> getContractIds() {
+		return contractIds;
+	}
+
+	public Set<Integer> getUserIds() {
+		return userIds;
+	}
+
+	public boolean isAll() {
+		return all;
+	}
+
+	public boolean isRemote() {
+		return remote;
+	}
+
+	@Override
+	public String toString() {
+		// @formatter:off
+		return MoreObjects.toStringHelper(this)
+				.add("contractIds", contractIds)
+				.add("userIds", userIds)
+				.add("all", all)
+				.add("remote", remote)
+				.toString();
+		// @formatter:on
+	}
+}
@@ -1,17 +1,25 @@
 package net.chrisgrollier.cloud.apps.sample.contract.service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
+import net.chrisgrollier.cloud.apps.common.concurrency.aop.ConcurrencyLimit;
 import net.chrisgrollier.cloud.apps.common.exception.UnrecoverableFunctionalException;
 import net.chrisgrollier.cloud.apps.common.exception.service.EntityNotFoundUnrecoverableException;
 import net.chrisgrollier.cloud.apps.common.i18n.MessageManager;
@@ -22,9 +30,12 @@ import net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper;
 import net.chrisgrollier.cloud.apps.sample.contract.dao.ContractDAO;
 import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractEntity;
 import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.service.cache.ContractCache;
+import net.chrisgrollier.cloud.apps.sample.contract.service.eligibility.EligibilityRuleEngine;
 
 @Service
 @Loggable(debug = true)
+@ConcurrencyLimit(initialLimit = 50, maxLimit = 400)
 public class ContractService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ContractService.class);
@@ -33,51 +44,150 @@ public class ContractService {
 	private final ContractDAO contractDAO;
 	private final BidiMapper<Contract, ContractEntity> mapper;
 	private final MessageManager messageManager;
+	private final ContractArchiveService contractArchiveService;
+	private final ApplicationEventPublisher eventPublisher;
+	private final ContractCache contractCache;
+	private final EligibilityRuleEngine eligibilityRuleEngine;
 
 	@Autowired
 	public ContractService(final ContractDAO contractDAO,
-			final BidiMapper<Contract, ContractEntity> contractEntityMapper, final MessageManager messageManager) {
+			final BidiMapper<Contract, ContractEntity> contractEntityMapper, final MessageManager messageManager,
+			final ContractArchiveService contractArchiveService, final ApplicationEventPublisher eventPublisher,
+			final ContractCache contractCache, final EligibilityRuleEngine eligibilityRuleEngine) {
 		this.contractDAO = contractDAO;
 		this.mapper = contractEntityMapper;
 		this.messageManager = messageManager;
+		this.contractArchiveService = contractArchiveService;
+		this.eventPublisher = eventPublisher;
+		this.contractCache = contractCache;
+		this.eligibilityRuleEngine = eligibilityRuleEngine;
 	}
 
 	/**
-	 * Find all existing contracts.
+	 * Find all live contracts.
 	 * 
 	 * @return a collection of {@code Contract}
 	 */
 	public Collection<Contract> findAllContracts() {
-		return mapper.froms(contractDAO.findAll());
+		return this.findAllContracts(false);
 	}
 
 	/**
-	 * Find contract by id.
+	 * Find all live contracts, and archived ones if requested.
+	 * 
+	 * @param includeArchived whether archived contracts should also be returned
+	 * @return a collection of {@code Contract}
+	 */
+	public Collection<Contract> findAllContracts(final boolean includeArchived) {
+		final Collection<Contract> contracts = mapper.froms(contractDAO.findByDeletionDateIsNull());
+		return includeArchived ? this.withArchived(contracts, contractArchiveService.findAllArchivedContracts())
+				: contracts;
+	}
+
+	/**
+	 * Find live contract by id.
 	 * 
 	 * @param id the contract identifier as {@code Integer}
 	 * @return a retrieved {@code Contract}
 	 */
 	public Contract findContract(final Integer id) {
+		return this.findContract(id, false);
+	}
+
+	/**
+	 * Find contract by id, looking into the archive if requested and the contract
+	 * is not live.
+	 * 
+	 * @param id              the contract identifier as {@code Integer}
+	 * @param includeArchived whether the archive should be searched too
+	 * @return a retrieved {@code Contract}
+	 */
+	public Contract findContract(final Integer id, final boolean includeArchived) {
 		LogData.currentBuilder().context(ImmutableMap.of("id", Integer.toString(id)));
 		// Technical log with debug level and context data
 		LogUtil.debug(LOGGER, "Trying to retrieve contract from data repository, id={}", id);
 		this.messageManager.getMessage("test", id);
-		return contractDAO.findById(id).map(mapper::from)
-				.orElseThrow(() -> new EntityNotFoundUnrecoverableException("Could not find contract with id = {0}",
-						"contract.not.found", id));
+		final Contract cached = contractCache.get(id);
+		if (cached != null) {
+			return cached;
+		}
+		final long stamp = contractCache.stamp();
+		Optional<Contract> contract = contractDAO.findByIdAndDeletionDateIsNull(id).map(mapper::from);
+		contract.ifPresent(c -> contractCache.put(c, stamp));
+		if (!contract.isPresent() && includeArchived) {
+			contract = contractArchiveService.findArchivedContract(id);
+		}
+		return contract.orElseThrow(() -> new EntityNotFoundUnrecoverableException(
+				"Could not find contract with id = {0}", "contract.not.found", id));
 	}
 
 	/**
-	 * Find contracts associated to the given user ID.
+	 * Find live contracts associated to the given user ID.
 	 * 
 	 * @param userId the contract user identifier as {@code Integer}
 	 * @return a retrieved {@code Contract}
 	 */
 	public Collection<Contract> findContractsByUserId(final Integer userId) {
+		return this.findContractsByUserId(userId, false);
+	}
+
+	/**
+	 * Find live contracts associated to any of the given user IDs, users whose
+	 * contracts are not cached being queried at once.
+	 * 
+	 * @param userIds the contract user identifiers
+	 * @return the retrieved contracts, possibly empty
+	 */
+	public Collection<Contract> findContractsByUserIds(final Collection<Integer> userIds) {
+		LogUtil.debug(LOGGER, "Trying to retrieve contracts from data repository, userIds={}", userIds);
+		final Collection<Contract> contracts = new ArrayList<>();
+		final Set<Integer> misses = new LinkedHashSet<>();
+		for (Integer userId : userIds) {
+			final Collection<Contract> cached = contractCache.getByUserId(userId);
+			if (cached == null) {
+				misses.add(userId);
+			} else {
+				contracts.addAll(cached);
+			}
+		}
+		if (!misses.isEmpty()) {
+			final long stamp = contractCache.stamp();
+			final Map<Integer, Collection<Contract>> byUserId = new HashMap<>();
+			misses.forEach(userId -> byUserId.put(userId, new ArrayList<>()));
+			for (Contract contract : mapper.froms(contractDAO.findByUserIdInAndDeletionDateIsNull(misses))) {
+				byUserId.get(contract.getUserId()).add(contract);
+			}
+			byUserId.forEach((userId, found) -> {
+				contractCache.putByUserId(userId, found, stamp);
+				contracts.addAll(found);
+			});
+		}
+		LogUtil.debug(LOGGER, "Found {} contracts", contracts.size());
+		return contracts;
+	}
+
+	/**
+	 * Find contracts associated to the given user ID, archived ones included if
+	 * requested.
+	 * 
+	 * @param userId          the contract user identifier as {@code Integer}
+	 * @param includeArchived whether archived contracts should also be returned
+	 * @return a retrieved {@code Contract}
+	 */
+	public Collection<Contract> findContractsByUserId(final Integer userId, final boolean includeArchived) {
 		LogData.currentBuilder().context(ImmutableMap.of(USER_ID, Integer.toString(userId)));
 		// Technical log with debug level
 		LogUtil.debug(LOGGER, "Trying to retrieve contracts from data repository, userId={}", userId);
-		final Collection<Contract> contracts = Optional.ofNullable(mapper.froms(contractDAO.findByUserId(userId)))
+		Collection<Contract> found = contractCache.getByUserId(userId);
+		if (found == null) {
+			final long stamp = contractCache.stamp();
+			found = mapper.froms(contractDAO.findByUserIdAndDeletionDateIsNull(userId));
+			contractCache.putByUserId(userId, found, stamp);
+		}
+		if (includeArchived) {
+			found = this.withArchived(found, contractArchiveService.findArchivedContractsByUserId(userId));
+		}
+		final Collection<Contract> contracts = Optional.ofNullable(found)
 				.filter(a -> !a.isEmpty()).orElseThrow(() -> new EntityNotFoundUnrecoverableException(
 						"Could not find contract for this userId = {0}", "contract.not.found.for.user", userId));
 		// Technical log with debug level
@@ -87,9 +197,8 @@ public class ContractService {
 	}
 
 	/**
-	 * Saves a given contract to user with specific role User with USER role can
-	 * only have LOA, LLD contracts type, User with ADMIN ROLE can only have LLD,
-	 * VAC contracts type
+	 * Saves a given contract to user with specific role, provided the contract
+	 * type is allowed for that role by the eligibility rules.
 	 * 
 	 * @param contract the {@code Contract} to be added in database
 	 * @param role     the {@code Role} to be added in database
@@ -97,50 +206,72 @@ public class ContractService {
 	 */
 	@Transactional
 	public Contract addContract(final Contract contract, String role) {
-		String contractType = contract.getType().toString();
-		if (("USER".equals(role) && "VAC".equals(contractType))
-				|| ("ADMIN".equals(role) && "LOA".equals(contractType))) {
-			LogUtil.business(LOGGER, ImmutableMap.of(USER_ID, Integer.toString(contract.getUserId())),
-					"This contract type {} can't be added for this user {} role ", contract.getType(), role);
-			throw new UnrecoverableFunctionalException("Contract type {0} can't be added by a user having {1} role",
-					"add.contract.not.allowed", contract.getType(), role);
-		}
+		this.checkEligibility(contract, role);
 		final Contract addedContract = mapper.from(contractDAO.save(mapper.to(contract)));
+		this.publishChange(addedContract.getId(), addedContract.getUserId());
 		LogUtil.business(LOGGER, ImmutableMap.of(USER_ID, Integer.toString(contract.getUserId())),
 				"New contract with id {} has been added", addedContract.getId());
 		return addedContract;
 	}
 
 	/**
-	 * Updates the contract with the given id .
+	 * Updates the contract with the given id, provided the new contract type is
+	 * allowed for the role of its user by the eligibility rules.
 	 * 
 	 * @param id       contract identifier
 	 * @param contract the {@code Contract} to be updated.
+	 * @param role     the role of the contract user
 	 * @return the saved contract
 	 */
 	@Transactional
-	public Contract updateContract(final Integer id, final Contract contract) {
-		ContractEntity contractEntity = contractDAO.findById(id)
+	public Contract updateContract(final Integer id, final Contract contract, String role) {
+		this.checkEligibility(contract, role);
+		ContractEntity contractEntity = contractDAO.findByIdAndDeletionDateIsNull(id)
 				.orElseThrow(() -> new EntityNotFoundUnrecoverableException(
 						"Unable to update contract with id = {0} cause could not find it", "update.contract.not.found",
 						id));
-		return mapper.from(contractDAO.save(mapper.copyTo(contract, contractEntity)));
+		final Integer previousUserId = contractEntity.getUserId();
+		final Contract updatedContract = mapper.from(contractDAO.save(mapper.copyTo(contract, contractEntity)));
+		this.publishChange(id, previousUserId, updatedContract.getUserId());
+		return updatedContract;
+	}
+
+	private void checkEligibility(final Contract contract, final String role) {
+		if (!eligibilityRuleEngine.isAllowed(role, contract.getType())) {
+			LogUtil.business(LOGGER, ImmutableMap.of(USER_ID, Integer.toString(contract.getUserId())),
+					"This contract type {} can't be added for this user {} role ", contract.getType(), role);
+			throw new UnrecoverableFunctionalException("Contract type {0} can't be added by a user having {1} role",
+					"add.contract.not.allowed", contract.getType(), role);
+		}
 	}
 
 	/**
-	 * Delete contract by id.
+	 * Delete contract by id. Deletion is logical: the contract is only flagged as
+	 * deleted and will be moved to the archive later on by the
+	 * {@link ContractArchiver}.
 	 * 
 	 * @param id the contract identifier as {@code Integer}
 	 */
 	@Transactional
 	public void deleteContract(final Integer id) {
-		try {
-			contractDAO.deleteById(id);
-		} catch (EmptyResultDataAccessException e) {
-			throw new EntityNotFoundUnrecoverableException(
-					"Unable to delete contract with id = {0} cause could not find it", e, "delete.contract.not.found",
-					id);
-		}
+		ContractEntity contractEntity = contractDAO.findByIdAndDeletionDateIsNull(id)
+				.orElseThrow(() -> new EntityNotFoundUnrecoverableException(
+						"Unable to delete contract with id = {0} cause could not find it", "delete.contract.not.found",
+						id));
+		contractEntity.setDeletionDate(LocalDateTime.now());
+		contractDAO.save(contractEntity);
+		this.publishChange(id, contractEntity.getUserId());
+	}
+
+	private void publishChange(final Integer id, final Integer... userIds) {
+		eventPublisher.publishEvent(ContractChangedEvent.of(ImmutableSet.of(id), ImmutableSet.copyOf(userIds)));
+	}
 
+	private Collection<Contract> withArchived(final Collection<Contract> contracts,
+			final Collection<Contract> archived) {
+		final Collection<Contract> result = new ArrayList<>(contracts.size() + archived.size());
+		result.addAll(contracts);
+		result.addAll(archived);
+		return result;
 	}
 }
@@ -0,0 +1,191 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.service.ContractChangedEvent;
+
+/**
+ * In-process cache of live contracts, by identifier, along with a derived
+ * index of the contract identifiers of each user. Both are evicted on
+ * {@link ContractChangedEvent}, be the change local or made by another
+ * instance.
+ * 
+ * Loaders read a stamp before reading the database and hand it back when
+ * caching the result: a result read while a change was being made is not
+ * cached. Cached contracts are copied in and out, callers being free to modify
+ * what they get.
+ */
+@Component
+public class ContractCache {
+
+	private final Cache<Integer, Contract> contracts;
+
+	private final Cache<Integer, List<Integer>> userIndex;
+
+	private final AtomicLong changes = new AtomicLong();
+
+	public ContractCache(@Value("${contract.cache.max-size:100000}") long maxSize) {
+		this.contracts = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+		this.userIndex = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+	}
+
+	/**
+	 * @return the stamp to hand back when caching what is about to be read
+	 */
+	public long stamp() {
+		return changes.get();
+	}
+
+	/**
+	 * @param id the contract identifier
+	 * @return a copy of the cached contract, null if not cached
+	 */
+	public Contract get(Integer id) {
+		final Contract contract = contracts.getIfPresent(id);
+		return contract == null ? null : new Contract(contract);
+	}
+
+	/**
+	 * @param userId the user identifier
+	 * @return copies of the user contracts, null if any of them is not cached
+	 */
+	public Collection<Contract> getByUserId(Integer userId) {
+		final List<Integer> ids = userIndex.getIfPresent(userId);
+		if (ids == null) {
+			return null;
+		}
+		final Collection<Contract> result = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			final Contract contract = this.get(id);
+			if (contract == null) {
+				return null;
+			}
+			result.add(contract);
+		}
+		return result;
+	}
+
+	/**
+	 * Cache a contract read from the database.
+	 * 
+	 * @param contract the contract
+	 * @param stamp    the stamp read before reading the contract
+	 */
+	public void put(Contract contract, long stamp) {
+		this.putIfUnchanged(stamp, () -> {
+			contracts.put(contract.getId(), new Contract(contract));
+			return () -> contracts.invalidate(contract.getId());
+		});
+	}
+
+	/**
+	 * Cache the whole set of contracts of a user read from the database.
+	 * 
+	 * @param userId        the user identifier
+	 * @param userContracts the user contracts
+	 * @param stamp         the stamp read before reading the contracts
+	 */
+	public void putByUserId(Integer userId, Collection<Contract> userContracts, long stamp) {
+		this.putIfUnchanged(stamp, () -> {
+			userContracts.forEach(c -> contracts.put(c.getId(), new Contract(c)));
+			userIndex.put(userId,
+					ImmutableList.copyOf(userContracts.stream().map(Contract::getId).collect(Collectors.toList())));
+			return () -> {
+				userIndex.invalidate(userId);
+				contracts.invalidateAll(userContracts.stream().map(Contract::getId).collect(Collectors.toList()));
+			};
+		});
+	}
+
+	/**
+	 * Cache a bulk of contracts and user index entries, when warming up.
+	 * 
+	 * @param loaded the contracts
+	 * @param index  contract identifiers by user identifier, covering all the
+	 *               contracts of each user
+	 * @param stamp  the stamp read before reading the contracts
+	 * @return whether the bulk was cached
+	 */
+	public boolean putAll(Collection<Contract> loaded, Map<Integer, List<Integer>> index, long stamp) {
+		return this.putIfUnchanged(stamp, () -> {
+			loaded.forEach(c -> contracts.put(c.getId(), new Contract(c)));
+			index.forEach((userId, ids) -> userIndex.put(userId, ImmutableList.copyOf(ids)));
+			return () -> {
+				userIndex.invalidateAll(index.keySet());
+				contracts.invalidateAll(loaded.stream().map(Contract::getId).collect(Collectors.toList()));
+			};
+		});
+	}
+
+	/**
+	 * @return copies of the cached contracts
+	 */
+	public Collection<Contract> contracts() {
+		return contracts.asMap().values().stream().map(Contract::new).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return the cached user index entries
+	 */
+	public Map<Integer, List<Integer>> userIndex() {
+		return ImmutableMap.copyOf(userIndex.asMap());
+	}
+
+	@EventListener
+	public void onChange(ContractChangedEvent event) {
+		this.evict(event);
+	}
+
+	@TransactionalEventListener
+	public void onCommittedChange(ContractChangedEvent event) {
+		this.evict(event);
+	}
+
+	private void evict(ContractChangedEvent event) {
+		changes.incrementAndGet();
+		if (event.isAll()) {
+			this.clear();
+			return;
+		}
+		contracts.invalidateAll(event.getContractIds());
+		userIndex.invalidateAll(event.getUserIds());
+	}
+
+	private void clear() {
+		contracts.invalidateAll();
+		userIndex.invalidateAll();
+	}
+
+	/**
+	 * Run a cache update, then undo it if a change happened meanwhile: the
+	 * eviction may have run before the update.
+	 */
+	private boolean putIfUnchanged(long stamp, Supplier<Runnable> update) {
+		if (changes.get() != stamp) {
+			return false;
+		}
+		final Runnable undo = update.get();
+		if (changes.get() != stamp) {
+			undo.run();
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,25 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.cache;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the instance out of service until the contract cache is warm.
+ */
+@Component
+@ConditionalOnProperty(name = "contract.warm-start.enabled", havingValue = "true", matchIfMissing = true)
+public class ContractCacheHealthIndicator implements HealthIndicator {
+
+	private final ContractCacheWarmer warmer;
+
+	public ContractCacheHealthIndicator(final ContractCacheWarmer warmer) {
+		this.warmer = warmer;
+	}
+
+	@Override
+	public Health health() {
+		return warmer.isWarm() ? Health.up().build() : Health.outOfService().withDetail("warm", false).build();
+	}
+}
@@ -0,0 +1,236 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.discovery.event.InstanceRegisteredEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+import net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper;
+import net.chrisgrollier.cloud.apps.sample.contract.dao.ContractDAO;
+import net.chrisgrollier.cloud.apps.sample.contract.dao.ContractWatermark;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractEntity;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Warms the {@link ContractCache} up at boot, and keeps a snapshot of it to do
+ * so.
+ * 
+ * The snapshot is written periodically and on shutdown. At boot it is restored
+ * only if the contract table version did not move since it was taken,
+ * otherwise live contracts are preloaded from the database, id ranges being
+ * read in parallel. The instance stays in the STARTING status in Eureka, and
+ * is reported out of service by its health, until the cache is warm.
+ */
+@Component
+@ConditionalOnProperty(name = "contract.warm-start.enabled", havingValue = "true", matchIfMissing = true)
+public class ContractCacheWarmer implements SmartLifecycle {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContractCacheWarmer.class);
+
+	private final ContractCache cache;
+
+	private final ContractDAO contractDAO;
+
+	private final BidiMapper<Contract, ContractEntity> mapper;
+
+	private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+	@Value("${contract.warm-start.snapshot-file:${java.io.tmpdir}/contracts.snapshot}")
+	private String snapshotFile;
+
+	@Value("${contract.warm-start.settle-delay:2000}")
+	private long settleDelay;
+
+	@Value("${contract.warm-start.preload.parallelism:4}")
+	private int parallelism;
+
+	@Value("${contract.warm-start.preload.chunk-size:1000}")
+	private int chunkSize;
+
+	private volatile boolean running;
+
+	private volatile boolean warm;
+
+	public ContractCacheWarmer(final ContractCache cache, final ContractDAO contractDAO,
+			final BidiMapper<Contract, ContractEntity> contractEntityMapper,
+			final ObjectProvider<ApplicationInfoManager> applicationInfoManager) {
+		this.cache = cache;
+		this.contractDAO = contractDAO;
+		this.mapper = contractEntityMapper;
+		this.applicationInfoManager = applicationInfoManager;
+	}
+
+	/**
+	 * @return whether the cache was warmed up
+	 */
+	public boolean isWarm() {
+		return warm;
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		this.updateStatus();
+		final Thread thread = new Thread(this::warmUp, "contract-cache-warmer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void stop() {
+		if (warm) {
+			this.snapshot();
+		}
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Eureka registration resets the instance status, hence set it again.
+	 */
+	@EventListener(InstanceRegisteredEvent.class)
+	public void onRegistered() {
+		this.updateStatus();
+	}
+
+	@Scheduled(initialDelayString = "${contract.warm-start.snapshot-interval:300000}",
+			fixedDelayString = "${contract.warm-start.snapshot-interval:300000}")
+	public void snapshotPeriodically() {
+		if (warm && running) {
+			this.snapshot();
+		}
+	}
+
+	private void warmUp() {
+		final long start = System.currentTimeMillis();
+		try {
+			if (!this.restore()) {
+				this.preload();
+			}
+			LogUtil.performanceInfo(LOGGER, System.currentTimeMillis() - start, "Contract cache warmed up");
+		} catch (RuntimeException e) {
+			LOGGER.warn("Contract cache warm-up failed, starting cold", e);
+		}
+		warm = true;
+		this.updateStatus();
+	}
+
+	private boolean restore() {
+		final Path file = Paths.get(snapshotFile);
+		if (!Files.isReadable(file)) {
+			return false;
+		}
+		final ContractSnapshot snapshot;
+		try {
+			snapshot = ContractSnapshot.read(file);
+		} catch (IOException e) {
+			LOGGER.warn("Ignoring contract snapshot: {}", e.getMessage());
+			return false;
+		}
+		final long stamp = cache.stamp();
+		final ContractWatermark watermark = contractDAO.findWatermark();
+		if (!watermark.equals(snapshot.getWatermark())) {
+			LogUtil.debug(LOGGER, "Contract snapshot is outdated, taken at {} while now at {}",
+					snapshot.getWatermark(), watermark);
+			return false;
+		}
+		return cache.putAll(snapshot.getContracts(), snapshot.getUserIndex(), stamp);
+	}
+
+	private void preload() {
+		final Optional<Integer> first = contractDAO.findFirstByOrderByIdAsc().map(ContractEntity::getId);
+		final Optional<Integer> last = contractDAO.findFirstByOrderByIdDesc().map(ContractEntity::getId);
+		if (!first.isPresent() || !last.isPresent()) {
+			return;
+		}
+		final long indexStamp = cache.stamp();
+		final ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+				new ThreadFactoryBuilder().setNameFormat("contract-preload-%d").setDaemon(true).build());
+		try {
+			final List<Future<Collection<Contract>>> chunks = new ArrayList<>();
+			for (long from = first.get(); from <= last.get(); from += chunkSize) {
+				final int chunkFrom = (int) from;
+				final int chunkTo = (int) Math.min(from + chunkSize - 1, last.get());
+				chunks.add(executor.submit(() -> this.preload(chunkFrom, chunkTo)));
+			}
+			final Map<Integer, List<Integer>> index = new HashMap<>();
+			for (Future<Collection<Contract>> chunk : chunks) {
+				for (Contract contract : chunk.get()) {
+					index.computeIfAbsent(contract.getUserId(), k -> new ArrayList<>()).add(contract.getId());
+				}
+			}
+			// the index is complete only if no change happened while preloading
+			cache.putAll(Collections.emptyList(), index, indexStamp);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Contract preload failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Collection<Contract> preload(int from, int to) {
+		final long stamp = cache.stamp();
+		final Collection<Contract> contracts = mapper.froms(contractDAO.findByIdBetweenAndDeletionDateIsNull(from, to));
+		cache.putAll(contracts, Collections.emptyMap(), stamp);
+		return contracts;
+	}
+
+	/**
+	 * Write a snapshot. The watermark is read first, and the cache content only
+	 * after a delay letting changes committed before reach the cache, those
+	 * made by other instances being notified asynchronously. Any later change
+	 * moves the watermark and makes the snapshot outdated.
+	 */
+	private synchronized void snapshot() {
+		try {
+			final ContractWatermark watermark = contractDAO.findWatermark();
+			TimeUnit.MILLISECONDS.sleep(settleDelay);
+			new ContractSnapshot(watermark, cache.contracts(), cache.userIndex()).write(Paths.get(snapshotFile));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Unable to write contract snapshot", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void updateStatus() {
+		final ApplicationInfoManager manager = applicationInfoManager.getIfAvailable();
+		if (manager != null) {
+			manager.setInstanceStatus(warm ? InstanceStatus.UP : InstanceStatus.STARTING);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.chrisgrollier.cloud.apps.sample.contract.dao.ContractWatermark;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Snapshot of the contract cache, held in a memory-mapped file along with the
+ * watermark of the contract table it was taken at.
+ * 
+ * The file is made of a header (magic number, format version, table version,
+ * contract and user counts), of fixed size contract records, then of the user
+ * index entries. Null values are written as sentinels, no contract property
+ * being expected to hold them.
+ */
+public final class ContractSnapshot {
+
+	private static final int MAGIC = 0x43545253;
+
+	private static final int FORMAT = 2;
+
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+
+	private static final int CONTRACT_SIZE = 4 + 1 + 4 + 8 + 4;
+
+	private static final int NULL_INT = Integer.MIN_VALUE;
+
+	private static final byte NULL_TYPE = -1;
+
+	private static final ContractType[] TYPES = ContractType.values();
+
+	private final ContractWatermark watermark;
+
+	private final Collection<Contract> contracts;
+
+	private final Map<Integer, List<Integer>> userIndex;
+
+	/**
+	 * @param watermark the watermark the cache content is consistent with
+	 * @param contracts the cached contracts
+	 * @param userIndex the cached user index entries
+	 */
+	public ContractSnapshot(ContractWatermark watermark, Collection<Contract> contracts,
+			Map<Integer, List<Integer>> userIndex) {
+		this.watermark = watermark;
+		this.contracts = contracts;
+		this.userIndex = userIndex;
+	}
+
+	public ContractWatermark getWatermark() {
+		return watermark;
+	}
+
+	public Collection<Contract> getContracts() {
+		return contracts;
+	}
+
+	public Map<Integer, List<Integer>> getUserIndex() {
+		return userIndex;
+	}
+
+	/**
+	 * Write the snapshot to a temporary file, moved over the given one once
+	 * complete, so that a crash never leaves a partial snapshot behind.
+	 * 
+	 * @param file the snapshot file
+	 * @throws IOException if writing fails
+	 */
+	public void write(Path file) throws IOException {
+		long size = HEADER_SIZE + (long) CONTRACT_SIZE * contracts.size();
+		for (List<Integer> ids : userIndex.values()) {
+			size += 8 + 4L * ids.size();
+		}
+		final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(MAGIC).putInt(FORMAT).putLong(watermark.getVersion());
+			buffer.putInt(contracts.size()).putInt(userIndex.size());
+			for (Contract contract : contracts) {
+				buffer.putInt(contract.getId());
+				buffer.put(contract.getType() == null ? NULL_TYPE : (byte) contract.getType().ordinal());
+				buffer.putInt(contract.getDuration() == null ? NULL_INT : contract.getDuration());
+				buffer.putDouble(contract.getPrice() == null ? Double.NaN : contract.getPrice());
+				buffer.putInt(contract.getUserId() == null ? NULL_INT : contract.getUserId());
+			}
+			for (Map.Entry<Integer, List<Integer>> entry : userIndex.entrySet()) {
+				buffer.putInt(entry.getKey()).putInt(entry.getValue().size());
+				entry.getValue().forEach(buffer::putInt);
+			}
+			buffer.force();
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Read a snapshot by mapping the given file.
+	 * 
+	 * @param file the snapshot file
+	 * @return the snapshot
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	public static ContractSnapshot read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+				throw new IOException("Not a contract snapshot, or of an unsupported format: " + file);
+			}
+			final ContractWatermark watermark = new ContractWatermark(buffer.getLong());
+			final int contractCount = buffer.getInt();
+			final int userCount = buffer.getInt();
+			final List<Contract> contracts = new ArrayList<>(contractCount);
+			for (int i = 0; i < contractCount; i++) {
+				final Contract contract = new Contract();
+				contract.setId(buffer.getInt());
+				final byte type = buffer.get();
+				contract.setType(type == NULL_TYPE ? null : TYPES[type]);
+				final int duration = buffer.getInt();
+				contract.setDuration(duration == NULL_INT ? null : duration);
+				final double price = buffer.getDouble();
+				contract.setPrice(Double.isNaN(price) ? null : price);
+				final int userId = buffer.getInt();
+				contract.setUserId(userId == NULL_INT ? null : userId);
+				contracts.add(contract);
+			}
+			final Map<Integer, List<Integer>> userIndex = new HashMap<>(userCount * 4 / 3 + 1);
+			for (int i = 0; i < userCount; i++) {
+				final int userId = buffer.getInt();
+				final int size = buffer.getInt();
+				final List<Integer> ids = new ArrayList<>(size);
+				for (int j = 0; j < size; j++) {
+					ids.add(buffer.getInt());
+				}
+				userIndex.put(userId, ids);
+			}
+			return new ContractSnapshot(watermark, contracts, userIndex);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("Truncated or corrupted contract snapshot: " + file, e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.deadline;
+
+import java.sql.Statement;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+
+/**
+ * Transaction manager bounding each transaction by the time left to the
+ * current request deadline. No transaction is started once the deadline is
+ * exceeded, and the statements of a started one are given the time left as
+ * Postgres statement timeout, the server cancelling them rather than the
+ * driver, whose query timeout support varies across versions.
+ */
+public class DeadlineJpaTransactionManager extends JpaTransactionManager {
+
+	private static final long serialVersionUID = 6210783408176452961L;
+
+	public DeadlineJpaTransactionManager(EntityManagerFactory emf) {
+		super(emf);
+	}
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition) {
+		final Deadline deadline = Deadline.current();
+		final long remaining = deadline == null ? 0 : deadline.check();
+		super.doBegin(transaction, definition);
+		if (deadline != null) {
+			this.applyStatementTimeout(remaining);
+		}
+	}
+
+	@Override
+	protected int determineTimeout(TransactionDefinition definition) {
+		final int timeout = super.determineTimeout(definition);
+		final Deadline deadline = Deadline.current();
+		if (deadline == null) {
+			return timeout;
+		}
+		// transaction timeouts are whole seconds, rounded up not to time out early
+		final int remaining = (int) Math.max(1, (deadline.remainingMillis() + 999) / 1000);
+		return timeout == TransactionDefinition.TIMEOUT_DEFAULT ? remaining : Math.min(timeout, remaining);
+	}
+
+	private void applyStatementTimeout(long timeout) {
+		final EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager
+				.getResource(this.obtainEntityManagerFactory());
+		final EntityManager entityManager = holder.getEntityManager();
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try (Statement statement = connection.createStatement()) {
+				// SET LOCAL only lasts until the end of the transaction
+				statement.execute("SET LOCAL statement_timeout = " + timeout);
+			}
+		});
+	}
+}
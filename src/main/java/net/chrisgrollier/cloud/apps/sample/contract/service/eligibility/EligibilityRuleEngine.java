@@ -0,0 +1,98 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.eligibility;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableMap;
+
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Holds the contract eligibility rules, compiled from the configuration:
+ * {@code contract.eligibility.roles.<role>} lists the types a role allows and
+ * {@code contract.eligibility.default-types} the types allowed to other roles.
+ * Without configuration, USER allows LOA and LLD and ADMIN allows LLD and VAC.
+ * 
+ * Rules are compiled again on configuration refresh, and swapped at once for
+ * the new ones, evaluations in progress going on with the previous ones.
+ * Invalid rules are rejected at startup, and ignored on refresh.
+ */
+@Component
+public class EligibilityRuleEngine {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EligibilityRuleEngine.class);
+
+	private static final String PREFIX = "contract.eligibility";
+
+	private static final Map<String, String> DEFAULT_ROLES = ImmutableMap.of("USER", "LOA,LLD", "ADMIN", "LLD,VAC");
+
+	private final Environment environment;
+
+	private volatile EligibilityRules rules;
+
+	public EligibilityRuleEngine(final Environment environment) {
+		this.environment = environment;
+		this.rules = this.compile();
+		LogUtil.debug(LOGGER, "Contract eligibility rules {}", rules);
+	}
+
+	/**
+	 * @return the rules currently in force
+	 */
+	public EligibilityRules getRules() {
+		return rules;
+	}
+
+	/**
+	 * @param role the user role
+	 * @param type the contract type
+	 * @return whether a user having the given role may hold a contract of the
+	 *         given type
+	 */
+	public boolean isAllowed(String role, ContractType type) {
+		return rules.isAllowed(role, type);
+	}
+
+	/**
+	 * @param contracts the contracts
+	 * @param roles     the roles of the contract users, in the same order
+	 * @return the indexes of the allowed contracts
+	 * @see EligibilityRules#allowed(List, List)
+	 */
+	public BitSet allowed(List<? extends Contract> contracts, List<String> roles) {
+		return rules.allowed(contracts, roles);
+	}
+
+	@EventListener
+	public void onEnvironmentChange(EnvironmentChangeEvent event) {
+		if (event.getKeys().stream().noneMatch(key -> key.startsWith(PREFIX))) {
+			return;
+		}
+		try {
+			rules = this.compile();
+			LogUtil.business(LOGGER, "Contract eligibility rules replaced by {}", rules);
+		} catch (IllegalArgumentException e) {
+			LOGGER.warn("Invalid contract eligibility rules, keeping {}", rules, e);
+		}
+	}
+
+	private EligibilityRules compile() {
+		final Binder binder = Binder.get(environment);
+		final Map<String, String> roles = binder
+				.bind(PREFIX + ".roles", Bindable.mapOf(String.class, String.class)).orElse(DEFAULT_ROLES);
+		final String defaultTypes = binder.bind(PREFIX + ".default-types", String.class).orElse("*");
+		return EligibilityRules.compile(roles, defaultTypes);
+	}
+}
@@ -0,0 +1,135 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.eligibility;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSortedMap;
+
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+
+/**
+ * Compiled contract eligibility rules: which contract types a user may hold
+ * depending on their role. Rules are declared as a list of allowed types per
+ * role, "*" standing for all types, and a list applying to any other role.
+ * They are compiled into a dense role by type table, so that evaluating them
+ * takes a role lookup and an array read, without allocating anything.
+ * 
+ * Instances are immutable, and thus safe to share between threads.
+ */
+public final class EligibilityRules {
+
+	private static final String ALL_TYPES = "*";
+
+	private static final ContractType[] TYPES = ContractType.values();
+
+	private final Map<String, Integer> roleRows;
+
+	private final boolean[] table;
+
+	private final int defaultRow;
+
+	private EligibilityRules(Map<String, Integer> roleRows, boolean[] table, int defaultRow) {
+		this.roleRows = roleRows;
+		this.table = table;
+		this.defaultRow = defaultRow;
+	}
+
+	/**
+	 * Compile declarative rules.
+	 * 
+	 * @param roles        allowed types, comma separated, by role name, role names
+	 *                     being case insensitive
+	 * @param defaultTypes allowed types of the roles not listed, comma separated
+	 * @return the compiled rules
+	 * @throws IllegalArgumentException if a type is unknown
+	 */
+	public static EligibilityRules compile(Map<String, String> roles, String defaultTypes) {
+		final ImmutableSortedMap.Builder<String, Integer> rows = ImmutableSortedMap
+				.orderedBy(String.CASE_INSENSITIVE_ORDER);
+		final boolean[] table = new boolean[(roles.size() + 1) * TYPES.length];
+		int row = 0;
+		for (Map.Entry<String, String> role : roles.entrySet()) {
+			rows.put(role.getKey(), row);
+			fill(table, row++, role.getKey(), role.getValue());
+		}
+		fill(table, row, "default", defaultTypes);
+		return new EligibilityRules(rows.build(), table, row);
+	}
+
+	private static void fill(boolean[] table, int row, String role, String types) {
+		for (String type : Splitter.on(',').trimResults().omitEmptyStrings().split(types)) {
+			if (ALL_TYPES.equals(type)) {
+				for (int i = 0; i < TYPES.length; i++) {
+					table[row * TYPES.length + i] = true;
+				}
+				continue;
+			}
+			try {
+				table[row * TYPES.length + ContractType.valueOf(type).ordinal()] = true;
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown contract type " + type + " in " + role + " rule", e);
+			}
+		}
+	}
+
+	/**
+	 * @param role the user role, null standing for no role
+	 * @param type the contract type
+	 * @return whether a user having the given role may hold a contract of the
+	 *         given type
+	 */
+	public boolean isAllowed(String role, ContractType type) {
+		final Integer row = role == null ? null : roleRows.get(role);
+		return table[(row == null ? defaultRow : row) * TYPES.length + type.ordinal()];
+	}
+
+	/**
+	 * Evaluate the rules on many contracts at once, as batch imports do, all
+	 * against the same rules even if they are replaced meanwhile.
+	 * 
+	 * @param contracts the contracts
+	 * @param roles     the roles of the contract users, in the same order
+	 * @return the indexes of the allowed contracts
+	 */
+	public BitSet allowed(List<? extends Contract> contracts, List<String> roles) {
+		if (contracts.size() != roles.size()) {
+			throw new IllegalArgumentException("One role is expected per contract");
+		}
+		final BitSet result = new BitSet(contracts.size());
+		for (int i = 0; i < contracts.size(); i++) {
+			if (this.isAllowed(roles.get(i), contracts.get(i).getType())) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the roles having their own rule
+	 */
+	public Collection<String> getRoles() {
+		return roleRows.keySet();
+	}
+
+	@Override
+	public String toString() {
+		final MoreObjects.ToStringHelper helper = MoreObjects.toStringHelper(this);
+		roleRows.forEach((role, row) -> helper.add(role, this.typesOf(row)));
+		return helper.add("default", this.typesOf(defaultRow)).toString();
+	}
+
+	private String typesOf(int row) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < TYPES.length; i++) {
+			if (table[row * TYPES.length + i]) {
+				builder.append(builder.length() == 0 ? "" : ",").append(TYPES[i]);
+			}
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,52 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.idempotency;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * What an {@link IdempotencyStore} knows about a key: the fingerprint of the
+ * request that first used it and, once that request completed, its serialized
+ * result.
+ */
+public final class IdempotencyRecord {
+
+	private final String fingerprint;
+
+	private final String response;
+
+	public IdempotencyRecord(String fingerprint, String response) {
+		this.fingerprint = fingerprint;
+		this.response = response;
+	}
+
+	/**
+	 * Return a record for a request still in progress.
+	 * 
+	 * @param fingerprint the request fingerprint
+	 * @return a pending record
+	 */
+	public static IdempotencyRecord pending(String fingerprint) {
+		return new IdempotencyRecord(fingerprint, null);
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public String getResponse() {
+		return response;
+	}
+
+	public boolean isPending() {
+		return response == null;
+	}
+
+	@Override
+	public String toString() {
+		// @formatter:off
+		return MoreObjects.toStringHelper(this)
+				.add("fingerprint", fingerprint)
+				.add("pending", isPending())
+				.toString();
+		// @formatter:on
+	}
+}
@@ -0,0 +1,110 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.idempotency;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+
+import net.chrisgrollier.cloud.apps.common.exception.TechnicalException;
+import net.chrisgrollier.cloud.apps.common.exception.http.BadRequestException;
+import net.chrisgrollier.cloud.apps.common.exception.http.ConflictException;
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+
+/**
+ * Runs non idempotent operations at most once per idempotency key. The first
+ * request carrying a key runs the operation and its result is stored; retries
+ * carrying the same key get the stored result back without the operation being
+ * run again.
+ */
+@Service
+public class IdempotencyService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyService.class);
+
+	private static final int MAX_KEY_LENGTH = 255;
+
+	private final IdempotencyStore idempotencyStore;
+
+	private final ObjectMapper objectMapper;
+
+	@Autowired
+	public IdempotencyService(final IdempotencyStore idempotencyStore, final ObjectMapper objectMapper) {
+		this.idempotencyStore = idempotencyStore;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Runs the given operation unless the given key was already used by the same
+	 * principal, in which case the stored result is returned.
+	 * 
+	 * @param principal  the calling principal name, keys are scoped by principal
+	 * @param key        the idempotency key sent by the client
+	 * @param request    the request payload, used to detect a key reused for a
+	 *                   different request
+	 * @param resultType the operation result class
+	 * @param operation  the operation to run at most once
+	 * @return the operation result, either computed or replayed
+	 * @throws BadRequestException if the key is invalid or was used for a
+	 *                             different request
+	 * @throws ConflictException   if a request with the same key is still in
+	 *                             progress
+	 */
+	public <R> R execute(String principal, String key, Object request, Class<R> resultType, Supplier<R> operation) {
+		if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+			throw new BadRequestException("Idempotency key must hold 1 to " + MAX_KEY_LENGTH + " characters");
+		}
+		final String scopedKey = principal + ':' + key;
+		final String fingerprint = this.fingerprint(request);
+		final IdempotencyRecord existing = idempotencyStore.reserve(scopedKey, fingerprint);
+		if (existing != null) {
+			return this.replay(key, fingerprint, existing, resultType);
+		}
+		final R result;
+		try {
+			result = operation.get();
+		} catch (RuntimeException | Error e) {
+			idempotencyStore.release(scopedKey);
+			throw e;
+		}
+		idempotencyStore.complete(scopedKey, fingerprint, this.write(result));
+		return result;
+	}
+
+	private <R> R replay(String key, String fingerprint, IdempotencyRecord existing, Class<R> resultType) {
+		if (!existing.getFingerprint().equals(fingerprint)) {
+			throw new BadRequestException("Idempotency key " + key + " has already been used for another request");
+		}
+		if (existing.isPending()) {
+			throw new ConflictException("A request with idempotency key " + key + " is still in progress");
+		}
+		LogUtil.debug(LOGGER, "Replaying stored result for idempotency key {}", key);
+		try {
+			return objectMapper.readValue(existing.getResponse(), resultType);
+		} catch (IOException e) {
+			throw new TechnicalException("Unable to read stored result for idempotency key " + key, e);
+		}
+	}
+
+	private String fingerprint(Object request) {
+		try {
+			return Hashing.sha256().hashBytes(objectMapper.writeValueAsBytes(request)).toString();
+		} catch (JsonProcessingException e) {
+			throw new TechnicalException("Unable to fingerprint request", e);
+		}
+	}
+
+	private String write(Object result) {
+		try {
+			return objectMapper.writeValueAsString(result);
+		} catch (JsonProcessingException e) {
+			throw new TechnicalException("Unable to store request result", e);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.idempotency;
+
+/**
+ * A bounded store of idempotency keys, each completed entry expiring after a
+ * fixed time to live. Stores outliving the application instances only keep a
+ * reservation for a short lease, a request that never completes not blocking
+ * its retries for long.
+ */
+public interface IdempotencyStore {
+
+	/**
+	 * Atomically reserves the given key for a request having the given
+	 * fingerprint, unless the key is already known.
+	 * 
+	 * @param key         the idempotency key
+	 * @param fingerprint the request fingerprint
+	 * @return null if the key has been reserved by this call, otherwise the
+	 *         existing record
+	 */
+	IdempotencyRecord reserve(String key, String fingerprint);
+
+	/**
+	 * Stores the result of the request that reserved the given key.
+	 * 
+	 * @param key         the idempotency key
+	 * @param fingerprint the request fingerprint
+	 * @param response    the serialized request result
+	 */
+	void complete(String key, String fingerprint, String response);
+
+	/**
+	 * Releases a reserved key, typically because the request failed and may be
+	 * retried.
+	 * 
+	 * @param key the idempotency key
+	 */
+	void release(String key);
+}
@@ -0,0 +1,44 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.idempotency;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * {@link IdempotencyStore} keeping keys in a size bounded local cache. Only
+ * suitable for a single instance deployment. This is the default store, see
+ * property {@code contract.idempotency.store}.
+ */
+@Component
+@ConditionalOnProperty(name = "contract.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+	private final Cache<String, IdempotencyRecord> records;
+
+	public InMemoryIdempotencyStore(@Value("${contract.idempotency.max-size:10000}") long maxSize,
+			@Value("${contract.idempotency.ttl:86400}") long ttlSeconds) {
+		this.records = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.build();
+	}
+
+	@Override
+	public IdempotencyRecord reserve(String key, String fingerprint) {
+		return records.asMap().putIfAbsent(key, IdempotencyRecord.pending(fingerprint));
+	}
+
+	@Override
+	public void complete(String key, String fingerprint, String response) {
+		records.put(key, new IdempotencyRecord(fingerprint, response));
+	}
+
+	@Override
+	public void release(String key) {
+		records.invalidate(key);
+	}
+
+}
@@ -0,0 +1,112 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.idempotency;
+
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+import net.chrisgrollier.cloud.apps.sample.contract.dao.IdempotencyKeyDAO;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.IdempotencyKeyEntity;
+
+/**
+ * {@link IdempotencyStore} keeping keys in the {@code IDEMPOTENCY_KEY} table so
+ * that they are shared by all instances. The table primary key guarantees a
+ * single reservation per key. Expired keys are purged periodically. Enabled
+ * with property {@code contract.idempotency.store=database}.
+ * 
+ * A reservation only holds for a short lease, longer than any request deadline,
+ * so that a key whose request died with its instance can be retried soon. The
+ * full time to live starts once the request completed.
+ */
+@Component
+@ConditionalOnProperty(name = "contract.idempotency.store", havingValue = "database")
+public class JpaIdempotencyStore implements IdempotencyStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JpaIdempotencyStore.class);
+
+	private final IdempotencyKeyDAO idempotencyKeyDAO;
+
+	private final TransactionTemplate transactionTemplate;
+
+	@Value("${contract.idempotency.ttl:86400}")
+	private long ttlSeconds;
+
+	@Value("${contract.idempotency.lease:120}")
+	private long leaseSeconds;
+
+	@Autowired
+	public JpaIdempotencyStore(final IdempotencyKeyDAO idempotencyKeyDAO,
+			final PlatformTransactionManager transactionManager) {
+		this.idempotencyKeyDAO = idempotencyKeyDAO;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	@Override
+	public IdempotencyRecord reserve(String key, String fingerprint) {
+		try {
+			return transactionTemplate.execute(status -> {
+				final LocalDateTime now = LocalDateTime.now();
+				final IdempotencyKeyEntity existing = idempotencyKeyDAO.findById(key).orElse(null);
+				if (existing == null) {
+					idempotencyKeyDAO.save(this.newEntity(key, fingerprint, null, now.plusSeconds(leaseSeconds)));
+					return null;
+				}
+				if (existing.getExpirationDate().isAfter(now)) {
+					return new IdempotencyRecord(existing.getFingerprint(), existing.getResponse());
+				}
+				// expired, or a lease whose request never completed: only one retry takes it
+				if (idempotencyKeyDAO.takeOver(key, fingerprint, now, now.plusSeconds(leaseSeconds)) == 1) {
+					return null;
+				}
+				return IdempotencyRecord.pending(fingerprint);
+			});
+		} catch (DataIntegrityViolationException e) {
+			// another instance reserved the key in the meantime
+			return idempotencyKeyDAO.findById(key)
+					.map(k -> new IdempotencyRecord(k.getFingerprint(), k.getResponse()))
+					.orElse(IdempotencyRecord.pending(fingerprint));
+		}
+	}
+
+	@Override
+	public void complete(String key, String fingerprint, String response) {
+		transactionTemplate.execute(status -> idempotencyKeyDAO
+				.save(this.newEntity(key, fingerprint, response, LocalDateTime.now().plusSeconds(ttlSeconds))));
+	}
+
+	@Override
+	public void release(String key) {
+		transactionTemplate.execute(status -> {
+			idempotencyKeyDAO.findById(key).ifPresent(idempotencyKeyDAO::delete);
+			return null;
+		});
+	}
+
+	@Scheduled(fixedDelayString = "${contract.idempotency.purge-delay:600000}")
+	public void purgeExpiredKeys() {
+		final Integer purged = transactionTemplate
+				.execute(status -> idempotencyKeyDAO.deleteExpired(LocalDateTime.now()));
+		LogUtil.debug(LOGGER, "{} expired idempotency keys purged", purged);
+	}
+
+	private IdempotencyKeyEntity newEntity(String key, String fingerprint, String response,
+			LocalDateTime expirationDate) {
+		final IdempotencyKeyEntity entity = new IdempotencyKeyEntity();
+		entity.setKey(key);
+		entity.setFingerprint(fingerprint);
+		entity.setResponse(response);
+		entity.setExpirationDate(expirationDate);
+		return entity;
+	}
+}
@@ -0,0 +1,224 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.invalidation;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import net.chrisgrollier.cloud.apps.common.log.LogUtil;
+import net.chrisgrollier.cloud.apps.sample.contract.service.ContractChangedEvent;
+
+/**
+ * Relays contract changes between instances through Postgres LISTEN/NOTIFY.
+ * 
+ * Local changes are sent with a NOTIFY issued in the transaction making them,
+ * so that other instances are told exactly when the change is committed, and
+ * never about a rolled back one. Each instance listens on a dedicated
+ * connection, opened with the settings of the connection pool but out of it,
+ * so that it does not take a pooled connection for the application lifetime,
+ * and republishes the changes made by the other instances as remote
+ * {@link ContractChangedEvent}s. Notifications sent while the connection was
+ * lost are missed, so any cache is told to flush everything once it is back.
+ * 
+ * The bus stays idle if the database is not a Postgres one.
+ */
+@Component
+@ConditionalOnProperty(name = "contract.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+public class ContractInvalidationBus implements SmartLifecycle {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContractInvalidationBus.class);
+
+	private final String instanceId = UUID.randomUUID().toString();
+
+	private final DataSource dataSource;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	@Value("${contract.invalidation.channel:contract_changes}")
+	private String channel;
+
+	@Value("${contract.invalidation.poll-interval:500}")
+	private long pollInterval;
+
+	@Value("${contract.invalidation.reconnect-delay:5000}")
+	private long reconnectDelay;
+
+	private volatile boolean enabled;
+
+	private volatile Thread listener;
+
+	public ContractInvalidationBus(final DataSource dataSource, final ApplicationEventPublisher eventPublisher) {
+		this.dataSource = dataSource;
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.eventPublisher = eventPublisher;
+	}
+
+	/**
+	 * Send a local change to the other instances, within the transaction making
+	 * it.
+	 * 
+	 * @param event the change
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+	public void onChange(ContractChangedEvent event) {
+		if (enabled && !event.isRemote()) {
+			jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel,
+					InvalidationMessage.encode(instanceId, event));
+		}
+	}
+
+	@Override
+	public void start() {
+		try (Connection connection = dataSource.getConnection()) {
+			enabled = connection.isWrapperFor(PGConnection.class);
+		} catch (SQLException e) {
+			// assume Postgres, the listener will keep on trying to connect
+			enabled = true;
+		}
+		if (!enabled) {
+			LogUtil.debug(LOGGER, "Database is not a Postgres one, contract invalidation bus disabled");
+			return;
+		}
+		final Thread thread = new Thread(this::listen, "contract-invalidation-listener");
+		thread.setDaemon(true);
+		this.listener = thread;
+		thread.start();
+	}
+
+	@Override
+	public void stop() {
+		final Thread thread = this.listener;
+		this.listener = null;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Starts before the cache is warmed up, so that no change is missed while
+	 * warming up.
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE - 1;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.listener != null;
+	}
+
+	private void listen() {
+		boolean connectedBefore = false;
+		while (this.listener == Thread.currentThread()) {
+			try (Connection connection = this.openListenerConnection();
+					Statement statement = connection.createStatement()) {
+				// the driver does not implement unwrap, pools do
+				final PGConnection pgConnection = connection instanceof PGConnection ? (PGConnection) connection
+						: connection.unwrap(PGConnection.class);
+				statement.execute("LISTEN " + channel);
+				LogUtil.debug(LOGGER, "Listening to contract changes on channel {}", channel);
+				if (connectedBefore) {
+					// changes notified while disconnected are lost
+					eventPublisher.publishEvent(ContractChangedEvent.remoteAll());
+				}
+				connectedBefore = true;
+				while (this.listener == Thread.currentThread()) {
+					// the driver only reads notifications while processing a query
+					statement.execute("SELECT 1");
+					final PGNotification[] notifications = pgConnection.getNotifications();
+					if (notifications != null) {
+						for (PGNotification notification : notifications) {
+							this.handle(notification.getParameter());
+						}
+					}
+					TimeUnit.MILLISECONDS.sleep(pollInterval);
+				}
+			} catch (SQLException | RuntimeException e) {
+				LOGGER.warn("Contract invalidation listener connection lost: {}", e.getMessage());
+				if (!this.sleep(reconnectDelay)) {
+					return;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Open the listener connection out of the pool if it is a Hikari one
+	 * configured with a JDBC URL, or else borrow it from the pool, wrapped so
+	 * that it goes back to the pool no longer subscribed.
+	 */
+	private Connection openListenerConnection() throws SQLException {
+		if (dataSource.isWrapperFor(HikariConfig.class)) {
+			final HikariConfig config = dataSource.unwrap(HikariConfig.class);
+			if (config.getJdbcUrl() != null) {
+				return DriverManager.getConnection(config.getJdbcUrl(), config.getUsername(), config.getPassword());
+			}
+		}
+		final Connection connection = dataSource.getConnection();
+		return (Connection) Proxy.newProxyInstance(ContractInvalidationBus.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+						try (Statement statement = connection.createStatement()) {
+							statement.execute("UNLISTEN *");
+						} catch (SQLException e) {
+							// the connection is broken, the pool evicts it
+						}
+					}
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+				});
+	}
+
+	private void handle(String payload) {
+		final InvalidationMessage message;
+		try {
+			message = InvalidationMessage.decode(payload);
+		} catch (IllegalArgumentException e) {
+			LogUtil.debug(LOGGER, "Ignoring invalidation message: {}", e.getMessage());
+			return;
+		}
+		if (!instanceId.equals(message.getInstanceId())) {
+			eventPublisher.publishEvent(message.getEvent());
+		}
+	}
+
+	private boolean sleep(long millis) {
+		try {
+			TimeUnit.MILLISECONDS.sleep(millis);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.invalidation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
+import net.chrisgrollier.cloud.apps.sample.contract.service.ContractChangedEvent;
+
+/**
+ * Compact text form of a {@link ContractChangedEvent}, sent as a NOTIFY
+ * payload: {@code <instance>;<contract ids>;<user ids>}, ids being comma
+ * separated, or {@code <instance>;*} when anything may have changed. Events
+ * too large to fit a payload are sent as the latter.
+ */
+final class InvalidationMessage {
+
+	/** Postgres rejects payloads of 8000 bytes or more */
+	private static final int MAX_PAYLOAD_LENGTH = 7999;
+
+	private static final String ALL = "*";
+
+	private static final char SEPARATOR = ';';
+
+	private static final Joiner IDS_JOINER = Joiner.on(',');
+
+	private static final Splitter IDS_SPLITTER = Splitter.on(',').omitEmptyStrings();
+
+	private final String instanceId;
+
+	private final ContractChangedEvent event;
+
+	private InvalidationMessage(String instanceId, ContractChangedEvent event) {
+		this.instanceId = instanceId;
+		this.event = event;
+	}
+
+	/**
+	 * Encode a local event.
+	 * 
+	 * @param instanceId the sending instance identifier
+	 * @param event      the event
+	 * @return the payload
+	 */
+	static String encode(String instanceId, ContractChangedEvent event) {
+		if (!event.isAll()) {
+			final String payload = instanceId + SEPARATOR + IDS_JOINER.join(event.getContractIds()) + SEPARATOR
+					+ IDS_JOINER.join(event.getUserIds());
+			if (payload.length() <= MAX_PAYLOAD_LENGTH) {
+				return payload;
+			}
+		}
+		return instanceId + SEPARATOR + ALL;
+	}
+
+	/**
+	 * Decode a payload.
+	 * 
+	 * @param payload the payload
+	 * @return the message, holding a remote event
+	 * @throws IllegalArgumentException if the payload is malformed
+	 */
+	static InvalidationMessage decode(String payload) {
+		final List<String> parts = Splitter.on(SEPARATOR).splitToList(payload);
+		if (parts.size() == 2 && ALL.equals(parts.get(1))) {
+			return new InvalidationMessage(parts.get(0), ContractChangedEvent.remoteAll());
+		}
+		if (parts.size() != 3) {
+			throw new IllegalArgumentException("Malformed invalidation message: " + payload);
+		}
+		return new InvalidationMessage(parts.get(0),
+				ContractChangedEvent.remote(parseIds(parts.get(1)), parseIds(parts.get(2))));
+	}
+
+	private static Collection<Integer> parseIds(String ids) {
+		return IDS_SPLITTER.splitToList(ids).stream().map(Integer::valueOf).collect(Collectors.toList());
+	}
+
+	String getInstanceId() {
+		return instanceId;
+	}
+
+	ContractChangedEvent getEvent() {
+		return event;
+	}
+}
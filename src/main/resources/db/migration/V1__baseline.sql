@@ -0,0 +1,13 @@
+-- Schema of the contracts service as Hibernate used to generate it. Databases
+-- created before migrations were introduced are baselined at this version.
+
+CREATE SEQUENCE hibernate_sequence START 1 INCREMENT 1;
+
+CREATE TABLE contract (
+    id              INTEGER          NOT NULL,
+    type            INTEGER          NOT NULL,
+    duration        INTEGER          NOT NULL,
+    price           DOUBLE PRECISION NOT NULL,
+    userid          INTEGER          NOT NULL,
+    CONSTRAINT contract_pkey PRIMARY KEY (id)
+);
@@ -0,0 +1,30 @@
+-- Contract lifecycle dates, the archive contracts are moved to once deleted or
+-- expired, and the idempotency keys of contract creations. Rows existing
+-- before this version have no dates.
+
+ALTER TABLE contract
+    ADD COLUMN creation_date   TIMESTAMP,
+    ADD COLUMN expiration_date TIMESTAMP,
+    ADD COLUMN deletion_date   TIMESTAMP,
+    ADD COLUMN last_modified   TIMESTAMP;
+
+CREATE TABLE contract_archive (
+    id              INTEGER          NOT NULL,
+    type            INTEGER          NOT NULL,
+    duration        INTEGER          NOT NULL,
+    price           DOUBLE PRECISION NOT NULL,
+    userid          INTEGER          NOT NULL,
+    creation_date   TIMESTAMP,
+    expiration_date TIMESTAMP,
+    deletion_date   TIMESTAMP,
+    archive_date    TIMESTAMP        NOT NULL,
+    CONSTRAINT contract_archive_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE idempotency_key (
+    key_id          VARCHAR(320)     NOT NULL,
+    fingerprint     VARCHAR(64)      NOT NULL,
+    response        TEXT,
+    expiration_date TIMESTAMP        NOT NULL,
+    CONSTRAINT idempotency_key_pkey PRIMARY KEY (key_id)
+);
@@ -0,0 +1,16 @@
+-- Indexes matching the ContractDAO and archive access paths.
+
+-- findByUserIdAndDeletionDateIsNull: live contracts of a user
+CREATE INDEX contract_live_userid_idx ON contract (userid) WHERE deletion_date IS NULL;
+
+-- lockInactiveContracts: the archiver batches,
+-- both branches of the disjunction being served by an index so that they
+-- combine into a bitmap scan
+CREATE INDEX contract_deleted_idx ON contract (deletion_date) WHERE deletion_date IS NOT NULL;
+CREATE INDEX contract_expiration_date_idx ON contract (expiration_date);
+
+-- archived contracts of a user
+CREATE INDEX contract_archive_userid_idx ON contract_archive (userid);
+
+-- expired idempotency keys purge
+CREATE INDEX idempotency_key_expiration_date_idx ON idempotency_key (expiration_date);
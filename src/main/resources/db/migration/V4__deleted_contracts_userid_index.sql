@@ -0,0 +1,3 @@
+-- findByUserIdAndDeletionDateIsNotNull: soft deleted contracts of a user, read
+-- along with the archived ones until they are moved
+CREATE INDEX contract_deleted_userid_idx ON contract (userid) WHERE deletion_date IS NOT NULL;
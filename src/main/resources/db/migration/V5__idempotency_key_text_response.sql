@@ -0,0 +1,6 @@
+-- Responses used to be mapped as large objects, the response column holding
+-- their OID: drop those keys, at worst replayed requests are processed again,
+-- and the large objects they left, none being used otherwise.
+DELETE FROM idempotency_key WHERE response ~ '^[0-9]+$';
+
+SELECT lo_unlink(oid) FROM pg_largeobject_metadata WHERE lomowner = (SELECT oid FROM pg_roles WHERE rolname = current_user);
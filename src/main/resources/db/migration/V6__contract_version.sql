@@ -0,0 +1,22 @@
+-- Version of the contract table, bumped by every statement changing it in the
+-- transaction of that statement: unlike a modification date, stamped by the
+-- application before commit, it moves whenever a change is committed. It is
+-- the sum of slots, the backend of a statement picking one, so that writers
+-- do not all queue on the same row lock until commit.
+CREATE TABLE contract_version (
+    slot    INTEGER NOT NULL,
+    version BIGINT  NOT NULL,
+    CONSTRAINT contract_version_pkey PRIMARY KEY (slot)
+);
+
+INSERT INTO contract_version (slot, version) SELECT g, 0 FROM generate_series(0, 15) g;
+
+CREATE FUNCTION contract_version_bump() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE contract_version SET version = version + 1 WHERE slot = pg_backend_pid() % 16;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER contract_version_bump AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON contract
+    FOR EACH STATEMENT EXECUTE PROCEDURE contract_version_bump();
@@ -0,0 +1,73 @@
+package net.chrisgrollier.cloud.apps.common.concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that only the outcomes of probe calls decide whether a half open
+ * circuit closes.
+ */
+public class CircuitBreakerTest {
+
+	private static final long OPEN_DURATION = 20;
+
+	private CircuitBreaker circuitBreaker;
+
+	@Before
+	public void setUp() {
+		// opens after 2 calls half of which failed, closes after 2 probes
+		circuitBreaker = new CircuitBreaker("test", 50, 100, 1000, 10, 2, OPEN_DURATION, 2);
+	}
+
+	@Test
+	public void lateResultsAreNotTakenForProbes() throws InterruptedException {
+		final CircuitBreaker.Permission late = circuitBreaker.tryAcquirePermission();
+		this.open();
+		this.halfOpen();
+		final CircuitBreaker.Permission probe = circuitBreaker.tryAcquirePermission();
+		assertNotNull(probe);
+		circuitBreaker.onResult(late, 0, false);
+		circuitBreaker.onResult(probe, 0, false);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, false);
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void probesAreLimited() throws InterruptedException {
+		this.open();
+		this.halfOpen();
+		final CircuitBreaker.Permission first = circuitBreaker.tryAcquirePermission();
+		assertNotNull(first);
+		assertNotNull(circuitBreaker.tryAcquirePermission());
+		assertNull(circuitBreaker.tryAcquirePermission());
+		// an ignored probe may be tried again
+		circuitBreaker.onIgnored(first);
+		assertNotNull(circuitBreaker.tryAcquirePermission());
+	}
+
+	@Test
+	public void failedProbeOpensTheCircuit() throws InterruptedException {
+		this.open();
+		this.halfOpen();
+		circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, true);
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+		assertNull(circuitBreaker.tryAcquirePermission());
+	}
+
+	private void open() {
+		circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, true);
+		circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, true);
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+	}
+
+	private void halfOpen() throws InterruptedException {
+		TimeUnit.MILLISECONDS.sleep(OPEN_DURATION + 5);
+	}
+}
@@ -0,0 +1,103 @@
+package net.chrisgrollier.cloud.apps.common.util.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that bulk mapping behaves as a plain loop whatever the strategy.
+ */
+public class BulkMappingTest {
+
+	private static final int SIZE = 100_000;
+
+	private static ForkJoinPool pool;
+
+	private static BulkMapping parallel;
+
+	private static List<Integer> inputs;
+
+	@BeforeClass
+	public static void setUp() {
+		pool = new ForkJoinPool(8);
+		// small chunks not aligned on the failing elements
+		parallel = new BulkMapping(100, 7, pool);
+		inputs = new ArrayList<>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			inputs.add(i);
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void parallelMappingKeepsInputOrder() {
+		final List<Integer> outputs = parallel.map(inputs, i -> -i);
+		assertEquals(SIZE, outputs.size());
+		for (int i = 0; i < SIZE; i++) {
+			assertEquals(-i, outputs.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void sequentialMappingKeepsInputOrder() {
+		final BulkMapping sequential = new BulkMapping(Integer.MAX_VALUE, 7, pool);
+		assertEquals(inputs, sequential.map(inputs, Function.identity()));
+	}
+
+	@Test
+	public void iterablesAreMappedInOrder() {
+		final List<Integer> outputs = parallel.map(inputs::iterator, i -> -i);
+		assertEquals(SIZE, outputs.size());
+		assertEquals(-(SIZE - 1), outputs.get(SIZE - 1).intValue());
+	}
+
+	@Test
+	public void firstFailureInInputOrderIsThrown() {
+		// elements 500, 1497, 2494... fail, in chunks mapped concurrently
+		for (int run = 0; run < 20; run++) {
+			try {
+				parallel.map(inputs, i -> {
+					if (i % 997 == 500) {
+						throw new IllegalArgumentException(String.valueOf(i));
+					}
+					return i;
+				});
+				fail("no failure");
+			} catch (IllegalArgumentException e) {
+				assertEquals("500", e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void errorsAreRethrownAsIs() {
+		try {
+			parallel.map(inputs, i -> {
+				if (i == SIZE - 1) {
+					throw new AssertionError("last");
+				}
+				return i;
+			});
+			fail("no failure");
+		} catch (AssertionError e) {
+			assertEquals("last", e.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void chunkSizeMustBePositive() {
+		new BulkMapping(100, 0, pool);
+	}
+}
@@ -0,0 +1,118 @@
+package net.chrisgrollier.cloud.apps.common.util.mapping.processor;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.Test;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+/**
+ * Checks that mappers which cannot be generated fail the compilation, with an
+ * error on the mapper interface.
+ */
+public class BidiMapperProcessorTest {
+
+	private static final JavaFileObject COLOR = JavaFileObjects.forSourceLines("test.Color", "package test;",
+			"public enum Color { RED, GREEN }");
+
+	private static final JavaFileObject SHADE = JavaFileObjects.forSourceLines("test.Shade", "package test;",
+			"public enum Shade { RED, GREEN, BLUE }");
+
+	private static final JavaFileObject MODEL = JavaFileObjects.forSourceLines("test.Model", "package test;",
+			"public class Model {", //
+			"	private String name;", //
+			"	private Color color;", //
+			"	public String getName() { return name; }", //
+			"	public void setName(String name) { this.name = name; }", //
+			"	public Color getColor() { return color; }", //
+			"	public void setColor(Color color) { this.color = color; }", //
+			"}");
+
+	@Test
+	public void generatesMappersOfMatchingClasses() {
+		final Compilation compilation = this.compile(this.entity("Color", ""), this.mapper(""));
+		assertThat(compilation).succeeded();
+		assertThat(compilation).generatedSourceFile("test.ModelMapperImpl");
+	}
+
+	@Test
+	public void unmappedPropertiesFail() {
+		final Compilation compilation = this.compile(
+				this.entity("Color", "	public void setCode(int code) { }"), this.mapper(""));
+		assertThat(compilation).failed();
+		assertThat(compilation).hadErrorContaining("Unmapped properties of Entity, missing in Model: [code]");
+	}
+
+	@Test
+	public void ignoredPropertiesAreNotMapped() {
+		final Compilation compilation = this.compile(
+				this.entity("Color", "	public void setCode(int code) { }"), this.mapper("ignoreTo = \"code\""));
+		assertThat(compilation).succeeded();
+	}
+
+	@Test
+	public void missingEnumConstantsFail() {
+		// entities may be BLUE, which models cannot be
+		final Compilation compilation = this.compile(SHADE, this.entity("Shade", ""), this.mapper(""));
+		assertThat(compilation).failed();
+		assertThat(compilation).hadErrorContaining("constants [BLUE] of test.Shade are missing in test.Color");
+	}
+
+	@Test
+	public void unknownIgnoredFromPropertiesFail() {
+		final Compilation compilation = this.compile(this.entity("Color", ""),
+				this.mapper("ignoreFrom = \"nmae\""));
+		assertThat(compilation).failed();
+		assertThat(compilation).hadErrorContaining("ignoreFrom lists properties Model does not have: [nmae]");
+	}
+
+	@Test
+	public void unknownIgnoredToPropertiesFail() {
+		final Compilation compilation = this.compile(this.entity("Color", ""),
+				this.mapper("ignoreTo = { \"name\", \"colour\" }"));
+		assertThat(compilation).failed();
+		assertThat(compilation).hadErrorContaining("ignoreTo lists properties Entity does not have: [colour]");
+	}
+
+	private Compilation compile(JavaFileObject... sources) {
+		final JavaFileObject[] all = new JavaFileObject[sources.length + 2];
+		all[0] = COLOR;
+		all[1] = MODEL;
+		System.arraycopy(sources, 0, all, 2, sources.length);
+		return javac().withProcessors(new BidiMapperProcessor()).compile(all);
+	}
+
+	/**
+	 * @return an entity with the properties of the model, color being of the
+	 *         given enum, plus the given members
+	 */
+	private JavaFileObject entity(String colorType, String members) {
+		return JavaFileObjects.forSourceLines("test.Entity", "package test;", //
+				"public class Entity {", //
+				"	private String name;", //
+				"	private " + colorType + " color;", //
+				"	public String getName() { return name; }", //
+				"	public void setName(String name) { this.name = name; }", //
+				"	public " + colorType + " getColor() { return color; }", //
+				"	public void setColor(" + colorType + " color) { this.color = color; }", //
+				members, //
+				"}");
+	}
+
+	/**
+	 * @return a mapper of models to entities, annotated with the given
+	 *         attributes
+	 */
+	private JavaFileObject mapper(String attributes) {
+		return JavaFileObjects.forSourceLines("test.ModelMapper", "package test;", //
+				"import net.chrisgrollier.cloud.apps.common.util.mapping.BidiMapper;", //
+				"import net.chrisgrollier.cloud.apps.common.util.mapping.GenerateBidiMapper;", //
+				"@GenerateBidiMapper(component = false" + (attributes.isEmpty() ? "" : ", " + attributes) + ")", //
+				"public interface ModelMapper extends BidiMapper<Model, Entity> {", //
+				"}");
+	}
+}
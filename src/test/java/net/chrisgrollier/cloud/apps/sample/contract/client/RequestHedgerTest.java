@@ -0,0 +1,172 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+import net.chrisgrollier.cloud.apps.common.exception.http.GatewayTimeoutException;
+import net.chrisgrollier.cloud.apps.sample.contract.client.http.AbortHandle;
+
+/**
+ * Hedges calls between two stub instances of the users service, answering
+ * after the given delays.
+ */
+public class RequestHedgerTest {
+
+	private static final URI USERS = URI.create("http://usersservice/users/1");
+
+	private final BlockingQueue<String> outcomes = new LinkedBlockingQueue<>();
+
+	private HttpServer fast;
+
+	private HttpServer slow;
+
+	private HttpServer slower;
+
+	private CloseableHttpClient httpClient;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private LoadBalancerClient loadBalancer;
+
+	private RequestHedger hedger;
+
+	@Before
+	public void setUp() throws IOException {
+		fast = stub("fast", 0);
+		slow = stub("slow", 5000);
+		slower = stub("slower", 5000);
+		httpClient = HttpClients.createDefault();
+		meterRegistry = new SimpleMeterRegistry();
+		loadBalancer = mock(LoadBalancerClient.class);
+		when(loadBalancer.reconstructURI(any(), any())).thenAnswer(invocation -> {
+			final ServiceInstance instance = invocation.getArgument(0);
+			return UriComponentsBuilder.fromUri(invocation.getArgument(1)).host(instance.getHost())
+					.port(instance.getPort()).build().toUri();
+		});
+		// hedged after 50 ms
+		hedger = new RequestHedger(loadBalancer, meterRegistry, 95, 5, 50, 1, 10, 1000);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		hedger.destroy();
+		httpClient.close();
+		fast.stop(0);
+		slow.stop(0);
+		slower.stop(0);
+		Deadline.clear();
+	}
+
+	@Test
+	public void hedgeWinsAndSlowCallIsAborted() throws Exception {
+		when(loadBalancer.choose(anyString())).thenReturn(instance(slow), instance(fast));
+		final long start = System.nanoTime();
+		assertEquals("fast", hedger.call(USERS, this::get));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+		assertEquals("fast", outcomes.poll(1, TimeUnit.SECONDS));
+		assertEquals("aborted", outcomes.poll(1, TimeUnit.SECONDS));
+		assertEquals(1, meterRegistry.counter("users.client.hedge", "result", "won").count(), 0);
+	}
+
+	@Test
+	public void deadlineBoundsTheHedgedCall() throws Exception {
+		when(loadBalancer.choose(anyString())).thenReturn(instance(slow), instance(slower));
+		Deadline.set(Deadline.after(300));
+		this.assertTimesOutWithin(1000);
+	}
+
+	@Test
+	public void readTimeoutBoundsTheHedgedCall() throws Exception {
+		when(loadBalancer.choose(anyString())).thenReturn(instance(slow), instance(slower));
+		this.assertTimesOutWithin(2000);
+	}
+
+	private void assertTimesOutWithin(long millis) throws InterruptedException {
+		final long start = System.nanoTime();
+		try {
+			hedger.call(USERS, this::get);
+			fail("no timeout");
+		} catch (GatewayTimeoutException e) {
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < millis);
+		}
+		// both calls, the primary and the hedge
+		assertEquals("aborted", outcomes.poll(1, TimeUnit.SECONDS));
+		assertEquals("aborted", outcomes.poll(1, TimeUnit.SECONDS));
+		assertNotNull(meterRegistry.find("users.client.hedge").tag("result", "sent").counter());
+	}
+
+	/**
+	 * Get a URI, registering the request to the abort handle as the request
+	 * factory does, and record the outcome.
+	 */
+	private String get(URI uri) {
+		final HttpGet request = new HttpGet(uri);
+		AbortHandle.register(request);
+		try {
+			final String body = EntityUtils.toString(httpClient.execute(request).getEntity());
+			outcomes.add(body);
+			return body;
+		} catch (IOException e) {
+			outcomes.add("aborted");
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static ServiceInstance instance(HttpServer server) {
+		return new DefaultServiceInstance("usersservice", "localhost", server.getAddress().getPort(), false);
+	}
+
+	private static HttpServer stub(String name, long delay) throws IOException {
+		final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", exchange -> {
+			try {
+				TimeUnit.MILLISECONDS.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			final byte[] body = name.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			} catch (IOException e) {
+				// the call was aborted
+			}
+		});
+		server.start();
+		return server;
+	}
+}
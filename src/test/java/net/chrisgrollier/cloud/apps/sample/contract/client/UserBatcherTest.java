@@ -0,0 +1,113 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Checks that micro-batches only hold lookups made with the same credentials.
+ */
+public class UserBatcherTest {
+
+	private final List<Call> calls = new CopyOnWriteArrayList<>();
+
+	private UserBatcher batcher;
+
+	@Before
+	public void setUp() {
+		final StubUsersServiceApi api = new StubUsersServiceApi(100) {
+
+			@Override
+			public Map<Integer, UserInfo> findUsers(Collection<Integer> userIds, String authorization) {
+				calls.add(new Call(userIds, authorization));
+				return super.findUsers(userIds, authorization);
+			}
+		};
+		batcher = new UserBatcher(api, 50, 3, 2);
+	}
+
+	@After
+	public void tearDown() {
+		batcher.shutdown();
+	}
+
+	@Test
+	public void batchesPerAuthorization() throws Exception {
+		final List<CompletableFuture<Optional<UserInfo>>> results = new ArrayList<>();
+		// within one window, alice filling a batch and leaving one user queued
+		results.addAll(batcher.submit(Arrays.asList(1, 2, 3, 4), "Bearer alice").values());
+		results.addAll(batcher.submit(Arrays.asList(4, 5), "Bearer bob").values());
+		results.addAll(batcher.submit(Arrays.asList(5), null).values());
+		for (CompletableFuture<Optional<UserInfo>> result : results) {
+			assertTrue(result.get(1, TimeUnit.SECONDS).isPresent());
+		}
+		final Set<Call> expected = new HashSet<>(Arrays.asList(new Call(Arrays.asList(1, 2, 3), "Bearer alice"),
+				new Call(Arrays.asList(4), "Bearer alice"), new Call(Arrays.asList(4, 5), "Bearer bob"),
+				new Call(Arrays.asList(5), null)));
+		assertEquals(expected, new HashSet<>(calls));
+	}
+
+	@Test
+	public void sharesPendingLookupsOfSameAuthorization() throws Exception {
+		final Map<Integer, CompletableFuture<Optional<UserInfo>>> first = batcher.submit(Arrays.asList(7),
+				"Bearer alice");
+		final Map<Integer, CompletableFuture<Optional<UserInfo>>> second = batcher.submit(Arrays.asList(7),
+				"Bearer alice");
+		assertSame(first.get(7), second.get(7));
+		first.get(7).get(1, TimeUnit.SECONDS);
+		assertEquals(1, calls.size());
+		// retired once completed, later lookups are sent again
+		batcher.submit(Arrays.asList(7), "Bearer alice").get(7).get(1, TimeUnit.SECONDS);
+		assertEquals(2, calls.size());
+	}
+
+	private static final class Call {
+
+		private final List<Integer> userIds;
+
+		private final String authorization;
+
+		Call(Collection<Integer> userIds, String authorization) {
+			this.userIds = new ArrayList<>(userIds);
+			this.authorization = authorization;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(userIds, authorization);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Call)) {
+				return false;
+			}
+			final Call other = (Call) obj;
+			return userIds.equals(other.userIds) && Objects.equals(authorization, other.authorization);
+		}
+
+		@Override
+		public String toString() {
+			return authorization + " " + userIds;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.google.common.cache.Cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Checks that cached users are only served to the callers the users service
+ * gave them to.
+ */
+public class UserServiceClientTest {
+
+	private static final String ALICE = "Bearer alice";
+
+	private static final String INTRUDER = "Bearer intruder";
+
+	private RecordingUsersServiceApi api;
+
+	private UserServiceClient client;
+
+	@Before
+	public void setUp() {
+		api = new RecordingUsersServiceApi();
+		final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		final UsersServiceGuard guard = new UsersServiceGuard(meterRegistry, 25, 50, 80, 2000, 50, 20, 10000, 3);
+		client = new UserServiceClient(api, guard, meterRegistry, 300, 240, 30, 10000, 3600, 5, 100, 2, 10000);
+	}
+
+	@After
+	public void tearDown() {
+		client.destroy();
+	}
+
+	@Test
+	public void findUserIsNotServedToOtherCallers() {
+		assertTrue(client.findUser(1, ALICE).isPresent());
+		assertRefused(() -> client.findUser(1, INTRUDER));
+		assertTrue(client.findUser(1, ALICE).isPresent());
+		assertEquals(Arrays.asList(ALICE, INTRUDER), api.authorizations);
+	}
+
+	@Test
+	public void findRoleIsNotServedToOtherCallers() {
+		assertEquals(Optional.of("USER"), client.findRole(1, ALICE));
+		assertRefused(() -> client.findRole(1, INTRUDER));
+	}
+
+	@Test
+	public void findUsersIsNotServedToOtherCallers() {
+		assertEquals(2, client.findUsers(Arrays.asList(1, 2), ALICE).size());
+		assertRefused(() -> client.findUsers(Arrays.asList(1, 2), INTRUDER));
+		assertEquals(2, client.findUsers(Arrays.asList(1, 2), ALICE).size());
+		assertEquals(Arrays.asList(ALICE, INTRUDER), api.authorizations);
+	}
+
+	@Test
+	public void cacheKeysDoNotHoldTheCredentials() throws IllegalAccessException {
+		client.findUser(1, ALICE);
+		client.findRole(1, ALICE);
+		for (String name : Arrays.asList("users", "roles", "lastKnownRoles")) {
+			final Cache<?, ?> cache = (Cache<?, ?>) ReflectionTestUtils.getField(client, name);
+			assertEquals(1, cache.size());
+			for (Object key : cache.asMap().keySet()) {
+				for (Field field : key.getClass().getDeclaredFields()) {
+					field.setAccessible(true);
+					assertFalse(String.valueOf(field.get(key)).contains("alice"));
+				}
+			}
+		}
+	}
+
+	private static void assertRefused(Runnable lookup) {
+		try {
+			lookup.run();
+			fail("Lookup should have been refused");
+		} catch (HttpClientErrorException e) {
+			assertEquals(HttpStatus.FORBIDDEN, e.getStatusCode());
+		}
+	}
+
+	/**
+	 * Refuses the intruder and records the credentials of each call.
+	 */
+	static class RecordingUsersServiceApi extends StubUsersServiceApi {
+
+		final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+		RecordingUsersServiceApi() {
+			super(10);
+		}
+
+		@Override
+		public Optional<UserInfo> findUser(Integer userId, String authorization) {
+			this.authorize(authorization);
+			return super.findUser(userId, authorization);
+		}
+
+		@Override
+		public Optional<String> findRole(Integer userId, String authorization) {
+			this.authorize(authorization);
+			return super.findRole(userId, authorization);
+		}
+
+		@Override
+		public Map<Integer, UserInfo> findUsers(Collection<Integer> userIds, String authorization) {
+			this.authorize(authorization);
+			final Map<Integer, UserInfo> users = new LinkedHashMap<>();
+			for (Integer userId : userIds) {
+				super.findUser(userId, authorization).ifPresent(user -> users.put(userId, user));
+			}
+			return users;
+		}
+
+		private void authorize(String authorization) {
+			authorizations.add(authorization);
+			if (INTRUDER.equals(authorization)) {
+				throw new HttpClientErrorException(HttpStatus.FORBIDDEN);
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.chrisgrollier.cloud.apps.common.concurrency.CircuitBreaker;
+import net.chrisgrollier.cloud.apps.common.concurrency.Deadline;
+import net.chrisgrollier.cloud.apps.common.exception.http.GatewayTimeoutException;
+
+/**
+ * Checks which call outcomes the circuit breaker is fed with.
+ */
+public class UsersServiceGuardTest {
+
+	private static final long SLOW_CALL_DURATION = 200;
+
+	private UsersServiceGuard guard;
+
+	@Before
+	public void setUp() {
+		// opens after 5 calls half of which failed or were slow
+		guard = new UsersServiceGuard(new SimpleMeterRegistry(), 25, 50, 50, SLOW_CALL_DURATION, 10, 5, 60000, 1);
+	}
+
+	@After
+	public void tearDown() {
+		Deadline.clear();
+	}
+
+	@Test
+	public void timeoutsOfTheServiceOpenTheCircuit() {
+		for (int i = 0; i < 5; i++) {
+			this.assertFails(UsersServiceUnavailableException.class, this::timeOut);
+		}
+		assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+	}
+
+	@Test
+	public void timeoutsOfTheCallerBudgetAreIgnored() {
+		for (int i = 0; i < 10; i++) {
+			Deadline.set(Deadline.after(5));
+			this.assertFails(GatewayTimeoutException.class, () -> {
+				this.sleep(10);
+				return this.timeOut();
+			});
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+	}
+
+	@Test
+	public void slowCallsCutByTheCallerBudgetAreRecordedAsSlow() {
+		for (int i = 0; i < 5; i++) {
+			Deadline.set(Deadline.after(SLOW_CALL_DURATION));
+			this.assertFails(GatewayTimeoutException.class, () -> {
+				this.sleep(SLOW_CALL_DURATION + 10);
+				return this.timeOut();
+			});
+		}
+		assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+	}
+
+	@Test
+	public void successesPastTheCallerBudgetCount() {
+		// probes once open for 20 ms
+		guard = new UsersServiceGuard(new SimpleMeterRegistry(), 25, 50, 50, SLOW_CALL_DURATION, 10, 5, 20, 1);
+		for (int i = 0; i < 5; i++) {
+			this.assertFails(UsersServiceUnavailableException.class, this::timeOut);
+		}
+		this.sleep(30);
+		Deadline.set(Deadline.after(5));
+		assertEquals("ok", guard.call(() -> {
+			this.sleep(10);
+			return "ok";
+		}));
+		assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+	}
+
+	private Object timeOut() {
+		throw new GatewayTimeoutException("Timed out calling users service");
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void assertFails(Class<? extends RuntimeException> expected, Supplier<Object> call) {
+		try {
+			guard.call(call);
+			fail("Call should have failed");
+		} catch (RuntimeException e) {
+			assertEquals(expected, e.getClass());
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package net.chrisgrollier.cloud.apps.sample.contract.client.loadbalancer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Calls two stub instances of a service, one of them slow, through the rule
+ * and the statistics recording request factory.
+ */
+public class LatencyAwareRuleTest {
+
+	private HttpServer fast;
+
+	private HttpServer slow;
+
+	private InstanceStats instanceStats;
+
+	private BaseLoadBalancer loadBalancer;
+
+	private LatencyAwareRule rule;
+
+	private RestTemplate restTemplate;
+
+	@Before
+	public void setUp() throws IOException {
+		fast = stub("fast", 0);
+		slow = stub("slow", 100);
+		instanceStats = new InstanceStats(10000, 1000);
+		loadBalancer = new BaseLoadBalancer();
+		loadBalancer.addServers(Arrays.asList(server(fast), server(slow)));
+		rule = new LatencyAwareRule(instanceStats);
+		rule.setLoadBalancer(loadBalancer);
+		// warm the HTTP client up, so that the first recorded calls are not slowed
+		// down by class loading
+		for (HttpServer stub : Arrays.asList(fast, slow)) {
+			new RestTemplate().getForObject(URI.create("http://" + server(stub).getHostPort() + "/"), String.class);
+		}
+		restTemplate = new RestTemplate(
+				new InstanceStatsClientHttpRequestFactory(new SimpleClientHttpRequestFactory(), instanceStats));
+	}
+
+	@After
+	public void tearDown() {
+		loadBalancer.shutdown();
+		fast.stop(0);
+		slow.stop(0);
+	}
+
+	@Test
+	public void trafficMovesAwayFromTheSlowInstance() {
+		final Map<String, Integer> calls = new HashMap<>();
+		for (int i = 0; i < 50; i++) {
+			final String body = this.call();
+			// once both instances were probed
+			if (i >= 10) {
+				calls.merge(body, 1, Integer::sum);
+			}
+		}
+		assertEquals(40, calls.getOrDefault("fast", 0).intValue());
+		assertTrue(instanceStats.get(server(slow).getHostPort()).getLatency() > instanceStats
+				.get(server(fast).getHostPort()).getLatency());
+	}
+
+	@Test
+	public void concurrentFirstCallsSeedTheAverageOnce() throws Exception {
+		final InstanceStats.Stats stats = instanceStats.get("localhost:1");
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		final CountDownLatch go = new CountDownLatch(1);
+		try {
+			for (int i = 0; i < 8; i++) {
+				executor.execute(() -> {
+					try {
+						go.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					stats.start();
+					stats.end(TimeUnit.MILLISECONDS.toNanos(100), false);
+				});
+			}
+			go.countDown();
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(100), stats.getLatency(), 1);
+		assertEquals(8, stats.snapshot().getCalls());
+	}
+
+	private String call() {
+		final Server server = rule.choose(null);
+		return restTemplate.getForObject(URI.create("http://" + server.getHostPort() + "/"), String.class);
+	}
+
+	private static Server server(HttpServer stub) {
+		return new Server("localhost", stub.getAddress().getPort());
+	}
+
+	private static HttpServer stub(String name, long delay) throws IOException {
+		final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			try {
+				TimeUnit.MILLISECONDS.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			final byte[] body = name.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		});
+		server.start();
+		return server;
+	}
+}
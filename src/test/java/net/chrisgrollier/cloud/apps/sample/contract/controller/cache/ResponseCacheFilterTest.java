@@ -0,0 +1,126 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Checks which responses the filter stores and serves.
+ */
+public class ResponseCacheFilterTest {
+
+	private static final String BODY = "{\"id\":1}";
+
+	private final AtomicInteger handled = new AtomicInteger();
+
+	private SerializedResponseCache cache;
+
+	private ResponseCacheFilter filter;
+
+	private boolean cacheable;
+
+	@Before
+	public void setUp() {
+		cache = new SerializedResponseCache(1024 * 1024, 300);
+		filter = new ResponseCacheFilter(
+				ImmutableMap.of("/api/v1/contracts/{id}",
+						new ResponseCacheFilter.Endpoint("getContractById", "contract", "id")),
+				cache, 1024, new SimpleMeterRegistry());
+		cacheable = true;
+	}
+
+	@Test
+	public void servesStoredResponses() throws Exception {
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(1, handled.get());
+	}
+
+	@Test
+	public void rebuildsInvalidatedResponses() throws Exception {
+		assertEquals(BODY, this.get().getContentAsString());
+		cache.invalidate("contract:2");
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(1, handled.get());
+		cache.invalidate("contract:1");
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(2, handled.get());
+	}
+
+	@Test
+	public void doesNotStoreResponsesMarkedNotCacheable() throws Exception {
+		cacheable = false;
+		assertEquals(BODY, this.get().getContentAsString());
+		cacheable = true;
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(2, handled.get());
+	}
+
+	@Test
+	public void deliversResponsesThatCouldNotBeStored() throws Exception {
+		final SerializedResponseCache full = new SerializedResponseCache(1024 * 1024, 300) {
+
+			@Override
+			public void put(Key key, String contentType, byte[] body) {
+				throw new OutOfMemoryError("Direct buffer memory");
+			}
+		};
+		filter = new ResponseCacheFilter(
+				ImmutableMap.of("/api/v1/contracts/{id}",
+						new ResponseCacheFilter.Endpoint("getContractById", "contract", "id")),
+				full, 1024, new SimpleMeterRegistry());
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(BODY, this.get().getContentAsString());
+		assertEquals(2, handled.get());
+	}
+
+	private MockHttpServletResponse get() throws IOException, ServletException {
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/contracts/1");
+		request.setUserPrincipal(new TestingAuthenticationToken("alice", "secret"));
+		final MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain(new Handler()));
+		return response;
+	}
+
+	private class Handler extends HttpServlet {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+			handled.incrementAndGet();
+			RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+			try {
+				if (!cacheable) {
+					ResponseCacheFilter.doNotCache();
+				}
+			} finally {
+				RequestContextHolder.resetRequestAttributes();
+			}
+			response.setContentType("application/json");
+			response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.execution;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Checks that the connection quota of an execution class holds whatever the
+ * thread closing the connections, and does not limit other classes.
+ */
+public class ExecutionClassDataSourceTest {
+
+	private ExecutionClassPool bulk;
+
+	private ExecutionClassPool interactive;
+
+	private ExecutionClassDataSource dataSource;
+
+	@Before
+	public void setUp() throws Exception {
+		final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		// a single thread, so that the tasks of a class share it
+		bulk = new ExecutionClassPool(ServiceClass.BULK, 1, 4, 1, 100, 10000, meterRegistry);
+		interactive = new ExecutionClassPool(ServiceClass.INTERACTIVE, 1, 4, 1, 100, 10000, meterRegistry);
+		final DataSource target = mock(DataSource.class);
+		when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+		dataSource = new ExecutionClassDataSource(target);
+	}
+
+	@After
+	public void tearDown() {
+		bulk.shutdown();
+		interactive.shutdown();
+	}
+
+	@Test
+	public void saturatedQuotaOnlyLimitsItsClass() throws Exception {
+		// the connection outlives its request, as it would until the async dispatch
+		final Connection held = this.run(bulk, dataSource::getConnection);
+		try {
+			this.run(bulk, dataSource::getConnection);
+			fail("bulk quota exceeded");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof SQLTransientConnectionException);
+		}
+		assertNotNull(this.run(interactive, dataSource::getConnection));
+		// unlimited out of any class
+		assertNotNull(dataSource.getConnection());
+		held.close();
+		assertNotNull(this.run(bulk, dataSource::getConnection));
+	}
+
+	@Test
+	public void connectionsOfARequestShareItsPermit() throws Exception {
+		assertFalse(this.run(bulk, () -> {
+			try (Connection outer = dataSource.getConnection(); Connection inner = dataSource.getConnection()) {
+				return inner.isClosed();
+			}
+		}));
+		assertNotNull(this.run(bulk, dataSource::getConnection));
+	}
+
+	private <T> T run(ExecutionClassPool pool, Callable<T> task) throws Exception {
+		assertTrue(pool.tryAdmit());
+		return pool.getTaskExecutor().submit(pool.wrap(task)).get(10, TimeUnit.SECONDS);
+	}
+}
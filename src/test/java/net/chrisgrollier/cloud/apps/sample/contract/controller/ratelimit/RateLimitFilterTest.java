@@ -0,0 +1,70 @@
+package net.chrisgrollier.cloud.apps.sample.contract.controller.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.EnumSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Checks which bucket requests are charged to.
+ */
+public class RateLimitFilterTest {
+
+	private RateLimitFilter filter;
+
+	@Before
+	public void setUp() {
+		// a single request per client, not refilled during the test
+		filter = new RateLimitFilter(
+				ImmutableList.of(new RateLimitGroup("read", EnumSet.of(HttpMethod.GET),
+						ImmutableList.of("/api/v1/contracts/**"), 1, 0.001)),
+				ImmutableSet.of("known-key"), 100, 600, (request, response, handler, e) -> null,
+				new SimpleMeterRegistry());
+	}
+
+	@Test
+	public void unknownApiKeysShareTheAddressBucket() throws Exception {
+		assertEquals(200, this.get(null, "made-up-1"));
+		assertEquals(429, this.get(null, "made-up-2"));
+		assertEquals(429, this.get(null, null));
+	}
+
+	@Test
+	public void knownApiKeysGetTheirOwnBucket() throws Exception {
+		assertEquals(200, this.get(null, null));
+		assertEquals(200, this.get(null, "known-key"));
+		assertEquals(429, this.get(null, "known-key"));
+	}
+
+	@Test
+	public void principalsAreChargedWhateverTheApiKey() throws Exception {
+		assertEquals(200, this.get("alice", null));
+		assertEquals(429, this.get("alice", "known-key"));
+		assertEquals(200, this.get(null, "known-key"));
+	}
+
+	private int get(String user, String apiKey) throws Exception {
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/contracts/1");
+		if (user != null) {
+			request.setUserPrincipal(new TestingAuthenticationToken(user, "secret"));
+		}
+		if (apiKey != null) {
+			request.addHeader(RateLimitFilter.API_KEY_HEADER, apiKey);
+		}
+		final MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response.getStatus();
+	}
+}
@@ -0,0 +1,128 @@
+package net.chrisgrollier.cloud.apps.sample.contract.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractEntity;
+
+/**
+ * Checks that archivers running concurrently, e.g. on several instances, lock
+ * distinct batches of inactive contracts.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.cloud.bootstrap.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ContractDAOLockTest {
+
+	private static EmbeddedPostgres postgres;
+
+	@Autowired
+	private ContractDAO contractDAO;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeClass
+	public static void seed() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+		try (Connection connection = postgres.getPostgresDatabase().getConnection();
+				Statement statement = connection.createStatement()) {
+			// 10 soft deleted contracts out of 20
+			statement.execute("INSERT INTO contract (id, type, duration, price, userid, deletion_date)"
+					+ " SELECT g, 0, 12, 100, g, CASE WHEN g % 2 = 0 THEN now() END"
+					+ " FROM generate_series(1, 20) g");
+		}
+	}
+
+	@AfterClass
+	public static void stop() throws Exception {
+		postgres.close();
+	}
+
+	@Test
+	public void concurrentArchiversLockDistinctBatches() throws Exception {
+		final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Set<Integer>> first = executor.submit(() -> transaction.execute(status -> {
+				final Set<Integer> ids = this.lock(4);
+				locked.countDown();
+				this.await(done);
+				return ids;
+			}));
+			assertTrue(locked.await(10, TimeUnit.SECONDS));
+			final Set<Integer> second = transaction.execute(status -> this.lock(10));
+			done.countDown();
+			final Set<Integer> both = new HashSet<>(first.get(10, TimeUnit.SECONDS));
+			assertEquals(4, both.size());
+			assertEquals(6, second.size());
+			both.addAll(second);
+			assertEquals(10, both.size());
+		} finally {
+			done.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private Set<Integer> lock(int limit) {
+		final List<ContractEntity> batch = contractDAO.lockInactiveContracts(LocalDateTime.now(), limit);
+		return batch.stream().map(ContractEntity::getId).collect(Collectors.toSet());
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Configuration
+	@EntityScan(basePackageClasses = ContractEntity.class)
+	@EnableJpaRepositories(basePackageClasses = ContractDAO.class)
+	static class Config {
+
+		@Bean
+		public DataSource dataSource() {
+			return postgres.getPostgresDatabase();
+		}
+	}
+}
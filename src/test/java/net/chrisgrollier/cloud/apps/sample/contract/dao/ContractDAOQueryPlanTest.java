@@ -0,0 +1,236 @@
+package net.chrisgrollier.cloud.apps.sample.contract.dao;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.chrisgrollier.cloud.apps.sample.contract.dao.RecordingDataSource.RecordedStatement;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractEntity;
+
+/**
+ * Explains the queries of the DAOs against an embedded Postgres migrated by
+ * the application migrations, and seeded with large tables so that the
+ * planner prefers indexes whenever they apply. Each test fails if a query it
+ * runs scans a table sequentially.
+ *
+ * {@link ContractDAO#findByDeletionDateIsNull()}, which reads the whole live
+ * table by design, and {@link ContractDAO#findVersion()}, which sums the few
+ * rows of the version table, are not checked, nor are the queries inherited
+ * from the Spring Data repositories.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.cloud.bootstrap.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class ContractDAOQueryPlanTest {
+
+	private static final int CONTRACTS = 200_000;
+
+	private static final int USERS = 50_000;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private static EmbeddedPostgres postgres;
+
+	@Autowired
+	private RecordingDataSource dataSource;
+
+	@Autowired
+	private ContractDAO contractDAO;
+
+	@Autowired
+	private ContractArchiveDAO contractArchiveDAO;
+
+	@Autowired
+	private IdempotencyKeyDAO idempotencyKeyDAO;
+
+	@BeforeClass
+	public static void seed() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		final DataSource target = postgres.getPostgresDatabase();
+		Flyway.configure().dataSource(target).load().migrate();
+		try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+			// @formatter:off
+			statement.execute("INSERT INTO contract"
+					+ " SELECT g, g % 3, 12 + g % 48, 100 + g % 900, 1 + g % " + USERS + ","
+					+ " now() - (g % 1000) * interval '1 day',"
+					// about 0.5% expired
+					+ " now() + (g % 2000 - 10) * interval '1 day',"
+					// about 0.5% soft deleted
+					+ " CASE WHEN g % 200 = 0 THEN now() - interval '1 day' END,"
+					+ " now() - (g % 1000) * interval '1 day'"
+					+ " FROM generate_series(1, " + CONTRACTS + ") g");
+			statement.execute("INSERT INTO contract_archive"
+					+ " SELECT " + CONTRACTS + " + g, g % 3, 12 + g % 48, 100 + g % 900, 1 + g % " + USERS + ","
+					+ " now() - interval '2 years', now() - interval '1 year', NULL, now() - interval '1 year'"
+					+ " FROM generate_series(1, " + CONTRACTS / 2 + ") g");
+			statement.execute("INSERT INTO idempotency_key"
+					+ " SELECT 'key-' || g, md5(g::text), NULL, now() + (g % 1000 - 5) * interval '1 minute'"
+					+ " FROM generate_series(1, " + CONTRACTS / 2 + ") g");
+			// @formatter:on
+			statement.execute("VACUUM ANALYZE");
+		}
+	}
+
+	@AfterClass
+	public static void stop() throws Exception {
+		postgres.close();
+	}
+
+	@Test
+	public void findByIdAndDeletionDateIsNull() {
+		this.assertNoSeqScan(() -> contractDAO.findByIdAndDeletionDateIsNull(12_345));
+	}
+
+	@Test
+	public void findByUserIdAndDeletionDateIsNull() {
+		this.assertNoSeqScan(() -> contractDAO.findByUserIdAndDeletionDateIsNull(42));
+	}
+
+	@Test
+	public void findByUserIdInAndDeletionDateIsNull() {
+		this.assertNoSeqScan(() -> contractDAO.findByUserIdInAndDeletionDateIsNull(
+				IntStream.rangeClosed(1, 100).boxed().collect(Collectors.toList())));
+	}
+
+	@Test
+	public void findByIdBetweenAndDeletionDateIsNull() {
+		this.assertNoSeqScan(() -> contractDAO.findByIdBetweenAndDeletionDateIsNull(1_000, 1_999));
+	}
+
+	@Test
+	public void findByDeletionDateIsNotNull() {
+		this.assertNoSeqScan(() -> contractDAO.findByDeletionDateIsNotNull());
+	}
+
+	@Test
+	public void findByIdAndDeletionDateIsNotNull() {
+		this.assertNoSeqScan(() -> contractDAO.findByIdAndDeletionDateIsNotNull(12_345));
+	}
+
+	@Test
+	public void findByUserIdAndDeletionDateIsNotNull() {
+		this.assertNoSeqScan(() -> contractDAO.findByUserIdAndDeletionDateIsNotNull(42));
+	}
+
+	@Test
+	public void findFirstByOrderById() {
+		this.assertNoSeqScan(() -> {
+			contractDAO.findFirstByOrderByIdAsc();
+			contractDAO.findFirstByOrderByIdDesc();
+		});
+	}
+
+	@Test
+	public void lockInactiveContracts() {
+		this.assertNoSeqScan(() -> contractDAO.lockInactiveContracts(LocalDateTime.now(), 500));
+	}
+
+	@Test
+	public void deleteByIds() {
+		this.assertNoSeqScan(() -> contractDAO
+				.deleteByIds(IntStream.rangeClosed(1, 500).boxed().collect(Collectors.toList())));
+	}
+
+	@Test
+	public void findArchivedByUserId() {
+		this.assertNoSeqScan(() -> contractArchiveDAO.findByUserId(42));
+	}
+
+	@Test
+	public void takeOverIdempotencyKey() {
+		this.assertNoSeqScan(() -> idempotencyKeyDAO.takeOver("key-42", "fingerprint", LocalDateTime.now(),
+				LocalDateTime.now().plusMinutes(2)));
+	}
+
+	@Test
+	public void deleteExpiredIdempotencyKeys() {
+		this.assertNoSeqScan(() -> idempotencyKeyDAO.deleteExpired(LocalDateTime.now()));
+	}
+
+	/**
+	 * Run some queries in the test transaction, rolled back afterwards, then
+	 * explain them.
+	 */
+	private void assertNoSeqScan(Runnable queries) {
+		dataSource.drain();
+		queries.run();
+		final List<RecordedStatement> statements = dataSource.drain();
+		assertFalse("No statement was executed", statements.isEmpty());
+		for (RecordedStatement statement : statements) {
+			final JsonNode plan = this.explain(statement);
+			final String scanned = seqScannedRelation(plan);
+			if (scanned != null) {
+				fail("Sequential scan on " + scanned + " by " + statement + ", plan:\n" + plan.toString());
+			}
+		}
+	}
+
+	private JsonNode explain(RecordedStatement statement) {
+		// without ANALYZE, statements are planned but not run
+		try (Connection connection = postgres.getPostgresDatabase().getConnection();
+				Statement explain = connection.createStatement();
+				ResultSet plan = explain.executeQuery("EXPLAIN (FORMAT JSON) " + statement.toInlinedSql())) {
+			plan.next();
+			return MAPPER.readTree(plan.getString(1)).get(0).get("Plan");
+		} catch (SQLException | IOException e) {
+			throw new IllegalStateException("Unable to explain " + statement, e);
+		}
+	}
+
+	/**
+	 * @return the relation a plan node or one of its children scans
+	 *         sequentially, null if none
+	 */
+	private static String seqScannedRelation(JsonNode node) {
+		if ("Seq Scan".equals(node.path("Node Type").asText())) {
+			return node.path("Relation Name").asText();
+		}
+		for (JsonNode child : node.path("Plans")) {
+			final String scanned = seqScannedRelation(child);
+			if (scanned != null) {
+				return scanned;
+			}
+		}
+		return null;
+	}
+
+	@Configuration
+	@EntityScan(basePackageClasses = ContractEntity.class)
+	@EnableJpaRepositories(basePackageClasses = ContractDAO.class)
+	static class Config {
+
+		@Bean
+		public RecordingDataSource dataSource() {
+			return new RecordingDataSource(postgres.getPostgresDatabase());
+		}
+	}
+}
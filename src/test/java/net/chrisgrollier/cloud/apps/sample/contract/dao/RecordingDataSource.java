@@ -0,0 +1,147 @@
+package net.chrisgrollier.cloud.apps.sample.contract.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * A data source recording the prepared statements it executes, along with
+ * their parameters, so that their plans can be explained afterwards.
+ */
+class RecordingDataSource extends DelegatingDataSource {
+
+	private final List<RecordedStatement> statements = Collections.synchronizedList(new ArrayList<>());
+
+	RecordingDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return this.record(super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return this.record(super.getConnection(username, password));
+	}
+
+	/**
+	 * @return the statements executed since the last call, forgetting them
+	 */
+	List<RecordedStatement> drain() {
+		synchronized (statements) {
+			final List<RecordedStatement> drained = new ArrayList<>(statements);
+			statements.clear();
+			return drained;
+		}
+	}
+
+	private Connection record(Connection connection) {
+		return proxy(Connection.class, connection, (method, args, result) -> {
+			if (result instanceof PreparedStatement && "prepareStatement".equals(method.getName())) {
+				return this.record((PreparedStatement) result, (String) args[0]);
+			}
+			return result;
+		});
+	}
+
+	private PreparedStatement record(PreparedStatement statement, String sql) {
+		final Map<Integer, Object> parameters = new TreeMap<>();
+		return proxy(PreparedStatement.class, statement, (method, args, result) -> {
+			final String name = method.getName();
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+				parameters.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+			} else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+				statements.add(new RecordedStatement(sql, new ArrayList<>(parameters.values())));
+			} else if ("clearParameters".equals(name)) {
+				parameters.clear();
+			}
+			return result;
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, T target, ResultHandler handler) {
+		final InvocationHandler invocationHandler = (proxy, method, args) -> {
+			try {
+				return handler.handle(method, args, method.invoke(target, args));
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		};
+		return (T) Proxy.newProxyInstance(RecordingDataSource.class.getClassLoader(), new Class<?>[] { type },
+				invocationHandler);
+	}
+
+	@FunctionalInterface
+	private interface ResultHandler {
+
+		Object handle(Method method, Object[] args, Object result) throws Throwable;
+	}
+
+	/**
+	 * An executed statement and its parameters, in order.
+	 */
+	static class RecordedStatement {
+
+		private final String sql;
+
+		private final List<Object> parameters;
+
+		RecordedStatement(String sql, List<Object> parameters) {
+			this.sql = sql;
+			this.parameters = parameters;
+		}
+
+		String getSql() {
+			return sql;
+		}
+
+		/**
+		 * @return the statement with its parameters inlined as literals
+		 */
+		String toInlinedSql() {
+			final StringBuilder inlined = new StringBuilder();
+			int parameter = 0;
+			for (char c : sql.toCharArray()) {
+				if (c == '?') {
+					inlined.append(literal(parameters.get(parameter++)));
+				} else {
+					inlined.append(c);
+				}
+			}
+			return inlined.toString();
+		}
+
+		private static String literal(Object value) {
+			if (value == null) {
+				return "NULL";
+			}
+			if (value instanceof Number || value instanceof Boolean) {
+				return value.toString();
+			}
+			final String quoted = "'" + value.toString().replace("'", "''") + "'";
+			return value instanceof Timestamp ? quoted + "::timestamp" : quoted;
+		}
+
+		@Override
+		public String toString() {
+			return sql + " " + parameters;
+		}
+	}
+}
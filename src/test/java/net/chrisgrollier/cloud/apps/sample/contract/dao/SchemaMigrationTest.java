@@ -0,0 +1,124 @@
+package net.chrisgrollier.cloud.apps.sample.contract.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Applies the migrations the way the application does, to an empty database
+ * and to one whose schema was generated by Hibernate before migrations were
+ * introduced.
+ */
+public class SchemaMigrationTest {
+
+	private EmbeddedPostgres postgres;
+
+	private DataSource dataSource;
+
+	@Before
+	public void start() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		dataSource = postgres.getPostgresDatabase();
+	}
+
+	@After
+	public void stop() throws Exception {
+		postgres.close();
+	}
+
+	@Test
+	public void migrateEmptyDatabase() throws SQLException {
+		this.migrate();
+		this.assertCurrentSchema();
+	}
+
+	@Test
+	public void migrateHibernateGeneratedDatabase() throws SQLException {
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("CREATE SEQUENCE hibernate_sequence START 1 INCREMENT 1");
+			statement.execute("CREATE TABLE contract (id INTEGER NOT NULL, type INTEGER NOT NULL,"
+					+ " duration INTEGER NOT NULL, price DOUBLE PRECISION NOT NULL, userid INTEGER NOT NULL,"
+					+ " PRIMARY KEY (id))");
+			statement.execute("INSERT INTO contract VALUES (1, 0, 24, 300, 7)");
+		}
+		this.migrate();
+		this.assertCurrentSchema();
+		assertEquals(1, this.count("SELECT count(*) FROM contract WHERE deletion_date IS NULL"));
+	}
+
+	@Test
+	public void contractVersionMovesOnCommittedChanges() throws SQLException {
+		this.migrate();
+		long version = this.version();
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("INSERT INTO contract (id, type, duration, price, userid) VALUES (1, 0, 24, 300, 7)");
+			version = this.assertMoved(version);
+			connection.setAutoCommit(false);
+			statement.execute("UPDATE contract SET price = 400 WHERE id = 1");
+			// not committed yet, whatever the modification date it was stamped with
+			assertEquals(version, this.version());
+			connection.commit();
+			version = this.assertMoved(version);
+			statement.execute("DELETE FROM contract WHERE id = 1");
+			connection.commit();
+			this.assertMoved(version);
+		}
+	}
+
+	private long assertMoved(long previous) throws SQLException {
+		final long version = this.version();
+		assertTrue(version > previous);
+		return version;
+	}
+
+	private long version() throws SQLException {
+		// as ContractDAO.findVersion
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery("SELECT CAST(sum(version) AS BIGINT) FROM contract_version")) {
+			result.next();
+			return result.getLong(1);
+		}
+	}
+
+	private void migrate() {
+		// as configured in application.yml
+		Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+	}
+
+	private void assertCurrentSchema() throws SQLException {
+		for (String column : new String[] { "creation_date", "expiration_date", "deletion_date", "last_modified" }) {
+			assertEquals(column, 1, this.count("SELECT count(*) FROM information_schema.columns"
+					+ " WHERE table_name = 'contract' AND column_name = '" + column + "'"));
+		}
+		for (String table : new String[] { "contract_archive", "idempotency_key", "contract_version" }) {
+			assertEquals(table, 1,
+					this.count("SELECT count(*) FROM information_schema.tables WHERE table_name = '" + table + "'"));
+		}
+		for (String index : new String[] { "contract_live_userid_idx", "contract_deleted_userid_idx" }) {
+			assertEquals(index, 1, this.count("SELECT count(*) FROM pg_indexes WHERE indexname = '" + index + "'"));
+		}
+	}
+
+	private int count(String query) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery(query)) {
+			result.next();
+			return result.getInt(1);
+		}
+	}
+}
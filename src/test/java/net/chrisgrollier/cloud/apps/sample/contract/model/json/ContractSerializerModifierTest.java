@@ -0,0 +1,160 @@
+package net.chrisgrollier.cloud.apps.sample.contract.model.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.google.common.collect.Sets;
+
+import net.chrisgrollier.cloud.apps.common.exception.handler.ExceptionResponse;
+import net.chrisgrollier.cloud.apps.sample.contract.config.JacksonConfig;
+import net.chrisgrollier.cloud.apps.sample.contract.controller.FieldSelection;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.ContractType;
+import net.chrisgrollier.cloud.apps.sample.contract.model.Contract;
+import net.chrisgrollier.cloud.apps.sample.contract.model.ContractInfo;
+import net.chrisgrollier.cloud.apps.sample.contract.model.UserInfo;
+
+/**
+ * Checks that the hand written serializers write the same JSON as the bean
+ * serializers of an object mapper configured the same way but without
+ * {@link ContractSerializerModifier}.
+ */
+public class ContractSerializerModifierTest {
+
+	private ObjectMapper beanSerializers;
+
+	private ObjectMapper handWritten;
+
+	@Before
+	public void setUp() {
+		final JacksonConfig config = new JacksonConfig();
+		final Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+		config.defaultFiltersCustomizer().customize(builder);
+		beanSerializers = builder.build();
+		handWritten = builder.modulesToInstall(config.contractSerializationModule()).build();
+	}
+
+	@Test
+	public void handWrittenSerializersAreUsed() throws JsonMappingException {
+		final SerializerProvider provider = handWritten.getSerializerProviderInstance();
+		assertEquals(ContractSerializer.class, provider.findValueSerializer(Contract.class).getClass());
+		assertEquals(ContractInfoSerializer.class, provider.findValueSerializer(ContractInfo.class).getClass());
+		assertEquals(ExceptionResponseSerializer.class, provider.findValueSerializer(ExceptionResponse.class).getClass());
+	}
+
+	@Test
+	public void contract() throws JsonProcessingException {
+		this.assertSameJson(contract(1));
+		this.assertSameJson(new Contract());
+	}
+
+	@Test
+	public void contractInfoWithUser() throws JsonProcessingException {
+		final ContractInfo contractInfo = new ContractInfo(contract(1));
+		contractInfo.setUser(user());
+		this.assertSameJson(contractInfo);
+	}
+
+	@Test
+	public void contractInfoWithoutUser() throws JsonProcessingException {
+		this.assertSameJson(new ContractInfo(contract(1)));
+		// a user whose properties are unknown
+		final ContractInfo contractInfo = new ContractInfo(contract(1));
+		contractInfo.setUser(new UserInfo());
+		this.assertSameJson(contractInfo);
+	}
+
+	@Test
+	public void partialContractInfo() throws JsonProcessingException {
+		final ContractInfo contractInfo = new ContractInfo(contract(1));
+		contractInfo.setPartial(true);
+		this.assertSameJson(contractInfo);
+	}
+
+	@Test
+	public void exceptionResponse() throws JsonProcessingException {
+		this.assertSameJson(ExceptionResponse.of(HttpStatus.NOT_FOUND));
+		final ExceptionResponse response = ExceptionResponse.of(HttpStatus.BAD_REQUEST, null);
+		response.addFieldError("duration", "must be positive");
+		response.addFieldError("invalid request");
+		this.assertSameJson(response);
+	}
+
+	@Test
+	public void lists() throws JsonProcessingException {
+		final ContractInfo contractInfo = new ContractInfo(contract(2));
+		contractInfo.setUser(user());
+		contractInfo.setPartial(true);
+		final List<ContractInfo> contractInfos = Arrays.asList(new ContractInfo(contract(1)), contractInfo);
+		assertEquals(beanSerializers.writerFor(new TypeReference<List<ContractInfo>>() {
+		}).writeValueAsString(contractInfos), handWritten.writerFor(new TypeReference<List<ContractInfo>>() {
+		}).writeValueAsString(contractInfos));
+	}
+
+	@Test
+	public void fieldSelection() throws JsonProcessingException {
+		// as set by the field selection advice
+		final SimpleFilterProvider filters = new SimpleFilterProvider().addFilter(Contract.FIELDS_FILTER,
+				SimpleBeanPropertyFilter
+						.filterOutAllExcept(Sets.union(Sets.newHashSet("id", "lastName"), FieldSelection.STATUS_FIELDS)))
+				.setFailOnUnknownId(false);
+		final ContractInfo contractInfo = new ContractInfo(contract(1));
+		contractInfo.setUser(user());
+		contractInfo.setPartial(true);
+		for (Object value : Arrays.asList(contract(1), contractInfo)) {
+			final String json = handWritten.writer(filters).writeValueAsString(value);
+			assertEquals(beanSerializers.writer(filters).writeValueAsString(value), json);
+		}
+		assertEquals("{\"id\":1,\"lastName\":\"Doe\",\"partial\":true}",
+				handWritten.writer(filters).writeValueAsString(contractInfo));
+	}
+
+	@Test
+	public void activeView() throws JsonProcessingException {
+		final ContractInfo contractInfo = new ContractInfo(contract(1));
+		contractInfo.setUser(user());
+		for (Object value : Arrays.asList(contract(1), contractInfo, ExceptionResponse.of(HttpStatus.CONFLICT))) {
+			assertEquals(beanSerializers.writerWithView(Object.class).writeValueAsString(value),
+					handWritten.writerWithView(Object.class).writeValueAsString(value));
+		}
+	}
+
+	private void assertSameJson(Object value) throws JsonProcessingException {
+		assertEquals(beanSerializers.writeValueAsString(value), handWritten.writeValueAsString(value));
+	}
+
+	private static Contract contract(int id) {
+		final Contract contract = new Contract();
+		contract.setId(id);
+		contract.setType(ContractType.LLD);
+		contract.setDuration(24);
+		contract.setPrice(199.99);
+		contract.setUserId(7);
+		return contract;
+	}
+
+	private static UserInfo user() {
+		final UserInfo user = new UserInfo();
+		user.setFirstName("John");
+		user.setLastName("Doe");
+		user.setRole("USER");
+		user.setEmail("john.doe@example.com");
+		// escaped characters
+		user.setAddress("1 \"rue\" de la Paix\nParis");
+		user.setUsername("jdoe");
+		return user;
+	}
+}
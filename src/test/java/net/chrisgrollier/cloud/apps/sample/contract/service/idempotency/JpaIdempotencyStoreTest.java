@@ -0,0 +1,125 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.idempotency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.chrisgrollier.cloud.apps.sample.contract.dao.IdempotencyKeyDAO;
+import net.chrisgrollier.cloud.apps.sample.contract.entity.IdempotencyKeyEntity;
+
+/**
+ * Checks how long the database store holds reservations and results.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.cloud.bootstrap.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JpaIdempotencyStoreTest {
+
+	private static EmbeddedPostgres postgres;
+
+	@Autowired
+	private IdempotencyKeyDAO idempotencyKeyDAO;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private JpaIdempotencyStore store;
+
+	@BeforeClass
+	public static void start() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+	}
+
+	@AfterClass
+	public static void stop() throws Exception {
+		postgres.close();
+	}
+
+	@Before
+	public void setUp() {
+		idempotencyKeyDAO.deleteAll();
+		store = new JpaIdempotencyStore(idempotencyKeyDAO, transactionManager);
+		ReflectionTestUtils.setField(store, "ttlSeconds", 3600L);
+		ReflectionTestUtils.setField(store, "leaseSeconds", 3600L);
+	}
+
+	@Test
+	public void pendingReservationHoldsForTheLease() {
+		assertNull(store.reserve("alice:1", "a"));
+		assertTrue(store.reserve("alice:1", "a").isPending());
+	}
+
+	@Test
+	public void expiredLeaseIsTakenOver() {
+		ReflectionTestUtils.setField(store, "leaseSeconds", 0L);
+		assertNull(store.reserve("alice:1", "a"));
+		// the request died with its instance, a retry takes the key over
+		assertNull(store.reserve("alice:1", "b"));
+		assertEquals("b", idempotencyKeyDAO.findById("alice:1").map(IdempotencyKeyEntity::getFingerprint).get());
+	}
+
+	@Test
+	public void completedResultHoldsForTheTimeToLive() {
+		ReflectionTestUtils.setField(store, "leaseSeconds", 0L);
+		assertNull(store.reserve("alice:1", "a"));
+		store.complete("alice:1", "a", "{}");
+		assertEquals("{}", store.reserve("alice:1", "a").getResponse());
+	}
+
+	@Test
+	public void responseIsStoredAsText() throws Exception {
+		assertNull(store.reserve("alice:1", "a"));
+		store.complete("alice:1", "a", "{\"id\":1}");
+		try (Connection connection = postgres.getPostgresDatabase().getConnection();
+				Statement statement = connection.createStatement()) {
+			try (ResultSet response = statement
+					.executeQuery("SELECT response FROM idempotency_key WHERE key_id = 'alice:1'")) {
+				assertTrue(response.next());
+				assertEquals("{\"id\":1}", response.getString(1));
+			}
+			try (ResultSet largeObjects = statement.executeQuery("SELECT count(*) FROM pg_largeobject_metadata")) {
+				assertTrue(largeObjects.next());
+				assertEquals(0, largeObjects.getInt(1));
+			}
+		}
+	}
+
+	@Configuration
+	@EntityScan(basePackageClasses = IdempotencyKeyEntity.class)
+	@EnableJpaRepositories(basePackageClasses = IdempotencyKeyDAO.class)
+	static class Config {
+
+		@Bean
+		public DataSource dataSource() {
+			return postgres.getPostgresDatabase();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package net.chrisgrollier.cloud.apps.sample.contract.service.invalidation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.collect.ImmutableSet;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.chrisgrollier.cloud.apps.sample.contract.service.ContractChangedEvent;
+
+/**
+ * Checks that the bus listens out of the connection pool, or else gives its
+ * connection back unsubscribed, and republishes the changes of other
+ * instances. The pool is a mock, Hikari not supporting the application driver
+ * against a recent server, its connections being kept open when closed.
+ */
+public class ContractInvalidationBusTest {
+
+	private EmbeddedPostgres postgres;
+
+	private HikariDataSource pool;
+
+	private final List<Connection> borrowed = new CopyOnWriteArrayList<>();
+
+	private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+	private ContractInvalidationBus bus;
+
+	@Before
+	public void setUp() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		pool = mock(HikariDataSource.class);
+		when(pool.getConnection()).thenAnswer(invocation -> {
+			final Connection connection = postgres.getPostgresDatabase().getConnection();
+			borrowed.add(connection);
+			return pooled(connection);
+		});
+		bus = new ContractInvalidationBus(pool, events::add);
+		ReflectionTestUtils.setField(bus, "channel", "contract_changes");
+		ReflectionTestUtils.setField(bus, "pollInterval", 50L);
+		ReflectionTestUtils.setField(bus, "reconnectDelay", 50L);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		bus.stop();
+		for (Connection connection : borrowed) {
+			connection.close();
+		}
+		postgres.close();
+	}
+
+	@Test
+	public void listensOutOfThePool() throws Exception {
+		final HikariConfig config = new HikariConfig();
+		config.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+		config.setUsername("postgres");
+		when(pool.isWrapperFor(HikariConfig.class)).thenReturn(true);
+		when(pool.unwrap(HikariConfig.class)).thenReturn(config);
+		bus.start();
+		final ContractChangedEvent event = this.notifyUntilReceived();
+		assertTrue(event.isRemote());
+		assertEquals(ImmutableSet.of(1), event.getContractIds());
+		// only to tell whether the database is a Postgres one
+		verify(pool, times(1)).getConnection();
+	}
+
+	@Test
+	public void pooledListenerConnectionIsUnsubscribed() throws Exception {
+		bus.start();
+		this.notifyUntilReceived();
+		final Connection listener = borrowed.get(borrowed.size() - 1);
+		assertEquals(1, this.listeningChannels(listener));
+		bus.stop();
+		for (int i = 0; i < 100 && this.listeningChannels(listener) > 0; i++) {
+			TimeUnit.MILLISECONDS.sleep(50);
+		}
+		assertEquals(0, this.listeningChannels(listener));
+	}
+
+	/**
+	 * Notify until the listener, which may not be subscribed yet, gets it.
+	 */
+	private ContractChangedEvent notifyUntilReceived() throws Exception {
+		final String payload = InvalidationMessage.encode("other",
+				ContractChangedEvent.of(ImmutableSet.of(1), ImmutableSet.of(7)));
+		for (int i = 0; i < 100; i++) {
+			try (Connection connection = postgres.getPostgresDatabase().getConnection();
+					PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+				statement.setString(1, "contract_changes");
+				statement.setString(2, payload);
+				statement.execute();
+			}
+			final Object event = events.poll(100, TimeUnit.MILLISECONDS);
+			if (event != null) {
+				return (ContractChangedEvent) event;
+			}
+		}
+		fail("no event received");
+		return null;
+	}
+
+	private int listeningChannels(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery("SELECT count(*) FROM pg_listening_channels()")) {
+			result.next();
+			return result.getInt(1);
+		}
+	}
+
+	/**
+	 * @return the connection, kept open when closed and unwrapped as a pool
+	 *         would
+	 */
+	private static Connection pooled(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(ContractInvalidationBusTest.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if ("close".equals(method.getName())) {
+						return null;
+					}
+					if ("unwrap".equals(method.getName())) {
+						return connection;
+					}
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+				});
+	}
+}